@@ -0,0 +1,3 @@
+#!/bin/bash
+
+java -cp build/ rsacommunicator.client.CommandLineClient "$@"
@@ -36,6 +36,7 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.time.LocalDateTime;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -52,16 +53,50 @@ import rsacommunicator.server.Client;
  * messages for further processing, including decryption.
  * </p>
  *
+ * <p>
+ * If the channel fails, both threads stop; after the messages already read
+ * are forwarded, subscribers are notified with a {@link #DISCONNECTED} event,
+ * whose new value is the exception. Channels closed with {@link #close()} are
+ * not reported.
+ * </p>
+ *
+ * <p>
+ * Readers can also notify through an executor shared by many readers, instead
+ * of their own emissary thread; in order, if the executor is serial.
+ * </p>
+ *
  * @author Victor de Lima Soares
  * @version 1.0
  */
 public class MessageReader implements Runnable, AutoCloseable {
 
+    /**
+     * Name of the event fired when the channel fails.
+     *
+     * @since 1.1
+     */
+    public static final String DISCONNECTED = "DISCONNECTED";
+
+    /**
+     * Stack size of reader threads, for readers with a shared emissary.
+     *
+     * @since 1.1
+     */
+    private static final long READER_STACK_SIZE = 256 * 1024;
+
     private final BlockingQueue<Message> messages = new LinkedBlockingQueue();
     private final ObjectInputStream source;
     private final PropertyChangeSupport pcs;
     private final Client responsable;
 
+    /**
+     * Executor that notifies the subscribers, if shared; null, if this reader
+     * has its own emissary thread.
+     *
+     * @since 1.1
+     */
+    private final Executor notifier;
+
     private Thread reader;
     private Thread emissary;
 
@@ -70,7 +105,14 @@ public class MessageReader implements Runnable, AutoCloseable {
      *
      * @since 1.0
      */
-    private boolean CLOSING = false;
+    private volatile boolean CLOSING = false;
+
+    /**
+     * Failure of the channel, if any.
+     *
+     * @since 1.1
+     */
+    private volatile IOException failure;
 
     /**
      * Time stamp for the last message.
@@ -88,6 +130,7 @@ public class MessageReader implements Runnable, AutoCloseable {
     public MessageReader(Client responsable, InputStream source) throws IOException {
         this.source = new ObjectInputStream(new BufferedInputStream(source));
         this.responsable = responsable;
+        this.notifier = null;
         pcs = new PropertyChangeSupport(responsable);
     }
 
@@ -99,7 +142,26 @@ public class MessageReader implements Runnable, AutoCloseable {
      * @throws java.io.IOException
      */
     public MessageReader(InputStream source) throws IOException {
+        this(source, null);
+    }
+
+    /**
+     * Creates a new reader from a input source, that notifies subscribers
+     * through an executor.
+     *
+     * <p>
+     * Only the reader thread is started; the executor replaces the emissary.
+     * </p>
+     *
+     * @since 1.1
+     * @param source
+     * @param notifier Executor that runs the notifications, in order; null,
+     * for an emissary thread.
+     * @throws java.io.IOException
+     */
+    public MessageReader(InputStream source, Executor notifier) throws IOException {
         this.source = new ObjectInputStream(new BufferedInputStream(source));
+        this.notifier = notifier;
         responsable = null;
         pcs = new PropertyChangeSupport(this);
     }
@@ -123,7 +185,12 @@ public class MessageReader implements Runnable, AutoCloseable {
      * @see #run()
      */
     public void startReader() {
-        reader = new Thread(this);
+        if (notifier == null) {
+            reader = new Thread(this);
+        } else {
+            reader = new Thread(null, this, "message-reader", READER_STACK_SIZE);
+            reader.setDaemon(true);
+        }
         reader.start();
     }
 
@@ -135,18 +202,24 @@ public class MessageReader implements Runnable, AutoCloseable {
      */
     @Override
     public void run() {
-        startsEmissary();
+        if (notifier == null) {
+            startsEmissary();
+        }
 
-        while (true) {
+        while (!CLOSING) {
             try {
 
                 readInput();
 
             } catch (IOException ex) {
-                try {
-                   if(CLOSING = false) close();
-                } catch (Exception ex1) {
-                    Logger.getLogger(MessageReader.class.getName()).log(Level.SEVERE, null, ex1);
+                if (!CLOSING) {
+                    failure = ex;
+                    CLOSING = true;
+                    if (notifier == null) {
+                        emissary.interrupt();
+                    } else {
+                        notifier.execute(() -> pcs.firePropertyChange(DISCONNECTED, null, ex));
+                    }
                 }
             }
         }
@@ -158,18 +231,25 @@ public class MessageReader implements Runnable, AutoCloseable {
      * @since 1.0
      * @throws IOException
      * <ul>
-     * <li>if any exception occur during transmission.</li>
+     * <li>if any exception occur during transmission;</li>
+     * <li>if the channel was closed by the other side.</li>
      * </ul>
      */
     private void readInput() throws IOException {
         try {
 
             Message message = (Message) source.readObject();
-            messages.put(message);
+            if (notifier == null) {
+                messages.put(message);
+            } else {
+                notifier.execute(() -> pcs.firePropertyChange(message.getType().name(), null, message));
+            }
             setLastMessage(LocalDateTime.now());
 
-        } catch (EOFException | InterruptedException ex) {
+        } catch (InterruptedException ex) {
             //Ignore message.
+        } catch (EOFException ex) {
+            throw ex;
         } catch (IOException | ClassNotFoundException ex) {
             throw new IOException("Input error.", ex);
         }
@@ -205,6 +285,9 @@ public class MessageReader implements Runnable, AutoCloseable {
                     }
 
                 }
+                if (failure != null) {
+                    pcs.firePropertyChange(DISCONNECTED, null, failure);
+                }
             }
         };
 
@@ -265,6 +348,9 @@ public class MessageReader implements Runnable, AutoCloseable {
     public void close() throws Exception {
         CLOSING = true;
         reader.interrupt();
+        if (emissary != null) {
+            emissary.interrupt();
+        }
         source.close();
     }
 
@@ -0,0 +1,125 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor that runs its tasks one at a time, in order, on a shared executor.
+ *
+ * <p>
+ * Many serial executors can share one pool: each holds only its queue, and
+ * occupies a pool thread only while it has tasks to run. After a few tasks
+ * in a row, it yields the thread to the other executors of the pool.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class SerialExecutor implements Executor {
+
+    /**
+     * Maximum number of tasks run before yielding the pool thread.
+     *
+     * @since 1.1
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * Shared executor that runs the tasks.
+     *
+     * @since 1.1
+     */
+    private final Executor pool;
+
+    /**
+     * Tasks waiting.
+     *
+     * @since 1.1
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * If a task is running, or handed to the pool.
+     *
+     * @since 1.1
+     */
+    private boolean active;
+
+    /**
+     * Creates a serial executor.
+     *
+     * @since 1.1
+     * @param pool Shared executor that runs the tasks.
+     */
+    public SerialExecutor(Executor pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Runs a task after all tasks submitted before it.
+     *
+     * @since 1.1
+     * @param task
+     */
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(task);
+        if (!active) {
+            active = true;
+            pool.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs the tasks waiting, until there are none or the batch is over.
+     *
+     * @since 1.1
+     */
+    private void drain() {
+        for (int i = 0; i < BATCH; i++) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    active = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(SerialExecutor.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        pool.execute(this::drain);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import rsacommunicator.crypto.ECDHAgreement;
+import rsacommunicator.crypto.RSAPublicKey;
+import rsacommunicator.crypto.suite.AsymmetricCipher;
+import rsacommunicator.crypto.suite.CipherSuite;
+import rsacommunicator.crypto.suite.CipherSuites;
+import rsacommunicator.crypto.suite.KeyAgreementScheme;
+import rsacommunicator.crypto.suite.SymmetricCipher;
+import rsacommunicator.messages.Key;
+import rsacommunicator.messages.SymmetricMessage;
+
+/**
+ * Benchmark of session key establishment: RSA key transport against ECDH key
+ * agreement.
+ *
+ * <p>
+ * Measures, with the preferred cipher suite and 512 bit RSA keys, as the
+ * client:
+ * </p>
+ * <ul>
+ * <li>Handshake CPU, per peer and per side: the RSA wrap and unwrap of a new
+ * session key, against one ECDH derivation;</li>
+ * <li>Per login costs: RSA key pair generation, against ECDH party
+ * generation;</li>
+ * <li>First message latency: from no session key to the plain text on the
+ * receiver, frames serialized as on the wire. RSA sends a KEY frame before
+ * the message; ECDH sends the message alone.</li>
+ * </ul>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see ECDHAgreement
+ */
+public class HandshakeBenchmark {
+
+    /**
+     * RSA modulus size, in bits, as used by the client.
+     *
+     * @since 1.1
+     */
+    public static final int RSA_BITS = 512;
+
+    /**
+     * Session key size, in bytes, as used by the client.
+     *
+     * @since 1.1
+     */
+    public static final int SESSION_KEY_SIZE = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final byte[] FIRST_MESSAGE = "Hello!".getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+        CipherSuite suite = CipherSuites.get(CipherSuites.names().get(0));
+        AsymmetricCipher rsa = suite.getAsymmetric();
+        SymmetricCipher cipher = suite.getSymmetric();
+        KeyAgreementScheme agreement = ECDHAgreement.SCHEME;
+
+        AsymmetricCipher.KeyPair receiver = rsa.generate(RSA_BITS);
+        RSAPublicKey receiverKey = receiver.getPublicKeyPair();
+        BigInteger wrapped = rsa.encrypt(receiverKey, encode(newSessionKey()));
+
+        KeyAgreementScheme.Party sender = agreement.newParty();
+        KeyAgreementScheme.Party peer = agreement.newParty();
+        byte[] senderPublicKey = sender.getPublicKey();
+        byte[] peerPublicKey = peer.getPublicKey();
+
+        System.out.println("Suite: " + suite.getName() + ", RSA-" + RSA_BITS + " against " + agreement.getName());
+        System.out.println();
+
+        double wrap = Timing.measure(() -> rsa.encrypt(receiverKey, encode(newSessionKey())));
+        double unwrap = Timing.measure(() -> decode(receiver.decrypt(wrapped)));
+        double derive = Timing.measure(() -> sender.deriveKey(peerPublicKey, SESSION_KEY_SIZE));
+
+        System.out.printf("%-28s %12s %12s%n", "Handshake CPU, per peer", "RSA-" + RSA_BITS, "ECDH");
+        report("  initiator", wrap, derive);
+        report("  responder", unwrap, derive);
+        report("  total", wrap + unwrap, 2 * derive);
+        System.out.println();
+
+        System.out.printf("%-28s %12s %12s%n", "Per login", "RSA-" + RSA_BITS, "ECDH");
+        report("  key pair generation",
+                Timing.measure(() -> rsa.generate(RSA_BITS)),
+                Timing.measure(agreement::newParty));
+        System.out.println();
+
+        System.out.printf("%-28s %12s %12s%n", "First message", "RSA-" + RSA_BITS, "ECDH");
+        report("  latency",
+                Timing.measure(() -> {
+                    byte[] key = newSessionKey();
+                    Key frame = new Key("sender", "receiver", rsa.encrypt(receiverKey, encode(key)));
+                    Object[] received = transfer(frame, encrypt(cipher, key));
+
+                    byte[] receivedKey = decode(receiver.decrypt(((Key) received[0]).getMessage()));
+                    return decrypt(cipher, receivedKey, (SymmetricMessage) received[1]);
+                }),
+                Timing.measure(() -> {
+                    byte[] key = sender.deriveKey(peerPublicKey, SESSION_KEY_SIZE);
+                    Object[] received = transfer(encrypt(cipher, key));
+
+                    byte[] receivedKey = peer.deriveKey(senderPublicKey, SESSION_KEY_SIZE);
+                    return decrypt(cipher, receivedKey, (SymmetricMessage) received[0]);
+                }));
+    }
+
+    private static void report(String label, double rsa, double ecdh) {
+        System.out.printf("%-28s %12s %12s%n", label, Timing.format(rsa), Timing.format(ecdh));
+    }
+
+    private static byte[] newSessionKey() {
+        byte[] key = new byte[SESSION_KEY_SIZE];
+        RANDOM.nextBytes(key);
+        return key;
+    }
+
+    /**
+     * Session key as an RSA message, as the client encodes it: a leading one
+     * byte keeps leading zeros.
+     */
+    private static BigInteger encode(byte[] bytes) {
+        byte[] marked = new byte[bytes.length + 1];
+        marked[0] = 1;
+        System.arraycopy(bytes, 0, marked, 1, bytes.length);
+        return new BigInteger(1, marked);
+    }
+
+    private static byte[] decode(BigInteger number) {
+        byte[] marked = number.toByteArray();
+        byte[] bytes = new byte[marked.length - 1];
+        System.arraycopy(marked, 1, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static SymmetricMessage encrypt(SymmetricCipher cipher, byte[] key) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        cipher.encrypt(new ByteArrayInputStream(FIRST_MESSAGE), key, output);
+        return new SymmetricMessage("sender", "receiver", cipher.getName(), output.toByteArray());
+    }
+
+    private static byte[] decrypt(SymmetricCipher cipher, byte[] key, SymmetricMessage message) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        cipher.decrypt(new ByteArrayInputStream(message.getMessage()), key, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Writes frames to a stream and reads them back.
+     */
+    private static Object[] transfer(Object... frames) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(wire)) {
+            for (Object frame : frames) {
+                out.writeObject(frame);
+            }
+        }
+
+        Object[] received = new Object[frames.length];
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(wire.toByteArray()))) {
+            for (int i = 0; i < received.length; i++) {
+                received[i] = in.readObject();
+            }
+        }
+        return received;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import rsacommunicator.crypto.suite.CipherSuite;
+import rsacommunicator.crypto.suite.CipherSuites;
+import rsacommunicator.crypto.suite.MessageAuthenticator;
+import rsacommunicator.crypto.suite.SymmetricCipher;
+
+/**
+ * Benchmark of message authentication.
+ *
+ * <p>
+ * Measures, per frame and for several frame sizes, the cost of authenticating
+ * symmetric messages with the preferred cipher suite: tagging by the sender
+ * plus verification by the receiver, one tag per frame and one tag per batch
+ * of frames. The encryption of the same frame, with the suite's symmetric
+ * cipher, is the reference.
+ * </p>
+ *
+ * <p>
+ * Usage: <code>MacBenchmark [bytes...]</code>
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see MessageAuthenticator
+ */
+public class MacBenchmark {
+
+    /**
+     * Frame sizes measured by default, in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int[] SIZES = {64, 256, 1024, 16384};
+
+    /**
+     * Batch sizes measured, in frames.
+     *
+     * @since 1.1
+     */
+    public static final int[] BATCHES = {16, 64};
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        CipherSuite suite = CipherSuites.get(CipherSuites.names().get(0));
+        SymmetricCipher cipher = suite.getSymmetric();
+        MessageAuthenticator authenticator = suite.getAuthenticator();
+        Random random = new Random(1);
+
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        byte[] tag = new byte[authenticator.getTagSize()];
+
+        System.out.println("Suite: " + suite.getName() + ", " + authenticator.getName() + ", per frame");
+        System.out.printf("%-8s %12s %12s %10s", "bytes", "encryption", "single tag", "overhead");
+        for (int batch : BATCHES) {
+            System.out.printf(" %12s", "batch of " + batch);
+        }
+        System.out.println();
+
+        for (int size : sizes) {
+            List<byte[]> frames = new ArrayList<>();
+            for (int i = 0; i < BATCHES[BATCHES.length - 1]; i++) {
+                byte[] frame = new byte[size];
+                random.nextBytes(frame);
+                frames.add(frame);
+            }
+            byte[] frame = frames.get(0);
+
+            double encryption = Timing.measure(() -> {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+                cipher.encrypt(new ByteArrayInputStream(frame), key, output);
+                return output;
+            });
+            double single = Timing.measure(() -> {
+                authenticator.tag(key, frame, 0, frame.length, tag, 0);
+                return authenticator.verify(key, frame, 0, frame.length, tag, 0);
+            });
+            System.out.printf("%-8d %12s %12s %9.0f%%", size,
+                    Timing.format(encryption), Timing.format(single), 100 * single / encryption);
+
+            for (int batch : BATCHES) {
+                List<byte[]> batchFrames = frames.subList(0, batch);
+                double batched = Timing.measure(() -> {
+                    authenticator.tag(key, batchFrames, tag, 0);
+                    return authenticator.verify(key, batchFrames, tag, 0);
+                });
+                System.out.printf(" %12s", Timing.format(batched / batch));
+            }
+            System.out.println();
+        }
+    }
+}
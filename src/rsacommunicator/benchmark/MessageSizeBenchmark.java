@@ -0,0 +1,180 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import rsacommunicator.crypto.RSAPublicKey;
+import rsacommunicator.crypto.suite.AsymmetricCipher;
+import rsacommunicator.crypto.suite.CipherSuite;
+import rsacommunicator.crypto.suite.CipherSuites;
+import rsacommunicator.crypto.suite.SymmetricCipher;
+
+/**
+ * Benchmark of RSA_MSG encryption, from 10 bytes to 1 MB.
+ *
+ * <p>
+ * Measures a round trip - encryption by the sender and decryption by the
+ * receiver - of each message size, with the preferred cipher suite and 512
+ * bit RSA keys, as the client:
+ * </p>
+ * <ul>
+ * <li>Chunked: the text split in RSA blocks, one after another and in
+ * parallel;</li>
+ * <li>Hybrid: the text encrypted with the suite's symmetric cipher, and only
+ * its content key with RSA.</li>
+ * </ul>
+ *
+ * <p>
+ * Usage: <code>MessageSizeBenchmark [bytes...]</code>
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class MessageSizeBenchmark {
+
+    /**
+     * RSA modulus size, in bits, as used by the client.
+     *
+     * @since 1.1
+     */
+    public static final int RSA_BITS = 512;
+
+    /**
+     * Content key size, in bytes, as used by the client.
+     *
+     * @since 1.1
+     */
+    public static final int CONTENT_KEY_SIZE = 16;
+
+    /**
+     * Message sizes measured by default, in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int[] SIZES = {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        CipherSuite suite = CipherSuites.get(CipherSuites.names().get(0));
+        AsymmetricCipher rsa = suite.getAsymmetric();
+        SymmetricCipher cipher = suite.getSymmetric();
+        AsymmetricCipher.KeyPair keyPair = rsa.generate(RSA_BITS);
+        RSAPublicKey publicKey = keyPair.getPublicKeyPair();
+        int capacity = (publicKey.bitLength() - 2) / Byte.SIZE;
+        Random random = new Random(1);
+
+        System.out.println("Suite: " + suite.getName() + ", RSA-" + RSA_BITS + ", "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        System.out.printf("%-10s %14s %14s %14s%n", "bytes", "chunked", "parallel", "hybrid");
+        for (int size : sizes) {
+            byte[] text = new byte[size];
+            random.nextBytes(text);
+
+            double sequential = Timing.measure(() -> chunked(rsa, keyPair, capacity, text, false));
+            double parallel = Timing.measure(() -> chunked(rsa, keyPair, capacity, text, true));
+            double hybrid = Timing.measure(() -> hybrid(rsa, cipher, keyPair, text));
+
+            System.out.printf("%-10d %14s %14s %14s%n", size,
+                    Timing.format(sequential), Timing.format(parallel), Timing.format(hybrid));
+        }
+    }
+
+    /**
+     * Round trip of a chunked message.
+     */
+    private static byte[] chunked(AsymmetricCipher rsa, AsymmetricCipher.KeyPair keyPair, int capacity, byte[] text,
+            boolean parallel) {
+        RSAPublicKey publicKey = keyPair.getPublicKeyPair();
+
+        IntStream indices = IntStream.range(0, (text.length + capacity - 1) / capacity);
+        List<BigInteger> chunks = (parallel ? indices.parallel() : indices)
+                .mapToObj((int chunk) -> rsa.encrypt(publicKey,
+                        encode(Arrays.copyOfRange(text, chunk * capacity, Math.min(text.length, (chunk + 1) * capacity)))))
+                .collect(Collectors.toList());
+
+        List<byte[]> blocks = (parallel ? chunks.parallelStream() : chunks.stream())
+                .map((BigInteger chunk) -> decode(keyPair.decrypt(chunk)))
+                .collect(Collectors.toList());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(text.length);
+        for (byte[] block : blocks) {
+            output.write(block, 0, block.length);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Round trip of a hybrid message.
+     */
+    private static byte[] hybrid(AsymmetricCipher rsa, SymmetricCipher cipher, AsymmetricCipher.KeyPair keyPair,
+            byte[] text) throws Exception {
+        byte[] contentKey = new byte[CONTENT_KEY_SIZE];
+        Arrays.fill(contentKey, (byte) 1);
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream(text.length);
+        cipher.encrypt(new ByteArrayInputStream(text), contentKey, encrypted);
+        BigInteger encryptedKey = rsa.encrypt(keyPair.getPublicKeyPair(), encode(contentKey));
+
+        byte[] receivedKey = decode(keyPair.decrypt(encryptedKey));
+        ByteArrayOutputStream output = new ByteArrayOutputStream(text.length);
+        cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), receivedKey, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Bytes as an RSA message, as the client encodes them: a leading one byte
+     * keeps leading zeros.
+     */
+    private static BigInteger encode(byte[] bytes) {
+        byte[] marked = new byte[bytes.length + 1];
+        marked[0] = 1;
+        System.arraycopy(bytes, 0, marked, 1, bytes.length);
+        return new BigInteger(1, marked);
+    }
+
+    private static byte[] decode(BigInteger number) {
+        byte[] marked = number.toByteArray();
+        byte[] bytes = new byte[marked.length - 1];
+        System.arraycopy(marked, 1, bytes, 0, bytes.length);
+        return bytes;
+    }
+}
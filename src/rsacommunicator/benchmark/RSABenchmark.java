@@ -0,0 +1,96 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.benchmark;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import rsacommunicator.crypto.RSAKeyPair;
+import rsacommunicator.crypto.RSAPublicKey;
+
+/**
+ * Benchmark of the RSA exponentiation engines.
+ *
+ * <p>
+ * Compares the {@link rsacommunicator.crypto.Montgomery} arithmetic core
+ * against <code>BigInteger.modPow</code>, for public key operations (e =
+ * 65537) and private key operations (CRT), from 512 to 4096 bit moduli.
+ * </p>
+ *
+ * <p>
+ * Usage: <code>RSABenchmark [bits...]</code>
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAKeyPair.Engine
+ */
+public class RSABenchmark {
+
+    /**
+     * Modulus sizes measured by default.
+     *
+     * @since 1.1
+     */
+    public static final int[] SIZES = {512, 1024, 2048, 4096};
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        SecureRandom random = new SecureRandom();
+        System.out.printf("%-6s %-8s %12s %12s %8s%n", "bits", "op", "BigInteger", "Montgomery", "ratio");
+        for (int bits : sizes) {
+            RSAKeyPair bigInteger = RSAKeyPair.generate(bits, RSAKeyPair.Engine.BIG_INTEGER);
+            RSAKeyPair montgomery = bigInteger.on(RSAKeyPair.Engine.MONTGOMERY);
+            RSAPublicKey publicKey = bigInteger.getPublicKeyPair();
+            BigInteger message = new BigInteger(bits - 1, random);
+            BigInteger cipherText = bigInteger.encrypt(message);
+
+            if (!montgomery.encrypt(message).equals(cipherText) || !montgomery.decrypt(cipherText).equals(message)) {
+                throw new IllegalStateException("Engines disagree at " + bits + " bits.");
+            }
+
+            report(bits, "public",
+                    Timing.measure(() -> RSAKeyPair.encrypt(publicKey, message, RSAKeyPair.Engine.BIG_INTEGER)),
+                    Timing.measure(() -> RSAKeyPair.encrypt(publicKey, message, RSAKeyPair.Engine.MONTGOMERY)));
+            report(bits, "private",
+                    Timing.measure(() -> bigInteger.decrypt(cipherText)),
+                    Timing.measure(() -> montgomery.decrypt(cipherText)));
+        }
+    }
+
+    private static void report(int bits, String operation, double bigInteger, double montgomery) {
+        System.out.printf("%-6d %-8s %12s %12s %7.2fx%n", bits, operation,
+                Timing.format(bigInteger), Timing.format(montgomery), montgomery / bigInteger);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.benchmark;
+
+/**
+ * Timing of benchmark operations.
+ *
+ * <p>
+ * Each measurement runs warm-up rounds, for the JIT compiler, and then timed
+ * rounds of at least {@link #ROUND_NANOS}; the best round is reported, as the
+ * one least disturbed by garbage collection and other processes.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+final class Timing {
+
+    /**
+     * Warm-up rounds.
+     *
+     * @since 1.1
+     */
+    static final int WARM_UP_ROUNDS = 3;
+
+    /**
+     * Timed rounds.
+     *
+     * @since 1.1
+     */
+    static final int ROUNDS = 5;
+
+    /**
+     * Minimum length of a round, in nanoseconds.
+     *
+     * @since 1.1
+     */
+    static final long ROUND_NANOS = 200_000_000L;
+
+    /**
+     * Results of the operations, kept so that they are not optimized away.
+     *
+     * @since 1.1
+     */
+    private static volatile Object sink;
+
+    private Timing() {
+    }
+
+    /**
+     * Operation under measurement.
+     *
+     * @since 1.1
+     */
+    @FunctionalInterface
+    interface Operation {
+
+        /**
+         * Runs the operation once.
+         *
+         * @return Result of the operation.
+         * @throws Exception
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * Measures an operation.
+     *
+     * @since 1.1
+     * @param operation
+     * @return Best time per operation, in nanoseconds.
+     * @throws Exception if the operation fails.
+     */
+    static double measure(Operation operation) throws Exception {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARM_UP_ROUNDS + ROUNDS; round++) {
+            long operations = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                sink = operation.run();
+                operations++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ROUND_NANOS);
+
+            if (round >= WARM_UP_ROUNDS) {
+                best = Math.min(best, (double) elapsed / operations);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Formats a time per operation.
+     *
+     * @since 1.1
+     * @param nanos Nanoseconds.
+     * @return Time, in the most readable unit.
+     */
+    static String format(double nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2f ms", nanos / 1_000_000);
+        }
+        if (nanos >= 1_000) {
+            return String.format("%.2f us", nanos / 1_000);
+        }
+        return String.format("%.0f ns", nanos);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter.
+ *
+ * <p>
+ * Each delay is drawn uniformly between zero and a ceiling that doubles on
+ * every attempt, up to a maximum. Clients that lost the server at the same
+ * time spread their attempts over the whole window, instead of all coming
+ * back together when it restarts.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class Backoff {
+
+    /**
+     * Ceiling of the first delay, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private final long base;
+
+    /**
+     * Maximum ceiling, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private final long max;
+
+    /**
+     * Delays drawn since the last reset.
+     *
+     * @since 1.1
+     */
+    private int attempts;
+
+    /**
+     * Creates a backoff.
+     *
+     * @since 1.1
+     * @param base Ceiling of the first delay, in milliseconds.
+     * @param max Maximum ceiling, in milliseconds.
+     */
+    public Backoff(long base, long max) {
+        if (base <= 0 || max < base) {
+            throw new IllegalArgumentException("Invalid backoff: " + base + ", " + max);
+        }
+        this.base = base;
+        this.max = max;
+    }
+
+    /**
+     * Draws the delay before the next attempt.
+     *
+     * @since 1.1
+     * @return Delay, in milliseconds.
+     */
+    public long next() {
+        long ceiling = Math.min(max, base << Math.min(attempts, 30));
+        attempts++;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Returns the number of delays drawn since the last reset.
+     *
+     * @since 1.1
+     * @return Attempts.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Starts over from the first delay.
+     *
+     * @since 1.1
+     */
+    public void reset() {
+        attempts = 0;
+    }
+}
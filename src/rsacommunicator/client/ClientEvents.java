@@ -42,13 +42,33 @@ public enum ClientEvents {
     /**
      * This event indicates that some user information has changed.
      * @since 1.0
+     * @deprecated The client fires {@link #ROSTER_CHANGE} instead.
      */
+    @Deprecated
     USER_UPDATE,
+    /**
+     * This event indicates that some users were added, updated or removed;
+     * the new value is a {@link RosterChange}.
+     * @since 1.1
+     */
+    ROSTER_CHANGE,
     /**
      * This event indicates that a new message have arrived.
      * @since 1.0
      */
     NEW_MESSAGE,
+    /**
+     * The connection to the server was lost, and the RSA client is
+     * reconnecting; the new value is the exception.
+     * @since 1.1
+     */
+    CONNECTION_LOST,
+    /**
+     * The RSA client is connected again, after the connection was lost; the
+     * new value is the number of attempts.
+     * @since 1.1
+     */
+    RECONNECTED,
     /**
      * The RSA client has disconnected from the server.
      * @since 1.0
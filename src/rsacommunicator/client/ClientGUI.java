@@ -26,14 +26,34 @@
  */
 package rsacommunicator.client;
 
+import java.awt.GridBagConstraints;
+import java.awt.Insets;
 import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.BorderFactory;
+import javax.swing.JList;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.SwingWorker;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import rsacommunicator.client.history.HistoryRecord;
+import rsacommunicator.client.history.MessageHistory;
+import rsacommunicator.crypto.IdentityKeyStore;
 import rsacommunicator.messages.Logout;
 import rsacommunicator.messages.PlainMessage;
 import rsacommunicator.server.RSAServer;
@@ -61,13 +81,30 @@ import rsacommunicator.server.RSAServer;
  * @see RSAServer
  * @see ClientEvents
  */
-public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListener {
+public class ClientGUI extends javax.swing.JFrame implements UpdateCoalescer.View {
 
     /**
      * RSA client.
      */
     private final RSAClient client;
 
+    /**
+     * Batches the client events into one update per frame.
+     *
+     * @since 1.1
+     */
+    private final UpdateCoalescer coalescer;
+
+    /**
+     * Received messages: the most recent ones in memory. Older ones are
+     * dropped from the view, not spilled: every message is already kept, per
+     * user, by the client's message history, and can be found with the
+     * history search.
+     *
+     * @since 1.1
+     */
+    private final TranscriptModel transcript = new TranscriptModel(null);
+
     /**
      * Creates new form ClientGUI and initializes the RSA client.
      *
@@ -76,7 +113,16 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
      */
     public ClientGUI() throws IOException {
         initComponents();
-        client = new RSAClient(this);
+        incomingList.setFixedCellHeight(incomingList.getFontMetrics(incomingList.getFont()).getHeight() + 2);
+        transcript.addAll(Arrays.asList(
+                "To send a message, click on the user you want to communicate with over the list on the right - loaded after logging in. ",
+                "Documentation about how the software works and the steps taken is available as Javadoc for the RSAClient (rsacommunicator.client.RSAClient)."));
+        installSearch();
+        coalescer = new UpdateCoalescer(this);
+        client = new RSAClient(coalescer);
+        client.setIdentityDirectory(IdentityKeyStore.DEFAULT_DIRECTORY);
+        client.setKeyCacheFile(IdentityKeyStore.DEFAULT_DIRECTORY.resolveSibling("keys.cache"));
+        client.setHistoryDirectory(IdentityKeyStore.DEFAULT_DIRECTORY.resolveSibling("history"));
     }
 
     /**
@@ -86,13 +132,35 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
      */
     private User destination;
 
+    /**
+     * Maximum number of history search results shown.
+     *
+     * @since 1.1
+     */
+    private static final int SEARCH_RESULTS = 200;
+
+    /**
+     * History search box.
+     *
+     * @since 1.1
+     */
+    private final JTextField searchField = new JTextField();
+
+    /**
+     * User nodes of the tree view, by user name.
+     *
+     * @since 1.1
+     */
+    private final Map<String, DefaultMutableTreeNode> userNodes = new HashMap<>();
+
     /**
      * Events processor method.
      * <p>
      * Method called when a event is fired from the RSA client.
      * </p>
      * <p>
-     * The RSA client will communicate with the GUI through events.
+     * The RSA client will communicate with the GUI through events, applied on
+     * the event dispatch thread by the {@link UpdateCoalescer}.
      * </p>
      *
      * @since 1.0
@@ -101,8 +169,8 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
         switch (rsacommunicator.client.ClientEvents.valueOf(evt.getPropertyName())) {
-            case USER_UPDATE:
-                updateUsers((Map<String, User>) evt.getNewValue());
+            case ROSTER_CHANGE:
+                updateUsers((RosterChange) evt.getNewValue());
                 break;
             case NEW_MESSAGE:
                 newMessage((PlainMessage) evt.getNewValue());
@@ -115,32 +183,137 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
     /**
      * Updates the user tree view.
      *
+     * <p>
+     * Only the users in the change are touched: user nodes are inserted in
+     * name order, removed or updated in place, notifying the tree model for
+     * each one. The tree is only rebuilt when the whole list is replaced.
+     * Changes arrive in the order they were made, and are all applied.
+     * </p>
+     *
      * @since 1.0
-     * @param msg
+     * @param change
      */
-    private void updateUsers(Map<String, User> usersMap) {
+    @Override
+    public void updateUsers(RosterChange change) {
 
         DefaultTreeModel model = (DefaultTreeModel) users.getModel();
         DefaultMutableTreeNode root = (DefaultMutableTreeNode) model.getRoot();
 
-        root.removeAllChildren(); //this removes all nodes
-        model.reload(); //this notifies the listeners and changes the GUI
-
-        usersMap.values().stream().forEach((User user) -> {
-            DefaultMutableTreeNode userNode = new DefaultMutableTreeNode(user);
-            model.insertNodeInto(userNode, root, root.getChildCount());
+        if (change.isReset()) {
+            root.removeAllChildren(); //this removes all nodes
+            userNodes.clear();
+            change.getUpdated().stream().forEach((User user) -> {
+                DefaultMutableTreeNode userNode = new DefaultMutableTreeNode(user);
+                keyNodes(user).stream().forEach(userNode::add);
+                root.add(userNode);
+                userNodes.put(user.getName(), userNode);
+            });
+            model.reload(); //this notifies the listeners and changes the GUI
+
+            for (int i = 0; i < users.getRowCount(); i++) {
+                users.expandRow(i);
+            }
+            return;
+        }
 
-            if (user.getKey() != null) {
-                model.insertNodeInto(new DefaultMutableTreeNode("Sym Key"), userNode, 0);
+        change.getRemoved().stream().forEach((String userName) -> {
+            DefaultMutableTreeNode userNode = userNodes.remove(userName);
+            if (userNode != null) {
+                model.removeNodeFromParent(userNode);
             }
-            if (user.getPublicKeyPair() != null) {
-                model.insertNodeInto(new DefaultMutableTreeNode("Pub Key"), userNode, Math.min(1, userNode.getChildCount()));
+        });
+
+        change.getUpdated().stream().forEach((User user) -> {
+            DefaultMutableTreeNode userNode = userNodes.get(user.getName());
+            if (userNode == null) {
+                userNode = new DefaultMutableTreeNode(user);
+                keyNodes(user).stream().forEach(userNode::add);
+                int index = insertionIndex(root, user.getName());
+                root.insert(userNode, index);
+                model.nodesWereInserted(root, new int[]{index});
+                userNodes.put(user.getName(), userNode);
+            } else {
+                userNode.setUserObject(user);
+                List<DefaultMutableTreeNode> children = keyNodes(user);
+                if (!sameLabels(userNode, children)) {
+                    while (userNode.getChildCount() > 0) {
+                        model.removeNodeFromParent((DefaultMutableTreeNode) userNode.getLastChild());
+                    }
+                    for (DefaultMutableTreeNode child : children) {
+                        model.insertNodeInto(child, userNode, userNode.getChildCount());
+                    }
+                }
+                model.nodeChanged(userNode);
             }
+            users.expandPath(new TreePath(userNode.getPath()));
         });
+    }
 
-        for (int i = 0; i < users.getRowCount(); i++) {
-            users.expandRow(i);
+    /**
+     * Creates the key nodes shown under a user.
+     *
+     * @since 1.1
+     * @param user
+     * @return "Sym Key" and "Pub Key" nodes, for the keys known.
+     */
+    private static List<DefaultMutableTreeNode> keyNodes(User user) {
+        DefaultMutableTreeNode[] nodes = new DefaultMutableTreeNode[2];
+        int count = 0;
+        if (user.getKey() != null) {
+            nodes[count++] = new DefaultMutableTreeNode("Sym Key");
+        }
+        if (user.getPublicKeyPair() != null) {
+            nodes[count++] = new DefaultMutableTreeNode("Pub Key");
+        }
+        return Arrays.asList(nodes).subList(0, count);
+    }
+
+    /**
+     * Verify if a user node already shows some key nodes.
+     *
+     * @since 1.1
+     * @param userNode
+     * @param children Key nodes.
+     * @return
+     * <ul>
+     * <li>true: if the children have the same labels;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    private static boolean sameLabels(DefaultMutableTreeNode userNode, List<DefaultMutableTreeNode> children) {
+        if (userNode.getChildCount() != children.size()) {
+            return false;
+        }
+        for (int i = 0; i < children.size(); i++) {
+            Object label = ((DefaultMutableTreeNode) userNode.getChildAt(i)).getUserObject();
+            if (!label.equals(children.get(i).getUserObject())) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Finds where a user goes among the user nodes, kept in name order.
+     *
+     * @since 1.1
+     * @param root
+     * @param userName
+     * @return Child index.
+     */
+    private static int insertionIndex(DefaultMutableTreeNode root, String userName) {
+        int low = 0;
+        int high = root.getChildCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            User user = (User) ((DefaultMutableTreeNode) root.getChildAt(middle)).getUserObject();
+            if (user.getName().compareTo(userName) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
     /**
@@ -150,7 +323,106 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
      * @param message
      */
     public void newMessage(PlainMessage message) {
-        incomingTextArea.append(message + "\n");
+        newMessages(Collections.singletonList(message));
+    }
+
+    /**
+     * Writes new messages on the received messages area, in one update.
+     *
+     * <p>
+     * Each line of a message is a row of the transcript; the view follows
+     * the last row.
+     * </p>
+     *
+     * @since 1.1
+     * @param messages
+     */
+    @Override
+    public void newMessages(List<PlainMessage> messages) {
+        List<String> lines = new ArrayList<>();
+        messages.stream().forEach((PlainMessage message) -> lines.addAll(Arrays.asList(message.toString().split("\n", -1))));
+        transcript.addAll(lines);
+        incomingList.ensureIndexIsVisible(transcript.getSize() - 1);
+    }
+
+    /**
+     * Adds the history search box under the message areas.
+     *
+     * @since 1.1
+     */
+    private void installSearch() {
+        searchField.setBorder(BorderFactory.createTitledBorder("Search history"));
+        searchField.setToolTipText("Words to find in the message history; press Enter.");
+        searchField.addActionListener((event) -> search(searchField.getText()));
+
+        GridBagConstraints constraints = new GridBagConstraints();
+        constraints.gridx = 0;
+        constraints.gridy = 6;
+        constraints.gridwidth = 3;
+        constraints.fill = GridBagConstraints.HORIZONTAL;
+        constraints.insets = new Insets(6, 0, 0, 0);
+        mainPanel.add(searchField, constraints);
+    }
+
+    /**
+     * Searches the message history, off the event dispatch thread, and shows
+     * the results.
+     *
+     * @since 1.1
+     * @param query
+     */
+    private void search(String query) {
+        MessageHistory history = client.getHistory();
+        if (history == null || query.trim().isEmpty()) {
+            return;
+        }
+
+        searchField.setEnabled(false);
+        new SwingWorker<List<HistoryRecord>, Void>() {
+
+            private long elapsed;
+
+            @Override
+            protected List<HistoryRecord> doInBackground() {
+                long start = System.nanoTime();
+                List<HistoryRecord> results = history.search(query, SEARCH_RESULTS);
+                elapsed = System.nanoTime() - start;
+                return results;
+            }
+
+            @Override
+            protected void done() {
+                searchField.setEnabled(true);
+                try {
+                    showResults(query, get(), elapsed);
+                } catch (InterruptedException | ExecutionException ex) {
+                    Logger.getLogger(ClientGUI.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Shows history search results.
+     *
+     * @since 1.1
+     * @param query
+     * @param results Messages found, most recent first.
+     * @param elapsed Search time, in nanoseconds.
+     */
+    private void showResults(String query, List<HistoryRecord> results, long elapsed) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        String[] lines = new String[results.size()];
+        for (int i = 0; i < lines.length; i++) {
+            HistoryRecord record = results.get(i);
+            lines[i] = format.format(new Date(record.getTimestamp())) + "  " + record;
+        }
+
+        JScrollPane pane = new JScrollPane(new JList<>(lines));
+        pane.setPreferredSize(new java.awt.Dimension(600, 300));
+        JOptionPane.showMessageDialog(this, pane,
+                results.size() + " results for \"" + query + "\" (" + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms)",
+                JOptionPane.INFORMATION_MESSAGE);
     }
 
     /**
@@ -201,6 +473,7 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
         DefaultMutableTreeNode root = (DefaultMutableTreeNode) model.getRoot();
 
         root.removeAllChildren(); //this removes all nodes
+        userNodes.clear();
         model.reload(); //this notifies the listeners and changes the GUI
     }
 
@@ -223,7 +496,7 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
         loginButton = new javax.swing.JButton();
         mainPanel = new javax.swing.JPanel();
         incomingPane = new javax.swing.JScrollPane();
-        incomingTextArea = new javax.swing.JTextArea();
+        incomingList = new javax.swing.JList<>(transcript);
         jSeparator1 = new javax.swing.JSeparator();
         outcomingPane = new javax.swing.JScrollPane();
         outcomingTextArea = new javax.swing.JTextArea();
@@ -311,12 +584,8 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
 
         incomingPane.setPreferredSize(new java.awt.Dimension(250, 300));
 
-        incomingTextArea.setEditable(false);
-        incomingTextArea.setColumns(20);
-        incomingTextArea.setRows(5);
-        incomingTextArea.setText("To send a message, click on the user you want to communicate with over the list on the right - loaded after logging in. \nDocumentation about how the software works and the steps taken is available as Javadoc for the RSAClient (rsacommunicator.client.RSAClient).");
-        incomingTextArea.setPreferredSize(new java.awt.Dimension(232, 300));
-        incomingPane.setViewportView(incomingTextArea);
+        incomingList.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
+        incomingPane.setViewportView(incomingList);
 
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
@@ -375,19 +644,15 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
     }// </editor-fold>//GEN-END:initComponents
 
     private void sendButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_sendButtonActionPerformed
-        try {
-            if (destination == client.BROADCAST) {
-                client.sendPlainMessage(destination.getName(), outcomingTextArea.getText());
-            } else {
-                client.sendSYMMessage(destination.getName(), outcomingTextArea.getText());
+        client.sendAsync(destination.getName(), outcomingTextArea.getText()).whenComplete((Void sent, Throwable ex) -> {
+            if (ex instanceof MissingRecipientsException) {
+                java.awt.EventQueue.invokeLater(() -> transcript.addAll(Collections.singletonList(ex.getMessage())));
+            } else if (ex != null) {
+                Logger.getLogger(ClientGUI.class.getName()).log(Level.SEVERE, null, ex);
             }
-            outcomingTextArea.setText("");
-            outcomingPane.requestFocus();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
+        });
+        outcomingTextArea.setText("");
+        outcomingPane.requestFocus();
     }//GEN-LAST:event_sendButtonActionPerformed
 
     private void loginButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_loginButtonActionPerformed
@@ -423,12 +688,13 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
         if (node == (DefaultMutableTreeNode) users.getModel().getRoot()) {
             sendButton.setEnabled(true);
             sendButton.setText("Broadcast");
-            sendButton.setToolTipText("Broadcast a plain text message.");
+            sendButton.setToolTipText("Broadcast an encrypted message.");
             destination = client.BROADCAST;
 
         } else {
             sendButton.setEnabled(true);
             destination = (User) node.getUserObject();
+            client.prioritizeKey(destination);
             sendButton.setText(destination.getName());
             sendButton.setToolTipText("Send message to: " + destination.getName());
         }
@@ -442,6 +708,7 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
         } catch (Exception ex) {
             Logger.getLogger(ClientGUI.class.getName()).log(Level.SEVERE, null, ex);
         }
+        transcript.close();
     }//GEN-LAST:event_formWindowClosing
 
     /**
@@ -487,7 +754,7 @@ public class ClientGUI extends javax.swing.JFrame implements PropertyChangeListe
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JScrollPane incomingPane;
-    private javax.swing.JTextArea incomingTextArea;
+    private javax.swing.JList<String> incomingList;
     private javax.swing.JPanel jPanel1;
     private javax.swing.JScrollPane jScrollPane1;
     private javax.swing.JSeparator jSeparator1;
@@ -0,0 +1,245 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import rsacommunicator.SerialExecutor;
+
+/**
+ * Runtime shared by many RSA clients in the same process.
+ *
+ * <p>
+ * A standalone client has its own threads for everything: message
+ * notifications, key establishment, encryption of outgoing messages and
+ * reconnection; and generates its key pair at login. Clients created by a
+ * host share, instead:
+ * </p>
+ *
+ * <ul>
+ * <li>An event loop: a pool that processes the incoming messages of every
+ * session, in order for each one;</li>
+ * <li>The key establishment workers;</li>
+ * <li>The encryption workers of the asynchronous sends;</li>
+ * <li>A timer, for reconnection attempts;</li>
+ * <li>A pool of key pairs generated ahead of time, by a thread of its own
+ * at low priority, so that generations do not hold up sends.</li>
+ * </ul>
+ *
+ * <p>
+ * Each session keeps only one thread, blocked reading its socket: messages
+ * are Java serialized objects, which can not be read without blocking.
+ * Reader threads are created with a small stack.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class ClientHost implements AutoCloseable {
+
+    /**
+     * Number of key pairs kept ready, of each cipher and size.
+     *
+     * @since 1.1
+     */
+    private static final int KEY_PAIRS_READY = 8;
+
+    /**
+     * Event loop workers.
+     *
+     * @since 1.1
+     */
+    private final ThreadPoolExecutor eventLoop;
+
+    /**
+     * Encryption workers of the asynchronous sends.
+     *
+     * @since 1.1
+     */
+    private final ThreadPoolExecutor cryptoWorkers;
+
+    /**
+     * Key establishment workers.
+     *
+     * @since 1.1
+     */
+    private final ThreadPoolExecutor keyExchangeWorkers;
+
+    /**
+     * Timer for reconnection attempts.
+     *
+     * @since 1.1
+     */
+    private final ScheduledThreadPoolExecutor timer;
+
+    /**
+     * Background generator of the key pair pool.
+     *
+     * @since 1.1
+     */
+    private final ThreadPoolExecutor keyGenerator;
+
+    /**
+     * Key pairs generated ahead of time.
+     *
+     * @since 1.1
+     */
+    private final KeyPairPool keyPairs;
+
+    /**
+     * Creates a host with one thread per processor for each pool.
+     *
+     * @since 1.1
+     */
+    public ClientHost() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a host.
+     *
+     * @since 1.1
+     * @param threads Threads of each pool: event loop, encryption and key
+     * establishment.
+     */
+    public ClientHost(int threads) {
+        eventLoop = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), daemons("event-loop"));
+        eventLoop.allowCoreThreadTimeOut(true);
+        cryptoWorkers = Sender.newWorkers(threads);
+        keyExchangeWorkers = KeyExchanger.newWorkers(threads);
+        timer = new ScheduledThreadPoolExecutor(1, daemons("reconnector"));
+        keyGenerator = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), daemons("key-generator", Thread.MIN_PRIORITY));
+        keyGenerator.allowCoreThreadTimeOut(true);
+        keyPairs = new KeyPairPool(keyGenerator, KEY_PAIRS_READY);
+    }
+
+    /**
+     * Creates a client on this host.
+     *
+     * @since 1.1
+     * @param face Listener of the client events.
+     * @return New client.
+     * @throws IOException
+     */
+    public RSAClient newClient(PropertyChangeListener face) throws IOException {
+        return new RSAClient(face, this);
+    }
+
+    /**
+     * Returns the key pairs generated ahead of time.
+     *
+     * <p>
+     * Key pairs can be prepared before the first logins, with
+     * {@link KeyPairPool#prepare}.
+     * </p>
+     *
+     * @since 1.1
+     * @return Key pair pool.
+     */
+    public KeyPairPool getKeyPairs() {
+        return keyPairs;
+    }
+
+    /**
+     * Creates the event loop of a session: processes its tasks in order, on
+     * the shared workers.
+     *
+     * @since 1.1
+     * @return Serial executor.
+     */
+    Executor newEventLoop() {
+        return new SerialExecutor(eventLoop);
+    }
+
+    /**
+     * Returns the encryption workers of the asynchronous sends.
+     *
+     * @since 1.1
+     * @return Workers.
+     */
+    ThreadPoolExecutor getCryptoWorkers() {
+        return cryptoWorkers;
+    }
+
+    /**
+     * Returns the key establishment workers.
+     *
+     * @since 1.1
+     * @return Workers.
+     */
+    ThreadPoolExecutor getKeyExchangeWorkers() {
+        return keyExchangeWorkers;
+    }
+
+    /**
+     * Returns the timer for reconnection attempts.
+     *
+     * @since 1.1
+     * @return Timer.
+     */
+    ScheduledExecutorService getTimer() {
+        return timer;
+    }
+
+    /**
+     * Stops the shared threads.
+     *
+     * <p>
+     * Clients should be logged out first.
+     * </p>
+     *
+     * @since 1.1
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        keyGenerator.shutdownNow();
+        keyExchangeWorkers.shutdownNow();
+        cryptoWorkers.shutdown();
+        eventLoop.shutdown();
+    }
+
+    private static ThreadFactory daemons(String name) {
+        return daemons(name, Thread.NORM_PRIORITY);
+    }
+
+    private static ThreadFactory daemons(String name, int priority) {
+        return (Runnable task) -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsacommunicator.messages.Destination;
+import rsacommunicator.messages.PlainMessage;
+import rsacommunicator.server.RSAServer;
+
+/**
+ * Headless RSA client, for scripts and throughput measurements.
+ *
+ * <p>
+ * Messages to send are read one per line, from the standard input or a file:
+ * </p>
+ * <pre>
+ * destination TAB text
+ * text                    (to the default destination, see --to)
+ * </pre>
+ *
+ * <p>
+ * Messages received are written to the standard output, one record per line:
+ * </p>
+ * <pre>
+ * milliseconds TAB source TAB destination TAB text
+ * </pre>
+ *
+ * <p>
+ * In both directions, tabs, line breaks and backslashes inside fields are
+ * escaped as \t, \n, \r and \\. Use {@link Destination#BROADCAST} as
+ * destination to send to all users.
+ * </p>
+ *
+ * <h3>Throughput:</h3>
+ * <ul>
+ * <li>Consecutive lines to the same user are sent as one batch, of up to
+ * --batch messages, while more input is available;</li>
+ * <li>Batches are encrypted and written on worker threads, while the next
+ * lines are read; up to --window batches are in flight;</li>
+ * <li>Received messages are written in blocks, with one flush per block.</li>
+ * </ul>
+ *
+ * <h3>Options:</h3>
+ * <pre>
+ * --user NAME      user name (required)
+ * --to NAME        default destination
+ * --in FILE        input file; standard input if absent or "-"
+ * --batch N        messages per batch (256)
+ * --window N       batches in flight (64)
+ * --linger MS      time to keep receiving after the input ends (0);
+ *                  negative, until the server logs the user out
+ * --suites A,B     cipher suites offered, in preference order
+ * --stats          print the throughput to the standard error at the end
+ * </pre>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAClient#sendAsync(String, List)
+ */
+public class CommandLineClient implements PropertyChangeListener {
+
+    /**
+     * Default number of messages per batch.
+     *
+     * @since 1.1
+     */
+    public static final int BATCH_SIZE = 256;
+
+    /**
+     * Default number of batches in flight.
+     *
+     * @since 1.1
+     */
+    public static final int WINDOW = 64;
+
+    /**
+     * Time to wait for a destination to appear on the user list.
+     *
+     * @since 1.1
+     */
+    private static final long USER_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Marks the end of the received messages.
+     *
+     * @since 1.1
+     */
+    private static final PlainMessage END = new PlainMessage("", "", "");
+
+    private final RSAClient client;
+
+    /**
+     * Output of the received messages.
+     *
+     * @since 1.1
+     */
+    private final Writer output;
+
+    /**
+     * Received messages, waiting to be written.
+     *
+     * @since 1.1
+     */
+    private final BlockingQueue<PlainMessage> received = new LinkedBlockingQueue<>();
+
+    /**
+     * Writes the received messages.
+     *
+     * @since 1.1
+     */
+    private final Thread printer;
+
+    /**
+     * Batches in flight.
+     *
+     * @since 1.1
+     */
+    private final Semaphore window;
+
+    /**
+     * Maximum number of batches in flight.
+     *
+     * @since 1.1
+     */
+    private final int windowSize;
+
+    /**
+     * Notified on changes of the user list, and on logout.
+     *
+     * @since 1.1
+     */
+    private final Object monitor = new Object();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+
+    private volatile boolean loggedOut;
+
+    /**
+     * Creates a command line client.
+     *
+     * @since 1.1
+     * @param output Output of the received messages.
+     * @param windowSize Maximum number of batches in flight.
+     * @throws IOException
+     */
+    public CommandLineClient(Writer output, int windowSize) throws IOException {
+        this.output = output;
+        this.windowSize = windowSize;
+        this.window = new Semaphore(windowSize);
+        this.client = new RSAClient(this);
+        this.printer = new Thread(this::print, "printer");
+        printer.setDaemon(true);
+        printer.start();
+    }
+
+    /**
+     * Returns the RSA client.
+     *
+     * @since 1.1
+     * @return Client.
+     */
+    public RSAClient getClient() {
+        return client;
+    }
+
+    /**
+     * Receives the client events.
+     *
+     * @since 1.1
+     * @param evt
+     */
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        switch (ClientEvents.valueOf(evt.getPropertyName())) {
+            case NEW_MESSAGE:
+                PlainMessage msg = (PlainMessage) evt.getNewValue();
+                if (!msg.getSource().equals(client.getName())) {
+                    received.add(msg);
+                }
+                break;
+            case ROSTER_CHANGE:
+                synchronized (monitor) {
+                    monitor.notifyAll();
+                }
+                break;
+            case CONNECTION_LOST:
+                Logger.getLogger(CommandLineClient.class.getName()).log(Level.WARNING, "Connection lost, reconnecting.", (Throwable) evt.getNewValue());
+                break;
+            case RECONNECTED:
+                Logger.getLogger(CommandLineClient.class.getName()).log(Level.INFO, "Reconnected after {0} attempts.", evt.getNewValue());
+                break;
+            case LOGOUT:
+                synchronized (monitor) {
+                    loggedOut = true;
+                    monitor.notifyAll();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Sends the messages read from an input, until its end.
+     *
+     * <p>
+     * Returns when all messages were handed to the socket, or failed.
+     * </p>
+     *
+     * @since 1.1
+     * @param input One message per line.
+     * @param destination Default destination; null, if every line has one.
+     * @param batchSize Maximum number of messages per batch.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void send(BufferedReader input, String destination, int batchSize) throws IOException, InterruptedException {
+        List<String> batch = new ArrayList<>(batchSize);
+        String batchDestination = null;
+        String line;
+
+        while ((line = input.readLine()) != null) {
+            String lineDestination;
+            String text;
+            int tab = line.indexOf('\t');
+            if (tab >= 0) {
+                lineDestination = line.substring(0, tab);
+                text = unescape(line.substring(tab + 1));
+            } else if (destination != null) {
+                lineDestination = destination;
+                text = unescape(line);
+            } else {
+                Logger.getLogger(CommandLineClient.class.getName()).log(Level.WARNING, "No destination: {0}", line);
+                failed.incrementAndGet();
+                continue;
+            }
+
+            if (!lineDestination.equals(batchDestination) || batch.size() >= batchSize) {
+                flush(batchDestination, batch);
+                batchDestination = lineDestination;
+            }
+            batch.add(text);
+
+            if (!input.ready()) {
+                flush(batchDestination, batch);
+            }
+        }
+        flush(batchDestination, batch);
+
+        window.acquire(windowSize);
+        window.release(windowSize);
+    }
+
+    /**
+     * Sends a batch, once the window allows it.
+     *
+     * @since 1.1
+     * @param destination
+     * @param batch Cleared after being handed to the client.
+     * @throws InterruptedException
+     */
+    private void flush(String destination, List<String> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int count = batch.size();
+        if (!awaitUser(destination)) {
+            Logger.getLogger(CommandLineClient.class.getName()).log(Level.WARNING, "Unknown user: {0}", destination);
+            failed.addAndGet(count);
+            batch.clear();
+            return;
+        }
+
+        window.acquire();
+        client.sendAsync(destination, batch).whenComplete((Void done, Throwable ex) -> {
+            if (ex == null) {
+                sent.addAndGet(count);
+            } else {
+                failed.addAndGet(count);
+                Logger.getLogger(CommandLineClient.class.getName()).log(Level.WARNING, null, ex);
+            }
+            window.release();
+        });
+        batch.clear();
+    }
+
+    /**
+     * Waits for a user to appear on the user list.
+     *
+     * @since 1.1
+     * @param userName
+     * @return
+     * <ul>
+     * <li>true: if the user is on the list, or is the broadcast
+     * destination;</li>
+     * <li>false: if the user did not appear in time.</li>
+     * </ul>
+     * @throws InterruptedException
+     */
+    private boolean awaitUser(String userName) throws InterruptedException {
+        if (Destination.BROADCAST.name().equals(userName)) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + USER_TIMEOUT_MILLIS;
+        synchronized (monitor) {
+            while (client.getRoster().get(userName) == null) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0 || loggedOut) {
+                    return false;
+                }
+                monitor.wait(left);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the server logs the user out.
+     *
+     * @since 1.1
+     * @param millis Maximum time to wait; negative, for no limit.
+     * @throws InterruptedException
+     */
+    public void linger(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        synchronized (monitor) {
+            while (!loggedOut) {
+                if (millis < 0) {
+                    monitor.wait();
+                } else {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        return;
+                    }
+                    monitor.wait(left);
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs out, and writes the messages still waiting.
+     *
+     * @since 1.1
+     * @throws Exception
+     */
+    public void close() throws Exception {
+        if (!loggedOut) {
+            client.logout(true);
+        }
+        received.add(END);
+        printer.join();
+    }
+
+    /**
+     * Writes the received messages, one block at a time.
+     *
+     * @since 1.1
+     */
+    private void print() {
+        List<PlainMessage> block = new ArrayList<>();
+        try {
+            while (true) {
+                block.add(received.take());
+                received.drainTo(block);
+                for (PlainMessage msg : block) {
+                    if (msg == END) {
+                        output.flush();
+                        return;
+                    }
+                    output.write(record(msg));
+                    receivedCount.incrementAndGet();
+                }
+                output.flush();
+                block.clear();
+            }
+        } catch (IOException | InterruptedException ex) {
+            Logger.getLogger(CommandLineClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Formats a received message as a record.
+     *
+     * @since 1.1
+     * @param msg
+     * @return Line, with its line break.
+     */
+    static String record(PlainMessage msg) {
+        return System.currentTimeMillis()
+                + "\t" + escape(msg.getSource())
+                + "\t" + escape(msg.getDestination())
+                + "\t" + escape(msg.getMessage()) + "\n";
+    }
+
+    /**
+     * Escapes tabs, line breaks and backslashes.
+     *
+     * @since 1.1
+     * @param field
+     * @return Escaped field.
+     */
+    static String escape(String field) {
+        StringBuilder escaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Reverts {@link #escape(String)}.
+     *
+     * @since 1.1
+     * @param field
+     * @return Field.
+     */
+    static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                switch (next) {
+                    case 't':
+                        unescaped.append('\t');
+                        break;
+                    case 'n':
+                        unescaped.append('\n');
+                        break;
+                    case 'r':
+                        unescaped.append('\r');
+                        break;
+                    default:
+                        unescaped.append(next);
+                }
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * Prints the usage and exits.
+     *
+     * @since 1.1
+     */
+    private static void usage() {
+        System.err.println("Usage: CommandLineClient --user NAME [--to NAME] [--in FILE] [--batch N] [--window N]"
+                + " [--linger MS] [--suites A,B] [--stats]");
+        System.exit(2);
+    }
+
+    /**
+     * Runs the command line client.
+     *
+     * @since 1.1
+     * @param args Options, see the class description.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String user = null;
+        String to = null;
+        String in = "-";
+        String suites = null;
+        int batch = BATCH_SIZE;
+        int window = WINDOW;
+        long linger = 0;
+        boolean stats = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--user":
+                        user = args[++i];
+                        break;
+                    case "--to":
+                        to = args[++i];
+                        break;
+                    case "--in":
+                        in = args[++i];
+                        break;
+                    case "--batch":
+                        batch = Integer.parseInt(args[++i]);
+                        break;
+                    case "--window":
+                        window = Integer.parseInt(args[++i]);
+                        break;
+                    case "--linger":
+                        linger = Long.parseLong(args[++i]);
+                        break;
+                    case "--suites":
+                        suites = args[++i];
+                        break;
+                    case "--stats":
+                        stats = true;
+                        break;
+                    default:
+                        usage();
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            usage();
+        }
+        if (user == null || batch <= 0 || window <= 0) {
+            usage();
+        }
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, RSAServer.CHARSET), 1 << 16);
+        CommandLineClient cli = new CommandLineClient(output, window);
+        if (suites != null) {
+            cli.getClient().setCipherSuites(Arrays.asList(suites.split(",")));
+        }
+        cli.getClient().login(user);
+
+        long start = System.nanoTime();
+        try (BufferedReader input = "-".equals(in)
+                ? new BufferedReader(new InputStreamReader(System.in, RSAServer.CHARSET), 1 << 16)
+                : Files.newBufferedReader(Paths.get(in), RSAServer.CHARSET)) {
+            cli.send(input, to, batch);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        cli.linger(linger);
+        cli.close();
+
+        if (stats) {
+            long millis = Math.max(1, elapsed / 1_000_000);
+            System.err.println("sent " + cli.sent.get() + " in " + millis + " ms ("
+                    + cli.sent.get() * 1000 / millis + " msg/s), failed " + cli.failed.get()
+                    + ", received " + cli.receivedCount.get());
+        }
+        System.exit(cli.failed.get() == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background session key establishment.
+ *
+ * <p>
+ * As soon as the client learns a user's keys, this class establishes the
+ * session key with that user on a worker thread; so the first message sent to
+ * them costs only the symmetric encryption.
+ * </p>
+ *
+ * <h3>Limits:</h3>
+ * <ul>
+ * <li>At most <i>threads</i> keys are established concurrently;</li>
+ * <li>At most <i>peers</i> users are scheduled per session, users selected on
+ * the interface are always scheduled;</li>
+ * <li>Selected users go ahead of the queue.</li>
+ * </ul>
+ *
+ * <p>
+ * Key exchangers of many clients may share their workers, see
+ * {@link #newWorkers(int)}; the limit of threads is then for all of them.
+ * </p>
+ *
+ * <p>
+ * Keys sent with RSA are only generated by the user with the lowest name of
+ * the pair: the other user requests them when needed, and the requests are
+ * answered here too. Agreed keys are the same on both sides and have no such
+ * restriction.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAClient#establishKey(User, boolean)
+ */
+public class KeyExchanger implements AutoCloseable {
+
+    /**
+     * Client on whose behalf the keys are established.
+     *
+     * @since 1.1
+     */
+    private final RSAClient client;
+
+    /**
+     * Workers, fed by a priority queue.
+     *
+     * @since 1.1
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * If the workers belong to this key exchanger, rather than being shared.
+     *
+     * @since 1.1
+     */
+    private final boolean ownWorkers;
+
+    /**
+     * Maximum number of users scheduled per session.
+     *
+     * @since 1.1
+     */
+    private final int maxPeers;
+
+    /**
+     * Users already scheduled on this session.
+     *
+     * @since 1.1
+     */
+    private final Set<String> scheduled = new HashSet<>();
+
+    /**
+     * Order of arrival, for tasks with the same priority.
+     *
+     * @since 1.1
+     */
+    private static final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates a key exchanger.
+     *
+     * @since 1.1
+     * @param client
+     * @param threads Maximum number of concurrent key establishments.
+     * @param maxPeers Maximum number of users scheduled per session.
+     */
+    public KeyExchanger(RSAClient client, int threads, int maxPeers) {
+        this.client = client;
+        this.maxPeers = maxPeers;
+        this.workers = newWorkers(threads);
+        this.ownWorkers = true;
+    }
+
+    /**
+     * Creates a key exchanger on shared workers.
+     *
+     * @since 1.1
+     * @param client
+     * @param workers Workers made by {@link #newWorkers(int)}.
+     * @param maxPeers Maximum number of users scheduled per session.
+     */
+    public KeyExchanger(RSAClient client, ThreadPoolExecutor workers, int maxPeers) {
+        this.client = client;
+        this.maxPeers = maxPeers;
+        this.workers = workers;
+        this.ownWorkers = false;
+    }
+
+    /**
+     * Creates workers for key exchangers.
+     *
+     * @since 1.1
+     * @param threads Maximum number of concurrent key establishments.
+     * @return Workers, fed by a priority queue.
+     */
+    public static ThreadPoolExecutor newWorkers(int threads) {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), (Runnable task) -> {
+            Thread worker = new Thread(task, "key-exchanger");
+            worker.setDaemon(true);
+            return worker;
+        });
+        workers.allowCoreThreadTimeOut(true);
+        return workers;
+    }
+
+    /**
+     * Schedules the key establishment with a user, if the budget allows.
+     *
+     * @since 1.1
+     * @param user
+     */
+    public void schedule(User user) {
+        synchronized (scheduled) {
+            if (scheduled.size() >= maxPeers || !scheduled.add(user.getName())) {
+                return;
+            }
+        }
+        workers.execute(new Exchange(user, false, false));
+    }
+
+    /**
+     * Schedules the key establishment with a user ahead of all others.
+     *
+     * <p>
+     * Used for users selected on the interface; the budget does not apply.
+     * Keys sent with RSA are requested from the user, if this client does not
+     * generate them.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     */
+    public void prioritize(User user) {
+        synchronized (scheduled) {
+            scheduled.add(user.getName());
+        }
+        workers.execute(new Exchange(user, true, false));
+    }
+
+    /**
+     * Answers a session key request from a user, ahead of all others.
+     *
+     * @since 1.1
+     * @param user Requester.
+     * @see RSAClient#answerKey(User)
+     */
+    public void answer(User user) {
+        workers.execute(new Exchange(user, true, true));
+    }
+
+    /**
+     * Forgets a user, after they logged out.
+     *
+     * @since 1.1
+     * @param userName
+     */
+    public void forget(String userName) {
+        synchronized (scheduled) {
+            scheduled.remove(userName);
+        }
+    }
+
+    /**
+     * Drops all pending tasks and restores the budget, for a new session.
+     *
+     * @since 1.1
+     */
+    public void reset() {
+        workers.getQueue().removeIf((Runnable task) -> task instanceof Exchange && ((Exchange) task).owner() == this);
+        synchronized (scheduled) {
+            scheduled.clear();
+        }
+    }
+
+    /**
+     * Stops the workers, if not shared.
+     *
+     * @since 1.1
+     */
+    @Override
+    public void close() {
+        if (ownWorkers) {
+            workers.shutdownNow();
+        } else {
+            reset();
+        }
+    }
+
+    /**
+     * Key establishment task.
+     *
+     * @since 1.1
+     */
+    private class Exchange implements Runnable, Comparable<Exchange> {
+
+        private final User user;
+        private final boolean priority;
+        private final boolean request;
+        private final long order = sequence.getAndIncrement();
+
+        Exchange(User user, boolean priority, boolean request) {
+            this.user = user;
+            this.priority = priority;
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (request) {
+                    client.answerKey(user);
+                } else {
+                    client.establishKey(user, priority || client.initiates(user));
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(KeyExchanger.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+
+        KeyExchanger owner() {
+            return KeyExchanger.this;
+        }
+
+        @Override
+        public int compareTo(Exchange o) {
+            if (priority != o.priority) {
+                return priority ? -1 : 1;
+            }
+            return Long.compare(order, o.order);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import rsacommunicator.crypto.suite.AsymmetricCipher;
+
+/**
+ * Pool of key pairs generated ahead of time.
+ *
+ * <p>
+ * Key generation is the slowest step of a login. The pool keeps a few key
+ * pairs of each cipher and size ready, and generates new ones in background
+ * as they are taken; a login only waits for a generation if the pool is empty.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see ClientHost
+ */
+public class KeyPairPool {
+
+    /**
+     * Executor for the background generations.
+     *
+     * @since 1.1
+     */
+    private final Executor generators;
+
+    /**
+     * Number of key pairs kept ready, of each cipher and size.
+     *
+     * @since 1.1
+     */
+    private final int size;
+
+    /**
+     * Key pairs ready, by cipher and size.
+     *
+     * @since 1.1
+     */
+    private final Map<String, BlockingQueue<AsymmetricCipher.KeyPair>> ready = new ConcurrentHashMap<>();
+
+    /**
+     * Generations in progress, by cipher and size.
+     *
+     * @since 1.1
+     */
+    private final Map<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a pool.
+     *
+     * @since 1.1
+     * @param generators Executor for the background generations.
+     * @param size Number of key pairs kept ready, of each cipher and size.
+     */
+    public KeyPairPool(Executor generators, int size) {
+        this.generators = generators;
+        this.size = size;
+    }
+
+    /**
+     * Takes a key pair, generating one if none is ready.
+     *
+     * <p>
+     * Each key pair is only handed out once.
+     * </p>
+     *
+     * @since 1.1
+     * @param cipher
+     * @param bits Modulus size, in bits.
+     * @return New key pair.
+     */
+    public AsymmetricCipher.KeyPair take(AsymmetricCipher cipher, int bits) {
+        AsymmetricCipher.KeyPair keyPair = queue(cipher, bits).poll();
+        refill(cipher, bits);
+        return (keyPair == null) ? cipher.generate(bits) : keyPair;
+    }
+
+    /**
+     * Starts generating key pairs of a cipher and size, before they are
+     * needed.
+     *
+     * @since 1.1
+     * @param cipher
+     * @param bits Modulus size, in bits.
+     */
+    public void prepare(AsymmetricCipher cipher, int bits) {
+        refill(cipher, bits);
+    }
+
+    /**
+     * Returns the number of key pairs ready, of a cipher and size.
+     *
+     * @since 1.1
+     * @param cipher
+     * @param bits Modulus size, in bits.
+     * @return Key pairs ready.
+     */
+    public int getReady(AsymmetricCipher cipher, int bits) {
+        return queue(cipher, bits).size();
+    }
+
+    /**
+     * Schedules generations until the key pairs ready, and in progress, reach
+     * the pool size.
+     *
+     * @since 1.1
+     * @param cipher
+     * @param bits
+     */
+    private void refill(AsymmetricCipher cipher, int bits) {
+        BlockingQueue<AsymmetricCipher.KeyPair> queue = queue(cipher, bits);
+        AtomicInteger generating = pending.computeIfAbsent(key(cipher, bits), (String key) -> new AtomicInteger());
+
+        while (true) {
+            int current = generating.get();
+            if (queue.size() + current >= size) {
+                return;
+            }
+            if (generating.compareAndSet(current, current + 1)) {
+                try {
+                    generators.execute(() -> {
+                        try {
+                            queue.add(cipher.generate(bits));
+                        } finally {
+                            generating.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    generating.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private BlockingQueue<AsymmetricCipher.KeyPair> queue(AsymmetricCipher cipher, int bits) {
+        return ready.computeIfAbsent(key(cipher, bits), (String key) -> new LinkedBlockingQueue<>());
+    }
+
+    private static String key(AsymmetricCipher cipher, int bits) {
+        return cipher.getName() + "/" + bits;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A broadcast that did not reach every user on the roster.
+ *
+ * <p>
+ * Users whose public keys are not known when the envelope is sealed are left
+ * out of it; their keys are requested, to be ready for the next broadcast.
+ * The message was still sent to the other users, unless none was left.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class MissingRecipientsException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Names of the users left out.
+     *
+     * @since 1.1
+     */
+    private final List<String> recipients;
+
+    /**
+     * Whether the message was sent to anyone.
+     *
+     * @since 1.1
+     */
+    private final boolean sent;
+
+    /**
+     * @since 1.1
+     * @param recipients Names of the users left out.
+     * @param sent Whether the message was sent to the other users.
+     */
+    public MissingRecipientsException(List<String> recipients, boolean sent) {
+        super((sent ? "Not delivered to " : "Not sent: no public key known for ") + String.join(", ", recipients) + ".");
+        this.recipients = Collections.unmodifiableList(recipients);
+        this.sent = sent;
+    }
+
+    /**
+     * Names of the users left out.
+     *
+     * @since 1.1
+     * @return
+     */
+    public List<String> getRecipients() {
+        return recipients;
+    }
+
+    /**
+     * Whether the message was sent to the other users.
+     *
+     * @since 1.1
+     * @return
+     */
+    public boolean isSent() {
+        return sent;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import rsacommunicator.messages.PlainMessage;
+
+/**
+ * Messages waiting for the connection to come back.
+ *
+ * <p>
+ * Messages are identified by a number given when they are first sent, in
+ * sending order; they are drained in that order, and a message held again
+ * before being drained is only kept once. The queue is bounded: messages
+ * beyond its capacity are refused.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAClient#sendAsync(PlainMessage)
+ */
+public class OutboundQueue {
+
+    /**
+     * Message waiting to be sent.
+     *
+     * @since 1.1
+     */
+    public static final class Entry {
+
+        private final long id;
+        private final PlainMessage message;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * Creates an entry.
+         *
+         * @since 1.1
+         * @param id Number of the message, in sending order.
+         * @param message
+         */
+        public Entry(long id, PlainMessage message) {
+            this.id = id;
+            this.message = message;
+        }
+
+        /**
+         * Returns the number of the message.
+         *
+         * @since 1.1
+         * @return Id.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Returns the message.
+         *
+         * @since 1.1
+         * @return Message.
+         */
+        public PlainMessage getMessage() {
+            return message;
+        }
+
+        /**
+         * Returns the future given to the sender of the message.
+         *
+         * @since 1.1
+         * @return Completed when the message is finally sent.
+         */
+        public CompletableFuture<Void> getDone() {
+            return done;
+        }
+    }
+
+    /**
+     * Maximum number of messages held.
+     *
+     * @since 1.1
+     */
+    private final int capacity;
+
+    /**
+     * Messages held, by id.
+     *
+     * @since 1.1
+     */
+    private final TreeMap<Long, Entry> entries = new TreeMap<>();
+
+    /**
+     * Creates a queue.
+     *
+     * @since 1.1
+     * @param capacity Maximum number of messages held.
+     */
+    public OutboundQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Holds a message.
+     *
+     * @since 1.1
+     * @param entry
+     * @return
+     * <ul>
+     * <li>true: if the message is held, now or already;</li>
+     * <li>false: if the queue is full.</li>
+     * </ul>
+     */
+    public synchronized boolean hold(Entry entry) {
+        if (entries.containsKey(entry.getId())) {
+            return true;
+        }
+        if (entries.size() >= capacity) {
+            return false;
+        }
+        entries.put(entry.getId(), entry);
+        return true;
+    }
+
+    /**
+     * Removes all messages held.
+     *
+     * @since 1.1
+     * @return Messages, in sending order.
+     */
+    public synchronized List<Entry> drain() {
+        List<Entry> drained = new ArrayList<>(entries.values());
+        entries.clear();
+        return drained;
+    }
+
+    /**
+     * Returns the number of messages held.
+     *
+     * @since 1.1
+     * @return Messages held.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import rsacommunicator.crypto.KeyFingerprint;
+import rsacommunicator.crypto.RSAPublicKey;
+
+/**
+ * Least recently used cache of public keys, by fingerprint.
+ *
+ * <p>
+ * User lists carry fingerprints only; keys found here need not be fetched
+ * from the server. The cache can be stored on disk, to survive restarts.
+ * </p>
+ *
+ * <h3>File format (big endian), one entry after another, most recently used
+ * last:</h3>
+ * <ul>
+ * <li>Fingerprint: {@link KeyFingerprint#SIZE} bytes;</li>
+ * <li>Key: 2 byte length, followed by the encoded key (see
+ * {@link RSAPublicKey#getEncoded()}).</li>
+ * </ul>
+ *
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class PublicKeyCache {
+
+    /**
+     * Default number of keys kept.
+     *
+     * @since 1.1
+     */
+    public static final int CAPACITY = 4096;
+
+    private final Map<KeyFingerprint, RSAPublicKey> keys;
+
+    /**
+     * Creates a cache with the default capacity.
+     *
+     * @since 1.1
+     */
+    public PublicKeyCache() {
+        this(CAPACITY);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @since 1.1
+     * @param capacity Number of keys kept; the least recently used ones are
+     * discarded past it.
+     */
+    public PublicKeyCache(int capacity) {
+        keys = new LinkedHashMap<KeyFingerprint, RSAPublicKey>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<KeyFingerprint, RSAPublicKey> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns a key.
+     *
+     * @since 1.1
+     * @param fingerprint
+     * @return Public key, or null if not cached.
+     */
+    public synchronized RSAPublicKey get(KeyFingerprint fingerprint) {
+        return keys.get(fingerprint);
+    }
+
+    /**
+     * Caches a key.
+     *
+     * @since 1.1
+     * @param publicKey (n,e)
+     */
+    public synchronized void put(RSAPublicKey publicKey) {
+        keys.put(publicKey.getFingerprint(), publicKey);
+    }
+
+    /**
+     * Returns the number of cached keys.
+     *
+     * @since 1.1
+     * @return Number of keys.
+     */
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    /**
+     * Adds the keys stored in a file.
+     *
+     * <p>
+     * Entries whose fingerprint does not match the key, or whose key is not
+     * valid, are skipped.
+     * </p>
+     *
+     * @since 1.1
+     * @param file Cache file; nothing is loaded if it does not exist.
+     * @throws IOException
+     */
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] fingerprint = new byte[KeyFingerprint.SIZE];
+            while (true) {
+                try {
+                    input.readFully(fingerprint);
+                } catch (EOFException ex) {
+                    break;
+                }
+                byte[] encoded = new byte[input.readUnsignedShort()];
+                input.readFully(encoded);
+                RSAPublicKey publicKey;
+                try {
+                    publicKey = RSAPublicKey.decode(encoded);
+                } catch (IllegalArgumentException ex) {
+                    continue;
+                }
+                if (KeyFingerprint.fromBytes(fingerprint).matches(publicKey)) {
+                    synchronized (this) {
+                        keys.put(publicKey.getFingerprint(), publicKey);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the cached keys in a file, replacing it.
+     *
+     * @since 1.1
+     * @param file Cache file.
+     * @throws IOException
+     */
+    public void save(Path file) throws IOException {
+        Map<KeyFingerprint, RSAPublicKey> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(keys);
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, null, null);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                for (Map.Entry<KeyFingerprint, RSAPublicKey> entry : snapshot.entrySet()) {
+                    byte[] encoded = entry.getValue().getEncoded();
+                    output.write(entry.getKey().getBytes());
+                    output.writeShort(encoded.length);
+                    output.write(encoded);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
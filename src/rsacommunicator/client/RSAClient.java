@@ -26,9 +26,6 @@
  */
 package rsacommunicator.client;
 
-import crypto.ciphers.Cipher;
-import crypto.ciphers.asy.rsa.RSA;
-import crypto.ciphers.block.feistel.des.DES;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
@@ -39,23 +36,61 @@ import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.math.BigInteger;
 import java.net.Socket;
-import java.security.NoSuchAlgorithmException;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import rsacommunicator.MessageReader;
+import rsacommunicator.client.history.MessageHistory;
+import rsacommunicator.crypto.IdentityKeyStore;
+import rsacommunicator.crypto.RSAPublicKey;
+import rsacommunicator.crypto.suite.AsymmetricCipher;
+import rsacommunicator.crypto.suite.CipherSuite;
+import rsacommunicator.crypto.suite.CipherSuites;
+import rsacommunicator.crypto.suite.KeyAgreementScheme;
+import rsacommunicator.crypto.suite.MessageAuthenticator;
+import rsacommunicator.crypto.suite.SymmetricCipher;
+import rsacommunicator.messages.AgreementKey;
+import rsacommunicator.messages.Batch;
 import rsacommunicator.messages.Destination;
+import rsacommunicator.messages.Envelope;
 import rsacommunicator.messages.Key;
 import rsacommunicator.messages.Login;
 import rsacommunicator.messages.Logout;
 import rsacommunicator.messages.Message;
 import rsacommunicator.messages.PlainMessage;
 import rsacommunicator.messages.PublicKey;
+import rsacommunicator.messages.PublicKeyRequest;
 import rsacommunicator.messages.RSAMessage;
+import rsacommunicator.messages.RosterDelta;
+import rsacommunicator.messages.SessionKeyRequest;
+import rsacommunicator.messages.Suite;
 import rsacommunicator.messages.SymmetricMessage;
+import rsacommunicator.messages.Ticket;
 import rsacommunicator.messages.Type;
 import rsacommunicator.messages.UserList;
+import rsacommunicator.messages.UserListPage;
+import rsacommunicator.messages.UserListRequest;
 import rsacommunicator.server.RSAServer;
 
 /**
@@ -71,21 +106,44 @@ import rsacommunicator.server.RSAServer;
  *
  * <li>Connect to the server through sockets;</li>
  *
- * <li>Send a login request with the username to be used for communication;</li>
+ * <li>Send a login request with the username to be used for communication,
+ * and the cipher suites supported by the client;</li>
  * <li>Every user has a unique name(username) that is used for message
  * routing;</li>
  * <li>That server will verify and allow the connection or send a LOGOUT
  * message;</li>
+ * <li>The server chooses the cipher suite for the session (see
+ * {@link CipherSuites});</li>
  *
  * <li>Once logged in, the server will send a list of all users and their public
  * keys(if a new user connects, its public key is forwarded to all connect
  * users);</li>
+ * <li>User lists carry only public key fingerprints: keys are taken from a
+ * local cache (see {@link PublicKeyCache}) or, on a miss, requested from the
+ * server when first needed - once a user is selected or sent a message;</li>
  *
  * <li>To send a message, the first user uses the destination's public key to
  * encrypted a new session key for the symmetric cipher - used after this step
  * for all communication between those two parts (for each communication link a
  * symmetric key is generated);</li>
- * <li>Symmetrically encrypted messages will use DES;</li>
+ * <li>Symmetrically encrypted messages will use the symmetric cipher of the
+ * destination's suite - DES, for users that did not negotiate one;</li>
+ * <li>When the suite has a key agreement, users also publish an agreement
+ * public key: session keys with users that did the same are derived locally,
+ * no key is sent;</li>
+ * <li>Session keys are established in background as soon as a user's public
+ * key is known, see {@link KeyExchanger};</li>
+ * <li>When the destination's suite has a message authenticator, symmetrically
+ * encrypted messages carry a tag; many messages to the same user can be sent
+ * as a batch, under a single tag;</li>
+ *
+ * <li>Encrypted broadcasts are sent as envelopes: the message is encrypted
+ * once with a fresh session key, and only that key is encrypted with each
+ * recipient's public key;</li>
+ *
+ * <li>The server also issues a resumption ticket: if the connection is lost,
+ * {@link #resume()} takes the session back within the ticket's validity,
+ * keeping all keys and receiving only the changes in the user list;</li>
  *
  * <li>After their finish, users can send a LOGOUT message and the server will
  * distribute the action to all users connected to it and close the
@@ -123,19 +181,280 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
     /**
      * RSA field for encryption/decryption using RSA algorithm.
      *
+     * <p>
+     * Loaded from the identity directory, if there is one; otherwise generated
+     * on the first login, by the asymmetric cipher of the preferred cipher
+     * suite.
+     * </p>
+     *
      * @since 1.0
-     * @see RSA#RSA(int)
      */
-    private final RSA rsa = new RSA(512);
+    private AsymmetricCipher.KeyPair rsa;
 
     /**
-     * Symmetric Cipher to be used for encryption/decryption operations - with
-     * DES.
+     * Directory with the identity key pairs, one per user name.
      *
-     * @since 1.0
-     * @see DES#DES()
+     * @since 1.1
+     */
+    private Path identityDirectory;
+
+    /**
+     * RSA modulus size, in bits.
+     *
+     * @since 1.1
+     */
+    private static final int RSA_BITS = 512;
+
+    /**
+     * Session key size, in bytes: key material for any symmetric cipher.
+     *
+     * @since 1.1
+     * @see SymmetricCipher#getKeySize()
+     */
+    private static final int SESSION_KEY_SIZE = 16;
+
+    /**
+     * Default size, in bytes, above which RSA_MSG texts are sent as hybrid
+     * messages.
+     *
+     * @since 1.1
+     */
+    public static final int HYBRID_THRESHOLD = 32;
+
+    /**
+     * Size, in bytes, above which RSA_MSG texts are sent as hybrid messages.
+     *
+     * @since 1.1
+     */
+    private int hybridThreshold = HYBRID_THRESHOLD;
+
+    /**
+     * Label for deriving authentication keys from session keys.
+     *
+     * @since 1.1
+     */
+    private static final byte[] AUTHENTICATION_LABEL = "RSA-communicator authentication".getBytes(RSAServer.CHARSET);
+
+    /**
+     * Source for session keys.
+     *
+     * @since 1.1
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Cipher suites offered at login, in preference order.
+     *
+     * @since 1.1
+     */
+    private List<String> cipherSuites = CipherSuites.names();
+
+    /**
+     * Cipher suite chosen by the server for the session.
+     *
+     * @since 1.1
+     */
+    private CipherSuite suite = CipherSuites.get(CipherSuites.LEGACY);
+
+    /**
+     * Key agreement party, if the session's suite has key agreement.
+     *
+     * @since 1.1
+     */
+    private KeyAgreementScheme.Party agreement;
+
+    /**
+     * Maximum number of session keys established concurrently in background.
+     *
+     * @since 1.1
+     */
+    private static final int KEY_EXCHANGE_THREADS = 2;
+
+    /**
+     * Maximum number of users with session keys established in background, per
+     * session.
+     *
+     * @since 1.1
+     */
+    private static final int KEY_EXCHANGE_PEERS = 64;
+
+    /**
+     * Maximum number of messages encrypted and sent concurrently, by the
+     * asynchronous send methods.
+     *
+     * @since 1.1
+     */
+    private static final int SEND_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Ceiling of the first reconnection delay, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private static final long RECONNECT_BASE_MILLIS = 500;
+
+    /**
+     * Maximum ceiling of the reconnection delays, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private static final long RECONNECT_MAX_MILLIS = 30_000;
+
+    /**
+     * Maximum number of messages held while reconnecting.
+     *
+     * @since 1.1
+     */
+    private static final int OUTBOUND_CAPACITY = 1024;
+
+    /**
+     * Public keys known from previous user lists.
+     *
+     * @since 1.1
+     */
+    private final PublicKeyCache keyCache = new PublicKeyCache();
+
+    /**
+     * Users whose public keys were requested, and not received yet.
+     *
+     * <p>
+     * Also the monitor notified when public keys arrive, or users are
+     * replaced in the roster: waiters re-read the roster when woken up.
+     * </p>
+     *
+     * @since 1.1
+     * @see #awaitKey(User, long)
+     */
+    private final Set<String> keyRequests = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Maximum time to wait for a requested public key, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private static final long KEY_REQUEST_TIMEOUT = 5000;
+
+    /**
+     * File where the public key cache is kept, if any.
+     *
+     * @since 1.1
+     */
+    private Path keyCacheFile;
+
+    /**
+     * Directory with the message histories, one per user name.
+     *
+     * @since 1.1
+     */
+    private Path historyDirectory;
+
+    /**
+     * History of the messages sent and received by the current user, if any.
+     *
+     * @since 1.1
+     */
+    private MessageHistory history;
+
+    /**
+     * Resumption ticket of the session, if any.
+     *
+     * @since 1.1
+     */
+    private byte[] ticket;
+
+    /**
+     * When the resumption ticket expires, in milliseconds since the epoch: it
+     * does not while connected.
+     *
+     * @since 1.1
+     */
+    private volatile long ticketExpires;
+
+    /**
+     * How long the resumption ticket is valid after the connection drops, in
+     * milliseconds.
+     *
+     * @since 1.1
+     */
+    private long ticketValidity;
+
+    /**
+     * If a session resumption is waiting for the server's answer.
+     *
+     * @since 1.1
+     */
+    private boolean resuming;
+
+    /**
+     * Background session key establishment.
+     *
+     * @since 1.1
+     */
+    private final KeyExchanger keyExchanger;
+
+    /**
+     * Asynchronous message sending.
+     *
+     * @since 1.1
+     */
+    private final Sender sender;
+
+    /**
+     * Host of the client, if any.
+     *
+     * @since 1.1
+     */
+    private final ClientHost host;
+
+    /**
+     * Event loop of the session on its host; null, for a standalone client.
+     *
+     * @since 1.1
+     */
+    private final Executor eventLoop;
+
+    /**
+     * Messages sent asynchronously while the connection was down.
+     *
+     * @since 1.1
+     */
+    private final OutboundQueue outbound = new OutboundQueue(OUTBOUND_CAPACITY);
+
+    /**
+     * Number of the last message sent asynchronously.
+     *
+     * @since 1.1
+     */
+    private final AtomicLong outboundIds = new AtomicLong();
+
+    /**
+     * Numbers of the messages received, to drop the ones sent again after a
+     * lost connection.
+     *
+     * @since 1.1
+     */
+    private final ReceivedIds receivedIds = new ReceivedIds(OUTBOUND_CAPACITY);
+
+    /**
+     * If the client reconnects when the connection is lost.
+     *
+     * @since 1.1
+     */
+    private volatile boolean autoReconnect = true;
+
+    /**
+     * If the connection was lost and is being restored.
+     *
+     * @since 1.1
+     */
+    private volatile boolean reconnecting;
+
+    /**
+     * If the messages held must be sent once the user list is received.
+     *
+     * @since 1.1
      */
-    private static final Cipher des = new DES();
+    private volatile boolean replayPending;
 
     /**
      * Communication channel.
@@ -173,11 +492,18 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
     private final Integer PORT = 4931;
 
     /**
-     * Map with all known users.
+     * Snapshot of the user list, replaced on every change.
      *
-     * @since 1.0
+     * @since 1.1
+     */
+    private volatile Roster roster = Roster.EMPTY;
+
+    /**
+     * Lock of the changes to the user list; reads need none.
+     *
+     * @since 1.1
      */
-    private final Map<String, User> users = new TreeMap<>();
+    private final Object rosterLock = new Object();
 
     /**
      * User for broadcasts.
@@ -213,6 +539,30 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      * @throws java.io.IOException
      */
     public RSAClient(PropertyChangeListener face) throws IOException {
+        this(face, null);
+    }
+
+    /**
+     * Creates a RSAClient that forwards messages to the specified interface,
+     * sharing the threads and key pairs of a host.
+     *
+     * @since 1.1
+     * @param face
+     * @param host Host of the client; null, for a standalone client.
+     * @throws java.io.IOException
+     * @see ClientHost#newClient(PropertyChangeListener)
+     */
+    public RSAClient(PropertyChangeListener face, ClientHost host) throws IOException {
+        this.host = host;
+        if (host == null) {
+            keyExchanger = new KeyExchanger(this, KEY_EXCHANGE_THREADS, KEY_EXCHANGE_PEERS);
+            sender = new Sender(SEND_THREADS);
+            eventLoop = null;
+        } else {
+            keyExchanger = new KeyExchanger(this, host.getKeyExchangeWorkers(), KEY_EXCHANGE_PEERS);
+            sender = new Sender(host.getCryptoWorkers());
+            eventLoop = host.newEventLoop();
+        }
         this.pcs.addPropertyChangeListener(face);
     }
 
@@ -228,7 +578,7 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
         }
         socket = new Socket(IP, PORT);
         out = new ObjectOutputStream(socket.getOutputStream());
-        receiver = new MessageReader(socket.getInputStream());
+        receiver = new MessageReader(socket.getInputStream(), eventLoop);
         receiver.addPropertyChangeListener(this);
         receiver.startReader();
     }
@@ -242,13 +592,181 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      * @throws Exception
      */
     public void login(String userName) throws IOException, Exception {
+        keyExchanger.reset();
+        if (identityDirectory != null) {
+            if (rsa == null || !userName.equals(name)) {
+                rsa = IdentityKeyStore.loadOrCreate(IdentityKeyStore.file(identityDirectory, userName), RSA_BITS);
+            }
+        } else if (rsa == null) {
+            AsymmetricCipher asymmetric = CipherSuites.get(cipherSuites.get(0)).getAsymmetric();
+            rsa = (host == null) ? asymmetric.generate(RSA_BITS) : host.getKeyPairs().take(asymmetric, RSA_BITS);
+        }
+        if (historyDirectory != null && history == null) {
+            history = MessageHistory.open(MessageHistory.directory(historyDirectory, userName));
+        }
+        suite = CipherSuites.get(CipherSuites.LEGACY);
+        agreement = null;
+
+        ticket = null;
+        resuming = false;
+
         connect();
-        Message login = new Login(userName);
+        Message login = new Login(userName, cipherSuites);
         sendMessage(login);
         this.name = userName;
         sendPublicKeyMessage();
     }
 
+    /**
+     * Resumes an interrupted session, with its resumption ticket.
+     *
+     * <p>
+     * The current channel, if any, is closed without notifying the server.
+     * The session keeps its name, keys and users; the server sends the changes
+     * in the user list since then. If the server refuses the ticket, it
+     * proceeds as a new login.
+     * </p>
+     *
+     * @since 1.1
+     * @return
+     * <ul>
+     * <li>true: if a resumption was requested;</li>
+     * <li>false: if there is no valid ticket: {@link #login(String)} is
+     * required.</li>
+     * </ul>
+     * @throws IOException
+     * @throws Exception
+     */
+    public boolean resume() throws IOException, Exception {
+        if (ticket == null || System.currentTimeMillis() > ticketExpires) {
+            return false;
+        }
+        byte[] presented = ticket;
+
+        if (isConnected()) {
+            close();
+        }
+        connect();
+        ticket = null;
+        resuming = true;
+        sendMessage(new Login(name, cipherSuites, presented));
+        return true;
+    }
+
+    /**
+     * Sets the cipher suites offered at login.
+     *
+     * <p>
+     * Takes effect on the next login. The key pair is generated by the first
+     * suite on the first login.
+     * </p>
+     *
+     * @since 1.1
+     * @param cipherSuites Suite names, in preference order.
+     * @throws IllegalArgumentException if there is no suite, or a suite is not
+     * registered.
+     */
+    public void setCipherSuites(List<String> cipherSuites) {
+        if (cipherSuites.isEmpty()) {
+            throw new IllegalArgumentException("At least one cipher suite is required.");
+        }
+        for (String suiteName : cipherSuites) {
+            if (CipherSuites.get(suiteName) == null) {
+                throw new IllegalArgumentException("Unknown cipher suite: " + suiteName);
+            }
+        }
+        this.cipherSuites = new ArrayList<>(cipherSuites);
+    }
+
+    /**
+     * Sets the directory with the identity key pairs.
+     *
+     * <p>
+     * Takes effect on the next login: the key pair of the user name is loaded
+     * from the directory, or generated and stored there the first time. The
+     * public key of a user name then stays the same across launches.
+     * </p>
+     *
+     * @since 1.1
+     * @param identityDirectory Directory; null, to generate a new key pair
+     * for every client.
+     * @see IdentityKeyStore
+     */
+    public void setIdentityDirectory(Path identityDirectory) {
+        this.identityDirectory = identityDirectory;
+        this.rsa = null;
+    }
+
+    /**
+     * Sets the file where the public key cache is kept.
+     *
+     * <p>
+     * The keys in the file are loaded now; the cache is saved there when the
+     * client is closed.
+     * </p>
+     *
+     * @since 1.1
+     * @param keyCacheFile Cache file; null, to keep the cache in memory only.
+     * @throws IOException if the file cannot be read.
+     */
+    public void setKeyCacheFile(Path keyCacheFile) throws IOException {
+        this.keyCacheFile = keyCacheFile;
+        if (keyCacheFile != null) {
+            keyCache.load(keyCacheFile);
+        }
+    }
+
+    /**
+     * Sets the directory with the message histories.
+     *
+     * <p>
+     * Takes effect on the next login: the messages the user sends and
+     * receives are stored in the history of the user name, in the directory.
+     * </p>
+     *
+     * @since 1.1
+     * @param historyDirectory Directory; null, to keep no history.
+     * @see MessageHistory
+     */
+    public void setHistoryDirectory(Path historyDirectory) {
+        this.historyDirectory = historyDirectory;
+    }
+
+    /**
+     * Returns the message history of the current user.
+     *
+     * @since 1.1
+     * @return History, or null if there is none.
+     */
+    public MessageHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Sets the size above which RSA_MSG texts are sent as hybrid messages.
+     *
+     * <p>
+     * Texts that do not fit in one RSA block are never sent as single
+     * messages, whatever the threshold.
+     * </p>
+     *
+     * @since 1.1
+     * @param hybridThreshold Size in bytes, of the UTF-8 encoded text.
+     */
+    public void setHybridThreshold(int hybridThreshold) {
+        this.hybridThreshold = hybridThreshold;
+    }
+
+    /**
+     * Returns the cipher suite of the session.
+     *
+     * @since 1.1
+     * @return Cipher suite chosen by the server; the legacy suite before that.
+     */
+    public CipherSuite getCipherSuite() {
+        return suite;
+    }
+
     /**
      * Logout from the server.
      *
@@ -261,25 +779,47 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      */
     public void logout(boolean notifyServer) throws IOException, Exception {
         Message logout = new Logout(name, name);
+        ticket = null;
+        reconnecting = false;
+        replayPending = false;
+        for (OutboundQueue.Entry entry : outbound.drain()) {
+            entry.getDone().completeExceptionally(new IOException("Logged out before the message was sent."));
+        }
 
         if (notifyServer) {
             sendMessage(logout);
         }
 
         close();
+        if (history != null) {
+            try {
+                history.close();
+            } catch (IOException ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            history = null;
+        }
         pcs.firePropertyChange(ClientEvents.LOGOUT.name(), null, logout);
     }
 
     /**
      * Sends the message.
      *
+     * <p>
+     * Safe to call from many threads: each message is written and flushed as
+     * a whole.
+     * </p>
+     *
      * @since 1.0
      * @param msg Message to be sent.
      * @throws IOException
      */
     public void sendMessage(Message msg) throws IOException {
-        out.writeObject(msg);
-        out.flush();
+        ObjectOutputStream output = out;
+        synchronized (output) {
+            output.writeObject(msg);
+            output.flush();
+        }
     }
 
     /**
@@ -306,6 +846,11 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      */
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
+        if (MessageReader.DISCONNECTED.equals(evt.getPropertyName())) {
+            connectionLost((IOException) evt.getNewValue());
+            return;
+        }
+
         Message msg = (Message) evt.getNewValue();
 
         switch (msg.getType()) {
@@ -332,9 +877,14 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
             case PUB_KEY:
                 process((PublicKey) msg);
                 break;
-            case RSA_MSG:
-                process((RSAMessage) msg);
-                break;
+            case RSA_MSG: {
+                try {
+                    process((RSAMessage) msg);
+                } catch (IOException ex) {
+                    Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+            break;
             case SYM_MSG: {
                 try {
                     process((SymmetricMessage) msg);
@@ -343,6 +893,45 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
                 }
             }
             break;
+            case ENVELOPE: {
+                try {
+                    process((Envelope) msg);
+                } catch (IOException ex) {
+                    Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+            break;
+            case AGREEMENT_KEY:
+                process((AgreementKey) msg);
+                break;
+            case BATCH: {
+                try {
+                    process((Batch) msg);
+                } catch (IOException ex) {
+                    Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+            break;
+            case TICKET:
+                process((Ticket) msg);
+                break;
+            case ROSTER_DELTA:
+                process((RosterDelta) msg);
+                break;
+            case SUITE: {
+                try {
+                    process((Suite) msg);
+                } catch (IOException ex) {
+                    Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+            break;
+            case USER_LIST_PAGE:
+                process((UserListPage) msg);
+                break;
+            case SESSION_KEY_REQUEST:
+                process((SessionKeyRequest) msg);
+                break;
         }
 
     }
@@ -351,10 +940,95 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      * Return the current list of users.
      *
      * @since 1.0
-     * @return users connected to the server.
+     * @return users connected to the server, as an unmodifiable map.
+     * @see #getRoster()
      */
     public Map<String, User> getUsers() {
-        return users;
+        return roster.getUsers();
+    }
+
+    /**
+     * Returns a snapshot of the user list.
+     *
+     * @since 1.1
+     * @return Current snapshot; safe to read from any thread.
+     */
+    public Roster getRoster() {
+        return roster;
+    }
+
+    /**
+     * Changes the user list, publishing a new snapshot, and notifies listeners
+     * of the change.
+     *
+     * <p>
+     * Listeners are notified while the roster lock is held: changes are
+     * published from the receiver and from the background workers, and reach
+     * listeners in version order, whatever thread made them. Listeners must
+     * not block.
+     * </p>
+     *
+     * @since 1.1
+     * @param change Makes the new snapshot from the current one.
+     * @param describe Describes the change made, from the new snapshot; may
+     * return null, for changes that are not shown to listeners.
+     * @return New snapshot.
+     */
+    private Roster publish(UnaryOperator<Roster> change, Function<Roster, RosterChange> describe) {
+        Roster published;
+        synchronized (rosterLock) {
+            published = roster = change.apply(roster);
+            RosterChange description = describe.apply(published);
+            if (description != null) {
+                pcs.firePropertyChange(ClientEvents.ROSTER_CHANGE.name(), null, description);
+            }
+        }
+        keyArrived();
+        return published;
+    }
+
+    /**
+     * Stores a message sent or received in the history, and notifies
+     * listeners.
+     *
+     * @since 1.1
+     * @param msg
+     */
+    private void newMessage(PlainMessage msg) {
+        if (history != null) {
+            String peer;
+            if (Destination.BROADCAST.name().equals(msg.getDestination()) || name.equals(msg.getSource())) {
+                peer = msg.getDestination();
+            } else {
+                peer = msg.getSource();
+            }
+            history.append(peer, msg);
+        }
+        pcs.firePropertyChange(ClientEvents.NEW_MESSAGE.name(), null, msg);
+    }
+
+    /**
+     * Describes a replaced user list, once the keys of its users are resolved
+     * from the key cache.
+     *
+     * @since 1.1
+     * @param replaced
+     * @return Reset change.
+     */
+    private RosterChange reset(Roster replaced) {
+        replaced.getUsers().values().stream().forEach(this::resolveKey);
+        return RosterChange.reset(replaced.getVersion(), replaced.getUsers().values());
+    }
+
+    /**
+     * Notifies listeners of a change to a user, such as a new key, under a new
+     * version of the user list.
+     *
+     * @since 1.1
+     * @param user
+     */
+    private void fireUpdated(User user) {
+        publish(Roster::touch, (Roster touched) -> RosterChange.updated(touched.getVersion(), user));
     }
 
     /**
@@ -365,8 +1039,12 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      */
     public void process(Login msg) {
         User newUser = new User(msg.getMessage());
-        users.put(newUser.getName(), newUser);
-        pcs.firePropertyChange(ClientEvents.USER_UPDATE.name(), null, getUsers());
+        if (msg.getCipherSuites() != null && !msg.getCipherSuites().isEmpty()) {
+            newUser.setCipherSuite(msg.getCipherSuites().get(0));
+        }
+        publish((Roster current) -> current.edit((SortedMap<String, User> users) -> users.put(newUser.getName(), newUser)),
+                (Roster edited) -> RosterChange.updated(edited.getVersion(), newUser));
+        receivedIds.forget(newUser.getName());
     }
 
     /**
@@ -376,10 +1054,12 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      * @param msg
      */
     public void process(Logout msg) throws IOException, Exception {
-        users.remove(msg.getMessage());
-        if (!msg.getMessage().equals(name)) {
-            pcs.firePropertyChange(ClientEvents.USER_UPDATE.name(), null, getUsers());
-        } else {
+        boolean self = msg.getMessage().equals(name);
+        publish((Roster current) -> current.edit((SortedMap<String, User> users) -> users.remove(msg.getMessage())),
+                (Roster edited) -> self ? null : RosterChange.removed(edited.getVersion(), msg.getMessage()));
+        keyExchanger.forget(msg.getMessage());
+        receivedIds.forget(msg.getMessage());
+        if (self) {
             if (msg.getSource().equals(Destination.SERVER.name())) {
                 logout(false);
             }
@@ -393,216 +1073,1654 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      * @param msg
      */
     public void process(UserList msg) {
-        Map userList = msg.getMessage();
-        users.clear();
-        users.putAll(userList);
-        pcs.firePropertyChange(ClientEvents.USER_UPDATE.name(), null, getUsers());
+        Map<String, User> userList = msg.getMessage();
+        Roster replaced = publish((Roster current) -> current.replace(userList), this::reset);
+
+        if (resuming) {
+            resuming = false;
+            try {
+                sendPublicKeyMessage();
+            } catch (IOException ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+
+        replaced.getUsers().values().stream().forEach(this::scheduleKey);
+        replay();
     }
 
     /**
-     * Process a Key message.
+     * Process a ROSTER_DELTA message.
      *
-     * @since 1.0
+     * <p>
+     * Deltas come after a session is resumed, and are broadcast when a user
+     * publishes a public key. Users whose keys did not change keep their
+     * session keys; keys not known before are just added.
+     * </p>
+     *
+     * @since 1.1
      * @param msg
      */
-    public void process(Key msg) {
-        BigInteger msgEncrypted = msg.getMessage();
+    public void process(RosterDelta msg) {
+        if (!Destination.BROADCAST.name().equals(msg.getDestination())) {
+            resuming = false;
+        }
 
-        byte[] key = new byte[DES.BLOCK_SIZE / Byte.SIZE];
-        byte[] msgKey = rsa.decrypt(msgEncrypted).toByteArray();
-        System.arraycopy(msgKey, 0, key, 0, msgKey.length);
+        List<User> updated = new ArrayList<>();
+        Roster edited = publish((Roster current) -> current.edit((SortedMap<String, User> users) -> {
+            for (String removed : msg.getRemoved()) {
+                users.remove(removed);
+                keyExchanger.forget(removed);
+            }
+            msg.getMessage().forEach((String userName, User user) -> updated.add(merge(users, userName, user)));
+        }), (Roster current) -> RosterChange.of(current.getVersion(), updated, msg.getRemoved()));
 
-        users.get(msg.getSource()).setKey(key);
-        pcs.firePropertyChange(ClientEvents.USER_UPDATE.name(), null, getUsers());
+        edited.getUsers().values().stream().forEach(this::scheduleKey);
+        if (!Destination.BROADCAST.name().equals(msg.getDestination())) {
+            replay();
+        }
     }
 
     /**
-     * Process a PUB_KEY message.
+     * Process a USER_LIST_PAGE message.
      *
-     * @since 1.0
+     * <p>
+     * The first page replaces the user list, as a {@link UserList} would; the
+     * next ones are merged into it, since users may have logged in, and keys
+     * may have been exchanged, while the pages were on their way. Each page
+     * is shown as soon as it arrives, and the next one is requested.
+     * </p>
+     *
+     * @since 1.1
      * @param msg
      */
-    public void process(PublicKey msg) {
+    public void process(UserListPage msg) {
+        Roster edited;
+        if (msg.getAfter() == null) {
+            edited = publish((Roster current) -> current.replace(msg.getMessage()), this::reset);
+        } else {
+            List<User> updated = new ArrayList<>();
+            edited = publish((Roster current) -> current.edit((SortedMap<String, User> users)
+                    -> msg.getMessage().forEach((String userName, User user) -> updated.add(merge(users, userName, user)))),
+                    (Roster current) -> RosterChange.of(current.getVersion(), updated, Collections.<String>emptyList()));
+        }
+
+        try {
+            if (msg.getAfter() == null && resuming) {
+                resuming = false;
+                sendPublicKeyMessage();
+            }
+            if (msg.getContinuation() != null) {
+                sendMessage(new UserListRequest(name, msg.getContinuation()));
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
 
-        users.get(msg.getSource()).setPublicKey(msg.getMessage());
-        pcs.firePropertyChange(ClientEvents.USER_UPDATE.name(), null, getUsers());
+        msg.getMessage().keySet().stream().map(edited::get).forEach(this::scheduleKey);
+        if (msg.getContinuation() == null) {
+            replay();
+        }
     }
 
     /**
-     * Process a PLAIN_MSG message.
+     * Merges a user received from the server into the user list.
      *
-     * @since 1.0
+     * <p>
+     * Users whose keys did not change keep their session keys; keys not known
+     * before are just added.
+     * </p>
+     *
+     * @since 1.1
+     * @param users User list being edited.
+     * @param userName
+     * @param user User received.
+     * @return User in the user list.
+     */
+    private User merge(Map<String, User> users, String userName, User user) {
+        User known = users.get(userName);
+        if (known == null || changed(known.getFingerprint(), user.getFingerprint())
+                || (known.getAgreementKey() != null && user.getAgreementKey() != null
+                && !Arrays.equals(known.getAgreementKey(), user.getAgreementKey()))) {
+            keyExchanger.forget(userName);
+            users.put(userName, user);
+            resolveKey(user);
+        } else {
+            if (known.getFingerprint() == null) {
+                known.setFingerprint(user.getFingerprint());
+                resolveKey(known);
+            }
+            if (known.getAgreementKey() == null) {
+                known.setAgreementKey(user.getAgreementKey());
+            }
+            known.setCipherSuite(user.getCipherSuite());
+        }
+        return users.get(userName);
+    }
+
+    /**
+     * Verify if a public key changed.
+     *
+     * @since 1.1
+     * @param known Fingerprint known.
+     * @param received Fingerprint received.
+     * @return
+     * <ul>
+     * <li>true: if both are known and differ;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    private static boolean changed(Object known, Object received) {
+        return known != null && received != null && !known.equals(received);
+    }
+
+    /**
+     * Process a TICKET message.
+     *
+     * @since 1.1
      * @param msg
      */
-    public void process(PlainMessage msg) {
-        pcs.firePropertyChange(ClientEvents.NEW_MESSAGE.name(), null, msg);
+    public void process(Ticket msg) {
+        ticket = msg.getMessage();
+        ticketValidity = msg.getValidity();
+        ticketExpires = Long.MAX_VALUE;
     }
 
     /**
-     * Process a RSA_MSG message.
+     * Process a Key message.
+     *
+     * <p>
+     * If both users generated a key, the one of the user with the lowest name
+     * is kept on both sides.
+     * </p>
      *
      * @since 1.0
      * @param msg
      */
-    public void process(RSAMessage msg) {
-
-        BigInteger msgEncrypted = msg.getMessage();
+    public void process(Key msg) {
+        User source = roster.get(msg.getSource());
+        if (source == null) {
+            return;
+        }
+        byte[] key = decryptKey(msg.getMessage());
 
-        String plainText = RSA.BigIntegerToString(rsa.decrypt(msgEncrypted));
+        synchronized (source) {
+            if (source.getKey() != null && initiates(source)) {
+                return;
+            }
+            source.setKey(key);
+        }
+        keyArrived();
+        fireUpdated(source);
+    }
 
-        pcs.firePropertyChange(ClientEvents.NEW_MESSAGE.name(), null, new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
+    /**
+     * Process a SESSION_KEY_REQUEST message.
+     *
+     * <p>
+     * Only requests this client should answer, as the user with the lowest
+     * name, are answered: on a key exchange worker, since the requester's
+     * public key may have to be requested first.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @see #establishKey(User, boolean)
+     */
+    public void process(SessionKeyRequest msg) {
+        User source = roster.get(msg.getSource());
+        if (source == null || !initiates(source)) {
+            return;
+        }
+        keyExchanger.answer(source);
     }
 
     /**
-     * Process a SYM_MSG message.
+     * Process a PUB_KEY message.
      *
      * @since 1.0
      * @param msg
      */
-    public void process(SymmetricMessage msg) throws IOException {
-
-        User source = users.get(msg.getSource());
-        String plainText;
+    public void process(PublicKey msg) {
 
-        try (InputStream msgEncrypted = new ByteArrayInputStream(msg.getMessage());
-                ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+        keyRequests.remove(msg.getSource());
+        User source = roster.get(msg.getSource());
+        if (source == null) {
+            return;
+        }
+        source.setPublicKey(msg.getMessage());
+        keyArrived();
+        keyCache.put(msg.getMessage());
+        fireUpdated(source);
 
-            des.decrypt(msgEncrypted, source.getKey(), output);
-            plainText = output.toString(RSAServer.CHARSET.name());
+        scheduleKey(source);
+    }
 
+    /**
+     * Resolves the public key of a user from its fingerprint, with the key
+     * cache.
+     *
+     * <p>
+     * Keys not cached are left unknown, until needed.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @see #requestKey(User)
+     */
+    private void resolveKey(User user) {
+        if (user.getPublicKeyPair() != null || user.getFingerprint() == null || user.getName().equals(name)) {
+            return;
         }
 
-        pcs.firePropertyChange(ClientEvents.NEW_MESSAGE.name(), null, new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
+        RSAPublicKey cached = keyCache.get(user.getFingerprint());
+        if (cached != null) {
+            user.setPublicKey(cached);
+        }
     }
 
     /**
-     * Sends a RSA_MSG message.
+     * Requests the public key of a user from the server, if unknown.
      *
-     * @since 1.0
-     * @param destine
-     * @param message
-     * @throws java.io.IOException
+     * <p>
+     * The key is set when the PUB_KEY answer arrives. A user's key is only
+     * requested once at a time.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @throws IOException
      */
-    public void sendRSAMessage(String destine, String message) throws IOException {
-        PlainMessage msg = new PlainMessage(name, destine, message);
-        sendRSAMessage(msg);
+    private void requestKey(User user) throws IOException {
+        if (user.getPublicKeyPair() != null || user.getFingerprint() == null || user.getName().equals(name)) {
+            return;
+        }
+        if (keyRequests.add(user.getName())) {
+            try {
+                sendMessage(new PublicKeyRequest(name, user.getName()));
+            } catch (IOException ex) {
+                keyRequests.remove(user.getName());
+                throw ex;
+            }
+        }
     }
 
     /**
-     * Send a RSA_MSG message.
+     * Waits for the public key of a user, requesting it if needed.
      *
-     * @since 1.0
-     * @param msg
-     * @throws java.io.IOException
+     * <p>
+     * Must not be called by the message receiver: the answer would never be
+     * processed.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @return The user, as currently in the roster.
+     * @throws IOException if the key is not received in time.
      */
-    public void sendRSAMessage(PlainMessage msg) throws IOException {
-
-        User destination = users.get(msg.getDestination());
-
-        String plainText = msg.getMessage();
+    private User awaitKey(User user) throws IOException {
+        return awaitKey(user, System.currentTimeMillis() + KEY_REQUEST_TIMEOUT);
+    }
 
-        BigInteger cipherText = RSA.encrypt(destination.getPublicKeyPair(), plainText);
+    /**
+     * Waits for the public key of a user, up to a deadline, requesting it if
+     * needed.
+     *
+     * <p>
+     * The user is read again from the roster on every wake up: it may be
+     * replaced while waiting, and the key then arrives on the new instance.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @param deadline Time limit, as of <code>System.currentTimeMillis()</code>.
+     * @return The user, as currently in the roster.
+     * @throws IOException if the key is not received in time.
+     */
+    private User awaitKey(User user, long deadline) throws IOException {
+        String userName = user.getName();
+        requestKey(user);
+
+        synchronized (keyRequests) {
+            long remaining;
+            while (user != null && user.getPublicKeyPair() == null
+                    && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    keyRequests.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                user = roster.get(userName);
+            }
+        }
 
-        sendMessage(new RSAMessage(name, msg.getDestination(), cipherText));
-        pcs.firePropertyChange(ClientEvents.NEW_MESSAGE.name(), null, new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
+        if (user == null || user.getPublicKeyPair() == null) {
+            keyRequests.remove(userName);
+            throw new IOException("Public key of " + userName + " not available.");
+        }
+        return user;
     }
 
     /**
-     * Send a PUB_KEY message.
+     * Wakes up the threads waiting for public keys.
      *
-     * @since 1.0
-     * @throws IOException
+     * @since 1.1
      */
-    public void sendPublicKeyMessage() throws IOException {
-        sendMessage(new PublicKey(name, Destination.SERVER.name(), rsa.getPublicKeyPair()));
+    private void keyArrived() {
+        synchronized (keyRequests) {
+            keyRequests.notifyAll();
+        }
     }
 
     /**
-     * Sends a PLAIN_MSG message.
+     * Process an AGREEMENT_KEY message.
      *
-     * @since 1.0
-     * @param destine
-     * @param message
-     * @throws IOException
+     * @since 1.1
+     * @param msg
      */
-    public void sendPlainMessage(String destine, String message) throws IOException {
-        PlainMessage msg = new PlainMessage(name, destine, message);
-        sendMessage(msg);
+    public void process(AgreementKey msg) {
+
+        User source = roster.get(msg.getSource());
+        source.setAgreementKey(msg.getMessage());
+        fireUpdated(source);
+
+        scheduleKey(source);
     }
 
     /**
-     * Sends a SYM_MSG message.
+     * Process a PLAIN_MSG message.
      *
      * @since 1.0
-     * @param destine
-     * @param message
-     * @throws IOException
+     * @param msg
      */
-    public void sendSYMMessage(String destine, String message) throws IOException {
-        PlainMessage msg = new PlainMessage(name, destine, message);
-        sendSYMMessage(msg);
+    public void process(PlainMessage msg) {
+        newMessage(msg);
     }
 
     /**
-     * Send a SYM_MSG message.
+     * Process a RSA_MSG message.
+     *
+     * <p>
+     * Chunks of chunked messages are decrypted in parallel.
+     * </p>
      *
      * @since 1.0
      * @param msg
+     * @throws java.io.IOException
      */
-    public void sendSYMMessage(PlainMessage msg) throws IOException {
+    public void process(RSAMessage msg) throws IOException {
 
-        User destination = users.get(msg.getDestination());
+        String plainText;
 
-        if (destination.getKey() == null) {
-            shareKey(destination);
-        }
+        if (msg.isHybrid()) {
+            SymmetricCipher cipher = symmetric(msg.getCipher());
+            byte[] contentKey = decryptKey(msg.getMessage());
 
-        byte[] cipherText;
+            try (InputStream msgEncrypted = new ByteArrayInputStream(msg.getContent());
+                    ByteArrayOutputStream output = new ByteArrayOutputStream()) {
 
-        try (InputStream msgEncrypted = new ByteArrayInputStream(msg.getMessage().getBytes(RSAServer.CHARSET));
-                ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+                cipher.decrypt(msgEncrypted, contentKey, output);
+                plainText = output.toString(RSAServer.CHARSET.name());
+            }
+        } else {
+            List<byte[]> chunks = msg.getChunks().parallelStream()
+                    .map((BigInteger chunk) -> decode(rsa.decrypt(chunk)))
+                    .collect(Collectors.toList());
 
-            des.encrypt(msgEncrypted, destination.getKey(), output);
-            cipherText = output.toByteArray();
-            sendMessage(new SymmetricMessage(name, msg.getDestination(), cipherText));
-            pcs.firePropertyChange(ClientEvents.NEW_MESSAGE.name(), null, msg);
+            try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+                for (byte[] chunk : chunks) {
+                    output.write(chunk);
+                }
+                plainText = output.toString(RSAServer.CHARSET.name());
+            }
         }
 
+        newMessage(new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
     }
 
     /**
-     * Generates a session key and send the the destination user.
+     * Process a SYM_MSG message.
      *
      * @since 1.0
-     * @param destination
-     * @throws IOException
+     * @param msg
+     * @throws java.io.IOException if the message is not authentic.
      */
-    public void shareKey(User destination) throws IOException {
-        try {
-            byte[] newKey = DES.genkey(true);
+    public void process(SymmetricMessage msg) throws IOException {
 
-            destination.setKey(newKey);
+        User source = roster.get(msg.getSource());
 
-            BigInteger encryptedKey = RSA.encrypt(destination.getPublicKeyPair(), newKey);
-            sendMessage(new Key(name, destination.getName(), encryptedKey));
+        if (!name.equals(msg.getDestination())) {
+            throw new IOException("Message for " + msg.getDestination() + " from " + msg.getSource());
+        }
+        if (source.getKey() == null) {
+            establishKey(source, false);
+        }
 
-            pcs.firePropertyChange(ClientEvents.USER_UPDATE.name(), null, getUsers());
-        } catch (NoSuchAlgorithmException ex) {
-            Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+        if (msg.getTag() != null || requiresTag(source)) {
+            byte[] data = msg.getAuthenticatedData();
+            verify(source, msg.getTag(), (authenticator, key, tag)
+                    -> authenticator.verify(key, data, 0, data.length, tag, 0));
         }
+
+        receive(source, msg);
     }
 
     /**
-     * Verify if the client is connected to the server.
+     * Process a BATCH message.
      *
-     * @since 1.0
-     * @return
-     * <ul>
-     * <li>true: if the client is connected;</li>
-     * <li>false: otherwise.</li>
-     * </ul>
+     * <p>
+     * The tag is verified once for all frames; frames are only delivered if it
+     * matches, and if they are all from the batch's source to this user.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @throws java.io.IOException if the batch is not authentic.
      */
-    boolean isConnected() {
+    public void process(Batch msg) throws IOException {
+
+        User source = roster.get(msg.getSource());
+
+        for (SymmetricMessage frame : msg.getMessage()) {
+            if (!msg.getSource().equals(frame.getSource()) || !name.equals(frame.getDestination())) {
+                throw new IOException("Batch with foreign frames from " + msg.getSource());
+            }
+        }
+        if (source.getKey() == null) {
+            establishKey(source, false);
+        }
+
+        List<byte[]> data = msg.getAuthenticatedData();
+        verify(source, msg.getTag(), (authenticator, key, tag)
+                -> authenticator.verify(key, data, tag, 0));
+
+        for (SymmetricMessage frame : msg.getMessage()) {
+            receive(source, frame);
+        }
+    }
+
+    /**
+     * Decrypts a symmetrically encrypted message and notifies subscribers.
+     *
+     * <p>
+     * Messages already received are dropped.
+     * </p>
+     *
+     * @since 1.1
+     * @param source
+     * @param msg
+     * @throws IOException
+     */
+    private void receive(User source, SymmetricMessage msg) throws IOException {
+        if (!receivedIds.accept(msg.getSource(), msg.getId())) {
+            return;
+        }
+        SymmetricCipher cipher = symmetric(msg.getCipher());
+        String plainText;
+
+        try (InputStream msgEncrypted = new ByteArrayInputStream(msg.getMessage());
+                ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+
+            cipher.decrypt(msgEncrypted, source.getKey(), output);
+            plainText = output.toString(RSAServer.CHARSET.name());
+
+        }
+
+        newMessage(new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
+    }
+
+    /**
+     * Process an ENVELOPE message.
+     *
+     * <p>
+     * Only this client's slot is decrypted; envelopes without one (including
+     * the copy of our own broadcasts), and envelopes already received, are
+     * ignored.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @throws java.io.IOException
+     */
+    public void process(Envelope msg) throws IOException {
+
+        BigInteger encryptedKey = msg.getKey(name);
+        if (encryptedKey == null || !receivedIds.accept(msg.getSource(), msg.getId())) {
+            return;
+        }
+
+        SymmetricCipher cipher = symmetric(msg.getCipher());
+        byte[] contentKey = decryptKey(encryptedKey);
+        String plainText;
+
+        try (InputStream msgEncrypted = new ByteArrayInputStream(msg.getMessage());
+                ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+
+            cipher.decrypt(msgEncrypted, contentKey, output);
+            plainText = output.toString(RSAServer.CHARSET.name());
+
+        }
+
+        newMessage(new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
+    }
+
+    /**
+     * Process a SUITE message.
+     *
+     * <p>
+     * Once the suite is known, the agreement public key is published, if the
+     * suite has key agreement. With an identity directory, the agreement key
+     * pair is kept there too, so that peers derive the same session keys with
+     * this user across launches.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @throws java.io.IOException
+     */
+    public void process(Suite msg) throws IOException {
+        CipherSuite chosen = CipherSuites.get(msg.getMessage());
+        if (chosen == null) {
+            throw new IOException("Unknown cipher suite: " + msg.getMessage());
+        }
+        suite = chosen;
+
+        if (suite.getAgreement() != null) {
+            try {
+                agreement = newAgreementParty(suite.getAgreement());
+                sendMessage(new AgreementKey(name, agreement.getPublicKey()));
+            } catch (GeneralSecurityException ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the agreement party of this user: from the identity directory,
+     * if there is one, or new.
+     *
+     * @since 1.1
+     * @param scheme
+     * @return Party.
+     * @throws GeneralSecurityException
+     */
+    private KeyAgreementScheme.Party newAgreementParty(KeyAgreementScheme scheme) throws GeneralSecurityException {
+        if (identityDirectory != null) {
+            try {
+                return IdentityKeyStore.loadOrCreateAgreement(IdentityKeyStore.agreementFile(identityDirectory, name, scheme), scheme);
+            } catch (IOException ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        return scheme.newParty();
+    }
+
+    /**
+     * Verification of a tag, with the authenticator of this client's suite.
+     *
+     * @since 1.1
+     */
+    @FunctionalInterface
+    private interface Verification {
+
+        boolean verify(MessageAuthenticator authenticator, byte[] key, byte[] tag) throws GeneralSecurityException;
+    }
+
+    /**
+     * Verifies a tag from a user.
+     *
+     * <p>
+     * Senders tag with the authenticator of the destination's suite, so tags
+     * are verified with the one of this client's suite.
+     * </p>
+     *
+     * @since 1.1
+     * @param source
+     * @param tag
+     * @param verification
+     * @throws IOException if the tag is missing or does not match.
+     */
+    private void verify(User source, byte[] tag, Verification verification) throws IOException {
+        MessageAuthenticator authenticator = suite.getAuthenticator();
+        if (tag == null || authenticator == null) {
+            throw new IOException("Unauthenticated message from " + source.getName());
+        }
+        try {
+            if (!verification.verify(authenticator, authenticationKey(source, authenticator), tag)) {
+                throw new IOException("Invalid authentication tag from " + source.getName());
+            }
+        } catch (GeneralSecurityException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Verify if messages from a user must be authenticated.
+     *
+     * @since 1.1
+     * @param source
+     * @return
+     * <ul>
+     * <li>true: if both this client's and the user's suites have a message
+     * authenticator;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    private boolean requiresTag(User source) {
+        return suite.getAuthenticator() != null && authenticatorFor(source) != null;
+    }
+
+    /**
+     * Returns the authentication key for a user, deriving it from the session
+     * key if needed.
+     *
+     * @since 1.1
+     * @param user
+     * @param authenticator
+     * @return Authentication key.
+     * @throws GeneralSecurityException
+     */
+    private static byte[] authenticationKey(User user, MessageAuthenticator authenticator) throws GeneralSecurityException {
+        byte[] key = user.getAuthenticationKey();
+        if (key == null) {
+            key = new byte[authenticator.getTagSize()];
+            authenticator.tag(user.getKey(), AUTHENTICATION_LABEL, 0, AUTHENTICATION_LABEL.length, key, 0);
+            user.setAuthenticationKey(key);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the message authenticator to use with a user: the one of the
+     * user's suite.
+     *
+     * @since 1.1
+     * @param user
+     * @return Message authenticator; null, if the user's suite has none.
+     */
+    private static MessageAuthenticator authenticatorFor(User user) {
+        CipherSuite userSuite = (user.getCipherSuite() == null) ? null : CipherSuites.get(user.getCipherSuite());
+        return (userSuite == null) ? null : userSuite.getAuthenticator();
+    }
+
+    /**
+     * Returns a registered symmetric cipher.
+     *
+     * @since 1.1
+     * @param cipherName
+     * @return Symmetric cipher.
+     * @throws IOException if the cipher is unknown.
+     */
+    private static SymmetricCipher symmetric(String cipherName) throws IOException {
+        SymmetricCipher cipher = CipherSuites.symmetric(cipherName);
+        if (cipher == null) {
+            throw new IOException("Unknown cipher: " + cipherName);
+        }
+        return cipher;
+    }
+
+    /**
+     * Returns the symmetric cipher to use with a user: the one of the user's
+     * suite.
+     *
+     * @since 1.1
+     * @param user
+     * @return Symmetric cipher; DES, for users without a negotiated suite.
+     */
+    private static SymmetricCipher cipherFor(User user) {
+        CipherSuite userSuite = (user.getCipherSuite() == null) ? null : CipherSuites.get(user.getCipherSuite());
+        if (userSuite == null) {
+            userSuite = CipherSuites.get(CipherSuites.LEGACY);
+        }
+        return userSuite.getSymmetric();
+    }
+
+    /**
+     * Generates new session key material.
+     *
+     * @since 1.1
+     * @return Session key.
+     */
+    private static byte[] newSessionKey() {
+        byte[] key = new byte[SESSION_KEY_SIZE];
+        RANDOM.nextBytes(key);
+        return key;
+    }
+
+    /**
+     * Decrypts a session key encrypted with this client's public key.
+     *
+     * @since 1.1
+     * @param encryptedKey RSA encrypted key.
+     * @return Session key.
+     */
+    private byte[] decryptKey(BigInteger encryptedKey) {
+        return decode(rsa.decrypt(encryptedKey));
+    }
+
+    /**
+     * Returns how many bytes fit in one RSA block.
+     *
+     * @since 1.1
+     * @param publicKeyPair (n,e)
+     * @return Bytes that can be encoded as a number smaller than n.
+     * @see #encode(byte[])
+     */
+    private static int blockCapacity(RSAPublicKey publicKeyPair) {
+        return (publicKeyPair.bitLength() - 2) / Byte.SIZE;
+    }
+
+    /**
+     * Converts bytes into a number, for RSA encryption.
+     *
+     * <p>
+     * A leading marker byte keeps leading zero bytes.
+     * </p>
+     *
+     * @since 1.1
+     * @param bytes
+     * @return Bytes as a number.
+     */
+    private static BigInteger encode(byte[] bytes) {
+        byte[] marked = new byte[bytes.length + 1];
+        marked[0] = 1;
+        System.arraycopy(bytes, 0, marked, 1, bytes.length);
+        return new BigInteger(1, marked);
+    }
+
+    /**
+     * Converts a number back into bytes.
+     *
+     * @since 1.1
+     * @param number
+     * @return Bytes.
+     * @see #encode(byte[])
+     */
+    private static byte[] decode(BigInteger number) {
+        byte[] marked = number.toByteArray();
+        byte[] bytes = new byte[marked.length - 1];
+        System.arraycopy(marked, 1, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Sends a RSA_MSG message.
+     *
+     * @since 1.0
+     * @param destine
+     * @param message
+     * @throws java.io.IOException
+     */
+    public void sendRSAMessage(String destine, String message) throws IOException {
+        PlainMessage msg = new PlainMessage(name, destine, message);
+        sendRSAMessage(msg);
+    }
+
+    /**
+     * Send a RSA_MSG message.
+     *
+     * <p>
+     * Short texts are encrypted directly with RSA. Texts above the hybrid
+     * threshold are encrypted with the symmetric cipher of the destination's
+     * suite, under a fresh content key that is the only thing encrypted with
+     * RSA. Users without a negotiated suite get the text split in RSA blocks
+     * instead, encrypted in parallel.
+     * </p>
+     *
+     * @since 1.0
+     * @param msg
+     * @throws java.io.IOException
+     * @see #setHybridThreshold(int)
+     */
+    public void sendRSAMessage(PlainMessage msg) throws IOException {
+
+        User destination = awaitKey(roster.get(msg.getDestination()));
+
+        String plainText = msg.getMessage();
+        byte[] plainBytes = plainText.getBytes(RSAServer.CHARSET);
+
+        RSAPublicKey publicKeyPair = destination.getPublicKeyPair();
+        AsymmetricCipher asymmetric = suite.getAsymmetric();
+        int capacity = blockCapacity(publicKeyPair);
+        RSAMessage rsaMessage;
+
+        if (plainBytes.length <= Math.min(hybridThreshold, capacity)) {
+            BigInteger cipherText = asymmetric.encrypt(publicKeyPair, encode(plainBytes));
+            rsaMessage = new RSAMessage(name, msg.getDestination(), cipherText);
+        } else if (destination.getCipherSuite() != null && capacity >= SESSION_KEY_SIZE) {
+            SymmetricCipher cipher = cipherFor(destination);
+            byte[] contentKey = newSessionKey();
+
+            try (InputStream msgEncrypted = new ByteArrayInputStream(plainBytes);
+                    ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+
+                cipher.encrypt(msgEncrypted, contentKey, output);
+                BigInteger encryptedKey = asymmetric.encrypt(publicKeyPair, encode(contentKey));
+                rsaMessage = new RSAMessage(name, msg.getDestination(), encryptedKey, cipher.getName(), output.toByteArray());
+            }
+        } else {
+            List<BigInteger> chunks = IntStream.range(0, (plainBytes.length + capacity - 1) / capacity)
+                    .parallel()
+                    .mapToObj((int chunk) -> asymmetric.encrypt(publicKeyPair,
+                            encode(Arrays.copyOfRange(plainBytes, chunk * capacity, Math.min(plainBytes.length, (chunk + 1) * capacity)))))
+                    .collect(Collectors.toList());
+            rsaMessage = new RSAMessage(name, msg.getDestination(), chunks);
+        }
+
+        sendMessage(rsaMessage);
+        newMessage(new PlainMessage(msg.getSource(), msg.getDestination(), plainText));
+    }
+
+    /**
+     * Send a PUB_KEY message.
+     *
+     * @since 1.0
+     * @throws IOException
+     */
+    public void sendPublicKeyMessage() throws IOException {
+        sendMessage(new PublicKey(name, Destination.SERVER.name(), rsa.getPublicKeyPair()));
+    }
+
+    /**
+     * Sends a PLAIN_MSG message.
+     *
+     * @since 1.0
+     * @param destine
+     * @param message
+     * @throws IOException
+     */
+    public void sendPlainMessage(String destine, String message) throws IOException {
+        PlainMessage msg = new PlainMessage(name, destine, message);
+        sendMessage(msg);
+    }
+
+    /**
+     * Sends a SYM_MSG message.
+     *
+     * @since 1.0
+     * @param destine
+     * @param message
+     * @throws IOException
+     */
+    public void sendSYMMessage(String destine, String message) throws IOException {
+        PlainMessage msg = new PlainMessage(name, destine, message);
+        sendSYMMessage(msg);
+    }
+
+    /**
+     * Send a SYM_MSG message.
+     *
+     * <p>
+     * The message is tagged if the destination's suite has a message
+     * authenticator.
+     * </p>
+     *
+     * @since 1.0
+     * @param msg
+     */
+    public void sendSYMMessage(PlainMessage msg) throws IOException {
+        sendSYMMessage(msg, 0);
+    }
+
+    /**
+     * Send a numbered SYM_MSG message.
+     *
+     * @since 1.1
+     * @param msg
+     * @param id Number of the message; 0, for none.
+     * @throws IOException
+     * @see #sendAsync(PlainMessage)
+     */
+    private void sendSYMMessage(PlainMessage msg, long id) throws IOException {
+
+        User destination = roster.get(msg.getDestination());
+
+        if (destination.getKey() == null) {
+            destination = establishKey(destination, true);
+        }
+
+        SymmetricCipher cipher = cipherFor(destination);
+        MessageAuthenticator authenticator = authenticatorFor(destination);
+        byte[] cipherText = encrypt(cipher, destination, msg.getMessage());
+        byte[] tag = null;
+
+        if (authenticator != null) {
+            byte[] data = new SymmetricMessage(name, msg.getDestination(), cipher.getName(), cipherText, null, id).getAuthenticatedData();
+            try {
+                tag = new byte[authenticator.getTagSize()];
+                authenticator.tag(authenticationKey(destination, authenticator), data, 0, data.length, tag, 0);
+            } catch (GeneralSecurityException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        sendMessage(new SymmetricMessage(name, msg.getDestination(), cipher.getName(), cipherText, tag, id));
+        newMessage(msg);
+    }
+
+    /**
+     * Sends many SYM_MSG messages to a user as a batch, under a single tag.
+     *
+     * <p>
+     * If the destination's suite has no message authenticator, the messages are
+     * sent one by one.
+     * </p>
+     *
+     * @since 1.1
+     * @param destine
+     * @param messages
+     * @throws IOException
+     */
+    public void sendSYMMessages(String destine, List<String> messages) throws IOException {
+        List<OutboundQueue.Entry> entries = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            entries.add(new OutboundQueue.Entry(0, new PlainMessage(name, destine, message)));
+        }
+        sendBatch(destine, entries);
+    }
+
+    /**
+     * Sends numbered SYM_MSG messages to a user as a batch, under a single
+     * tag.
+     *
+     * @since 1.1
+     * @param destine
+     * @param entries Messages, with their numbers; 0, for none.
+     * @throws IOException
+     * @see #sendSYMMessages(String, List)
+     */
+    private void sendBatch(String destine, List<OutboundQueue.Entry> entries) throws IOException {
+
+        User destination = roster.get(destine);
+        MessageAuthenticator authenticator = authenticatorFor(destination);
+
+        if (authenticator == null) {
+            for (OutboundQueue.Entry entry : entries) {
+                sendSYMMessage(entry.getMessage(), entry.getId());
+            }
+            return;
+        }
+
+        if (destination.getKey() == null) {
+            destination = establishKey(destination, true);
+        }
+
+        SymmetricCipher cipher = cipherFor(destination);
+        List<SymmetricMessage> frames = new ArrayList<>(entries.size());
+        List<byte[]> data = new ArrayList<>(entries.size());
+
+        for (OutboundQueue.Entry entry : entries) {
+            byte[] cipherText = encrypt(cipher, destination, entry.getMessage().getMessage());
+            SymmetricMessage frame = new SymmetricMessage(name, destine, cipher.getName(), cipherText, null, entry.getId());
+            frames.add(frame);
+            data.add(frame.getAuthenticatedData());
+        }
+
+        byte[] tag = new byte[authenticator.getTagSize()];
+        try {
+            authenticator.tag(authenticationKey(destination, authenticator), data, tag, 0);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException(ex);
+        }
+
+        sendMessage(new Batch(name, destine, frames, tag));
+        for (OutboundQueue.Entry entry : entries) {
+            newMessage(entry.getMessage());
+        }
+    }
+
+    /**
+     * Encrypts a text with the session key of a user.
+     *
+     * @since 1.1
+     * @param cipher
+     * @param destination
+     * @param text
+     * @return Cipher text.
+     * @throws IOException
+     */
+    private static byte[] encrypt(SymmetricCipher cipher, User destination, String text) throws IOException {
+        try (InputStream msgEncrypted = new ByteArrayInputStream(text.getBytes(RSAServer.CHARSET));
+                ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+
+            cipher.encrypt(msgEncrypted, destination.getKey(), output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Sends a message without blocking the caller.
+     *
+     * @since 1.1
+     * @param destine Destination's name, or the broadcast destination.
+     * @param message
+     * @return Completed when the message reaches the socket.
+     * @see #sendAsync(PlainMessage)
+     */
+    public CompletableFuture<Void> sendAsync(String destine, String message) {
+        return sendAsync(new PlainMessage(name, destine, message));
+    }
+
+    /**
+     * Sends many messages to a user without blocking the caller.
+     *
+     * <p>
+     * The messages are sent as one batch, under a single tag, if the
+     * destination's suite allows it; broadcasts, and messages sent while
+     * reconnecting, are sent one by one as by {@link #sendAsync(PlainMessage)}.
+     * A batch that fails because the connection was lost is held message by
+     * message, as well.
+     * </p>
+     *
+     * @since 1.1
+     * @param destine Destination's name, or the broadcast destination.
+     * @param messages
+     * @return Completed when all messages reach the socket.
+     * @see #sendSYMMessages(String, List)
+     */
+    public CompletableFuture<Void> sendAsync(String destine, List<String> messages) {
+        if (Destination.BROADCAST.name().equals(destine) || reconnecting || replayPending) {
+            return CompletableFuture.allOf(messages.stream()
+                    .map((String message) -> sendAsync(destine, message))
+                    .toArray(CompletableFuture[]::new));
+        }
+        List<OutboundQueue.Entry> batch = new ArrayList<>(messages.size());
+        for (String message : messages) {
+            batch.add(new OutboundQueue.Entry(outboundIds.incrementAndGet(), new PlainMessage(name, destine, message)));
+        }
+        sender.submit(destine, () -> sendBatch(destine, batch)).whenComplete((Void sent, Throwable ex) -> {
+            for (OutboundQueue.Entry entry : batch) {
+                settle(entry, ex);
+            }
+        });
+        return CompletableFuture.allOf(batch.stream()
+                .map(OutboundQueue.Entry::getDone)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Sends a message without blocking the caller.
+     *
+     * <p>
+     * Broadcasts are sent as ENVELOPE messages, others as SYM_MSG messages;
+     * key establishment with first contacts and encryption happen on worker
+     * threads. Messages to the same destination are sent in the order of the
+     * calls; messages to different destinations are encrypted in parallel.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @return Completed when the message reaches the socket; exceptionally if
+     * sending fails.
+     * @see Sender
+     */
+    public CompletableFuture<Void> sendAsync(PlainMessage msg) {
+        return dispatch(new OutboundQueue.Entry(outboundIds.incrementAndGet(), msg));
+    }
+
+    /**
+     * Sends a message asynchronously, or holds it while the connection is
+     * down.
+     *
+     * <p>
+     * Messages that fail because the connection was lost are held too, and
+     * sent again after reconnecting, with the same number: the recipient drops
+     * them if the first copy got through.
+     * </p>
+     *
+     * @since 1.1
+     * @param entry
+     * @return Completed when the message reaches the socket.
+     */
+    private CompletableFuture<Void> dispatch(OutboundQueue.Entry entry) {
+        if (reconnecting || replayPending) {
+            hold(entry);
+            return entry.getDone();
+        }
+
+        PlainMessage msg = entry.getMessage();
+        Sender.Send send;
+        if (Destination.BROADCAST.name().equals(msg.getDestination())) {
+            send = () -> sendEnvelope(msg, entry.getId());
+        } else {
+            send = () -> sendSYMMessage(msg, entry.getId());
+        }
+
+        sender.submit(msg.getDestination(), send).whenComplete((Void sent, Throwable ex) -> settle(entry, ex));
+        return entry.getDone();
+    }
+
+    /**
+     * Completes a message sent asynchronously, or holds it if it failed
+     * because the connection was lost.
+     *
+     * <p>
+     * A broadcast that left users out is not held: it already reached the
+     * others, and is failed with the users missing.
+     * </p>
+     *
+     * @since 1.1
+     * @param entry
+     * @param ex Failure; null, if the message was sent.
+     */
+    private void settle(OutboundQueue.Entry entry, Throwable ex) {
+        if (ex == null) {
+            entry.getDone().complete(null);
+        } else if (ex instanceof MissingRecipientsException) {
+            entry.getDone().completeExceptionally(ex);
+        } else if (autoReconnect && (reconnecting || ex instanceof SocketException)) {
+            hold(entry);
+        } else {
+            entry.getDone().completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Holds a message until the connection is restored.
+     *
+     * @since 1.1
+     * @param entry
+     */
+    private void hold(OutboundQueue.Entry entry) {
+        if (!outbound.hold(entry)) {
+            entry.getDone().completeExceptionally(new IOException("Too many messages waiting for the connection."));
+        }
+    }
+
+    /**
+     * Sends the messages held, in the order they were first sent.
+     *
+     * <p>
+     * Called once the user list is received after reconnecting, so the
+     * destinations are known again.
+     * </p>
+     *
+     * @since 1.1
+     */
+    private void replay() {
+        if (!replayPending) {
+            return;
+        }
+        replayPending = false;
+        for (OutboundQueue.Entry entry : outbound.drain()) {
+            dispatch(entry);
+        }
+    }
+
+    /**
+     * Enables or disables automatic reconnection.
+     *
+     * <p>
+     * When disabled, a lost connection logs the user out.
+     * </p>
+     *
+     * @since 1.1
+     * @param autoReconnect
+     */
+    public void setAutoReconnect(boolean autoReconnect) {
+        this.autoReconnect = autoReconnect;
+    }
+
+    /**
+     * Verifies if the client is restoring a lost connection.
+     *
+     * @since 1.1
+     * @return
+     * <ul>
+     * <li>true: if the client is reconnecting;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    public boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    /**
+     * Handles the loss of the connection to the server.
+     *
+     * <p>
+     * The session is resumed, or a new login is made with the same name, on
+     * a background thread, waiting longer after each failed attempt. Clients
+     * on a host use its timer instead.
+     * </p>
+     *
+     * @since 1.1
+     * @param cause
+     * @see Backoff
+     */
+    private void connectionLost(IOException cause) {
+        if (name == null || reconnecting) {
+            return;
+        }
+        if (!autoReconnect) {
+            try {
+                logout(false);
+            } catch (Exception ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            return;
+        }
+
+        reconnecting = true;
+        replayPending = true;
+        ticketExpires = Math.min(ticketExpires, System.currentTimeMillis() + ticketValidity);
+        pcs.firePropertyChange(ClientEvents.CONNECTION_LOST.name(), null, cause);
+
+        Backoff backoff = new Backoff(RECONNECT_BASE_MILLIS, RECONNECT_MAX_MILLIS);
+        if (host != null) {
+            scheduleReconnection(backoff);
+            return;
+        }
+
+        Thread reconnector = new Thread(() -> {
+            try {
+                do {
+                    Thread.sleep(backoff.next());
+                } while (!reconnect(backoff));
+            } catch (InterruptedException ex) {
+            }
+        }, "reconnector");
+        reconnector.setDaemon(true);
+        reconnector.start();
+    }
+
+    /**
+     * Schedules the next reconnection attempt on the host's timer.
+     *
+     * @since 1.1
+     * @param backoff
+     */
+    private void scheduleReconnection(Backoff backoff) {
+        host.getTimer().schedule(() -> {
+            if (!reconnect(backoff)) {
+                scheduleReconnection(backoff);
+            }
+        }, backoff.next(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Makes a reconnection attempt.
+     *
+     * @since 1.1
+     * @param backoff
+     * @return
+     * <ul>
+     * <li>true: if reconnected, or no longer reconnecting;</li>
+     * <li>false: if another attempt is needed.</li>
+     * </ul>
+     */
+    private boolean reconnect(Backoff backoff) {
+        if (!reconnecting) {
+            return true;
+        }
+        try {
+            discardChannel();
+            if (!resume()) {
+                login(name);
+            }
+            reconnecting = false;
+            pcs.firePropertyChange(ClientEvents.RECONNECTED.name(), null, backoff.getAttempts());
+            return true;
+        } catch (Exception ex) {
+            Logger.getLogger(RSAClient.class.getName()).log(Level.FINE, "Reconnection attempt " + backoff.getAttempts() + " failed.", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Closes the current channel, if any, without notifying the server.
+     *
+     * @since 1.1
+     */
+    private void discardChannel() {
+        if (!isConnected()) {
+            return;
+        }
+        try {
+            close();
+        } catch (Exception ex) {
+            Logger.getLogger(RSAClient.class.getName()).log(Level.FINE, null, ex);
+        }
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            Logger.getLogger(RSAClient.class.getName()).log(Level.FINE, null, ex);
+        }
+    }
+
+    /**
+     * Sends an ENVELOPE message to all users with a known public key.
+     *
+     * @since 1.1
+     * @param message
+     * @throws IOException
+     */
+    public void sendEnvelope(String message) throws IOException {
+        PlainMessage msg = new PlainMessage(name, Destination.BROADCAST.name(), message);
+        sendEnvelope(msg);
+    }
+
+    /**
+     * Send an ENVELOPE message.
+     *
+     * <p>
+     * The message is encrypted once under a fresh content key; the key is then
+     * encrypted for every recipient in parallel, on the common ForkJoin pool.
+     * Only public keys already known, received or in the key cache, are used:
+     * the sender never waits for a key. Missing keys are requested in the
+     * background, for the next broadcast, and the users left out are reported.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @throws MissingRecipientsException if some users were left out; the
+     * message was still sent to the others, unless none was left.
+     * @throws IOException
+     */
+    public void sendEnvelope(PlainMessage msg) throws IOException {
+        sendEnvelope(msg, 0);
+    }
+
+    /**
+     * Send a numbered ENVELOPE message.
+     *
+     * @since 1.1
+     * @param msg
+     * @param id Number of the message; 0, for none.
+     * @throws MissingRecipientsException if some users were left out.
+     * @throws IOException
+     * @see #sendAsync(PlainMessage)
+     */
+    private void sendEnvelope(PlainMessage msg, long id) throws IOException {
+        byte[] contentKey = newSessionKey();
+        BigInteger encodedKey = encode(contentKey);
+        AsymmetricCipher asymmetric = suite.getAsymmetric();
+        SymmetricCipher cipher = suite.getSymmetric();
+
+        List<User> recipients = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (User user : roster.getUsers().values()) {
+            if (user.getName().equals(name)) {
+                continue;
+            }
+            resolveKey(user);
+            if (user.getPublicKeyPair() != null) {
+                recipients.add(user);
+            } else {
+                missing.add(user.getName());
+                requestKey(user);
+            }
+        }
+        if (recipients.isEmpty() && !missing.isEmpty()) {
+            throw new MissingRecipientsException(missing, false);
+        }
+
+        Map<String, BigInteger> keys = recipients.parallelStream()
+                .collect(Collectors.toConcurrentMap(User::getName,
+                        (User user) -> asymmetric.encrypt(user.getPublicKeyPair(), encodedKey),
+                        (first, second) -> first,
+                        ConcurrentSkipListMap::new));
+
+        byte[] cipherText;
+
+        try (InputStream msgEncrypted = new ByteArrayInputStream(msg.getMessage().getBytes(RSAServer.CHARSET));
+                ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+
+            cipher.encrypt(msgEncrypted, contentKey, output);
+            cipherText = output.toByteArray();
+        }
+
+        sendMessage(new Envelope(name, msg.getDestination(), cipher.getName(), cipherText, keys, id));
+        newMessage(msg);
+        if (!missing.isEmpty()) {
+            throw new MissingRecipientsException(missing, true);
+        }
+    }
+
+    /**
+     * Generates a session key and send the the destination user.
+     *
+     * <p>
+     * Only the user with the lowest name of the pair should generate keys, see
+     * {@link #establishKey(User, boolean)}.
+     * </p>
+     *
+     * @since 1.0
+     * @param destination
+     * @throws IOException
+     */
+    public void shareKey(User destination) throws IOException {
+        byte[] newKey = newSessionKey();
+
+        destination.setKey(newKey);
+        sendKey(destination, newKey);
+
+        fireUpdated(destination);
+    }
+
+    /**
+     * Sends a session key, encrypted with RSA.
+     *
+     * @since 1.1
+     * @param destination
+     * @param key
+     * @throws IOException
+     */
+    private void sendKey(User destination, byte[] key) throws IOException {
+        BigInteger encryptedKey = suite.getAsymmetric().encrypt(destination.getPublicKeyPair(), encode(key));
+        sendMessage(new Key(name, destination.getName(), encryptedKey));
+    }
+
+    /**
+     * Verify if this client generates the session keys sent with RSA to a
+     * user: the user with the lowest name of the pair does.
+     *
+     * @since 1.1
+     * @param user
+     * @return
+     * <ul>
+     * <li>true: if this client's name is the lowest;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    boolean initiates(User user) {
+        return name != null && name.compareTo(user.getName()) < 0;
+    }
+
+    /**
+     * Answers a session key request: sends the key established with the
+     * requester, or a new one.
+     *
+     * @since 1.1
+     * @param user Requester.
+     * @throws IOException
+     */
+    void answerKey(User user) throws IOException {
+        if (user.getPublicKeyPair() == null) {
+            user = awaitKey(user);
+        }
+        synchronized (user) {
+            if (user.getKey() == null) {
+                shareKey(user);
+            } else {
+                sendKey(user, user.getKey());
+            }
+        }
+    }
+
+    /**
+     * Requests a session key from a user, and waits for it.
+     *
+     * @since 1.1
+     * @param user
+     * @return The user, as currently in the roster.
+     * @throws IOException if the key is not received in time.
+     */
+    private User awaitSessionKey(User user) throws IOException {
+        String userName = user.getName();
+        sendMessage(new SessionKeyRequest(name, userName));
+        long deadline = System.currentTimeMillis() + KEY_REQUEST_TIMEOUT;
+
+        synchronized (keyRequests) {
+            long remaining;
+            while (user != null && user.getKey() == null
+                    && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    keyRequests.wait(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                user = roster.get(userName);
+            }
+        }
+
+        if (user == null || user.getKey() == null) {
+            throw new IOException("Session key of " + userName + " not available.");
+        }
+        return user;
+    }
+
+    /**
+     * Establishes the session key with a user, if there is none yet.
+     *
+     * <p>
+     * The key is agreed, when possible, or sent with RSA. Safe to call
+     * concurrently: only the first call establishes the key.
+     * </p>
+     *
+     * <p>
+     * Keys sent with RSA are generated by the user with the lowest name of the
+     * pair, and requested by the other one; otherwise, both users could send
+     * keys to each other at the same time and end up with different keys.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @param transport If a key can be sent, or requested, when it cannot be
+     * agreed.
+     * @return The user, as currently in the roster.
+     * @throws IOException if the key is needed and can not be established.
+     */
+    User establishKey(User user, boolean transport) throws IOException {
+        synchronized (user) {
+            if (user.getKey() != null || agreeKey(user) || !transport) {
+                return user;
+            }
+            if (initiates(user) && user.getPublicKeyPair() != null) {
+                shareKey(user);
+                return user;
+            }
+        }
+        if (initiates(user)) {
+            return establishKey(awaitKey(user), true);
+        }
+        return awaitSessionKey(user);
+    }
+
+    /**
+     * Schedules the background establishment of a session key.
+     *
+     * <p>
+     * The user's public key is requested too, if not cached: broadcasts only
+     * reach users whose keys are known when they are sealed.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @see #sendEnvelope(PlainMessage)
+     */
+    private void scheduleKey(User user) {
+        if (canEstablishKey(user)) {
+            keyExchanger.schedule(user);
+        }
+        try {
+            requestKey(user);
+        } catch (IOException ex) {
+            Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Verify if a session key can be established with a user, without
+     * requesting keys.
+     *
+     * @since 1.1
+     * @param user
+     * @return
+     * <ul>
+     * <li>true: if there is no session key yet, and the user's public key or
+     * both agreement keys are known;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    private boolean canEstablishKey(User user) {
+        return user.getKey() == null && !user.getName().equals(name)
+                && (user.getPublicKeyPair() != null || (agreement != null && user.getAgreementKey() != null));
+    }
+
+    /**
+     * Establishes the session key with a user ahead of any other in
+     * background.
+     *
+     * <p>
+     * Interfaces should call this method once a user is selected as
+     * destination, before any message is written.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     */
+    public void prioritizeKey(User user) {
+        if (canEstablishKey(user)) {
+            keyExchanger.prioritize(user);
+        } else if (user.getKey() == null) {
+            try {
+                requestKey(user);
+            } catch (IOException ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Derives the session key with a user through key agreement.
+     *
+     * @since 1.1
+     * @param user
+     * @return
+     * <ul>
+     * <li>true: if the key was derived;</li>
+     * <li>false: if either side has not published an agreement key.</li>
+     * </ul>
+     */
+    private boolean agreeKey(User user) {
+        if (agreement == null || user.getAgreementKey() == null) {
+            return false;
+        }
+
+        try {
+            user.setKey(agreement.deriveKey(user.getAgreementKey(), SESSION_KEY_SIZE));
+            fireUpdated(user);
+            return true;
+        } catch (GeneralSecurityException ex) {
+            Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Verify if the client is connected to the server.
+     *
+     * @since 1.0
+     * @return
+     * <ul>
+     * <li>true: if the client is connected;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    boolean isConnected() {
         return (socket == null) ? false : !socket.isClosed();
     }
 
@@ -614,6 +2732,14 @@ public class RSAClient implements PropertyChangeListener, AutoCloseable {
      */
     @Override
     public void close() throws Exception {
+        keyExchanger.reset();
+        if (keyCacheFile != null) {
+            try {
+                keyCache.save(keyCacheFile);
+            } catch (IOException ex) {
+                Logger.getLogger(RSAClient.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
         receiver.close();
         out.close();
         socket.close();
@@ -0,0 +1,111 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Numbers of the messages received from each user, to drop duplicates.
+ *
+ * <p>
+ * A message sent again after a lost connection may have reached the server the
+ * first time; it carries the same number both times. Only the latest numbers
+ * of each user are remembered: duplicates are recent, since only messages in
+ * flight when the connection was lost are sent again. Messages without a
+ * number are always accepted.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see OutboundQueue
+ */
+public class ReceivedIds {
+
+    /**
+     * Numbers remembered per user.
+     *
+     * @since 1.1
+     */
+    private final int capacity;
+
+    /**
+     * Latest numbers received, by user, oldest first.
+     *
+     * @since 1.1
+     */
+    private final Map<String, LinkedHashSet<Long>> received = new HashMap<>();
+
+    /**
+     * Creates a filter.
+     *
+     * @since 1.1
+     * @param capacity Numbers remembered per user.
+     */
+    public ReceivedIds(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records a message.
+     *
+     * @since 1.1
+     * @param source User that sent the message.
+     * @param id Sender's number for the message; 0, for none.
+     * @return
+     * <ul>
+     * <li>true: if the message is new, or has no number;</li>
+     * <li>false: if it was already received.</li>
+     * </ul>
+     */
+    public synchronized boolean accept(String source, long id) {
+        if (id == 0) {
+            return true;
+        }
+        LinkedHashSet<Long> ids = received.computeIfAbsent(source, (String user) -> new LinkedHashSet<>());
+        if (!ids.add(id)) {
+            return false;
+        }
+        if (ids.size() > capacity) {
+            ids.remove(ids.iterator().next());
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the numbers of a user, whose session ended: a new session may
+     * number its messages anew.
+     *
+     * @since 1.1
+     * @param source
+     */
+    public synchronized void forget(String source) {
+        received.remove(source);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot of the user list of a RSA client.
+ *
+ * <p>
+ * The list of a snapshot never changes: every change to the list makes a new
+ * snapshot, with the next version number, from a copy of the previous one.
+ * Readers on any thread get a consistent list without locking, and can tell
+ * which {@link RosterChange}s it already includes by comparing versions.
+ * </p>
+ *
+ * <p>
+ * The users themselves are the client's, shared by the snapshots and not
+ * copied: their keys change in place, as they are established, and are seen
+ * by readers of any snapshot that holds them.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAClient#getRoster()
+ */
+public final class Roster {
+
+    /**
+     * Empty user list, version 0.
+     *
+     * @since 1.1
+     */
+    public static final Roster EMPTY = new Roster(0, new TreeMap<String, User>());
+
+    private final long version;
+    private final SortedMap<String, User> map;
+    private final SortedMap<String, User> users;
+
+    private Roster(long version, SortedMap<String, User> map) {
+        this.version = version;
+        this.map = map;
+        this.users = Collections.unmodifiableSortedMap(map);
+    }
+
+    /**
+     * Makes the next snapshot, with the changes made by an edit.
+     *
+     * @since 1.1
+     * @param edit Applies the changes to a copy of this snapshot's users.
+     * @return New snapshot.
+     */
+    public Roster edit(Consumer<? super SortedMap<String, User>> edit) {
+        SortedMap<String, User> copy = new TreeMap<>(map);
+        edit.accept(copy);
+        return new Roster(version + 1, copy);
+    }
+
+    /**
+     * Makes the next snapshot, replacing all users.
+     *
+     * @since 1.1
+     * @param users New users, by name.
+     * @return New snapshot.
+     */
+    public Roster replace(Map<String, User> users) {
+        return new Roster(version + 1, new TreeMap<>(users));
+    }
+
+    /**
+     * Makes the next snapshot, with the same users.
+     *
+     * <p>
+     * For changes to the users themselves, such as new keys: the list is not
+     * copied.
+     * </p>
+     *
+     * @since 1.1
+     * @return New snapshot.
+     */
+    public Roster touch() {
+        return new Roster(version + 1, map);
+    }
+
+    /**
+     * Returns the version of the snapshot.
+     *
+     * @since 1.1
+     * @return Number of changes made since the client was created.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the users.
+     *
+     * @since 1.1
+     * @return Unmodifiable map, in name order.
+     */
+    public SortedMap<String, User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Returns a user.
+     *
+     * @since 1.1
+     * @param userName
+     * @return User; null, if not on the list.
+     */
+    public User get(String userName) {
+        return map.get(userName);
+    }
+
+    /**
+     * Returns the number of users.
+     *
+     * @since 1.1
+     * @return Number of users.
+     */
+    public int size() {
+        return map.size();
+    }
+}
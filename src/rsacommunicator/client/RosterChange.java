@@ -0,0 +1,209 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Change in the user list of a RSA client.
+ *
+ * <p>
+ * Fired with {@link ClientEvents#ROSTER_CHANGE}, so interfaces can update only
+ * the users involved: users added or updated, users removed, or, when the
+ * whole list is replaced, every user.
+ * </p>
+ *
+ * <p>
+ * Each change carries the version of the {@link Roster} it produced, so
+ * readers of a snapshot can tell if it already includes the change.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable; the users themselves are the client's.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public final class RosterChange {
+
+    private final long version;
+    private final boolean reset;
+    private final List<User> updated;
+    private final List<String> removed;
+
+    private RosterChange(long version, boolean reset, Collection<User> updated, Collection<String> removed) {
+        this.version = version;
+        this.reset = reset;
+        this.updated = Collections.unmodifiableList(new ArrayList<>(updated));
+        this.removed = Collections.unmodifiableList(new ArrayList<>(removed));
+    }
+
+    /**
+     * Creates a change that replaces the whole user list.
+     *
+     * @since 1.1
+     * @param version Version of the roster after the change.
+     * @param users New user list.
+     * @return Change.
+     */
+    public static RosterChange reset(long version, Collection<User> users) {
+        return new RosterChange(version, true, users, Collections.<String>emptyList());
+    }
+
+    /**
+     * Creates a change of some users.
+     *
+     * @since 1.1
+     * @param version Version of the roster after the change.
+     * @param updated Users added or updated.
+     * @param removed Names of the users removed.
+     * @return Change.
+     */
+    public static RosterChange of(long version, Collection<User> updated, Collection<String> removed) {
+        return new RosterChange(version, false, updated, removed);
+    }
+
+    /**
+     * Creates a change of one user, added or updated.
+     *
+     * @since 1.1
+     * @param version Version of the roster after the change.
+     * @param user
+     * @return Change.
+     */
+    public static RosterChange updated(long version, User user) {
+        return of(version, Collections.singletonList(user), Collections.<String>emptyList());
+    }
+
+    /**
+     * Creates a change of one user, removed.
+     *
+     * @since 1.1
+     * @param version Version of the roster after the change.
+     * @param userName
+     * @return Change.
+     */
+    public static RosterChange removed(long version, String userName) {
+        return of(version, Collections.<User>emptyList(), Collections.singletonList(userName));
+    }
+
+    /**
+     * Combines consecutive changes into one.
+     *
+     * <p>
+     * The result has the same effect as applying the changes in order: it
+     * replaces the list if any of them did, and lists each user once, in name
+     * order, with the highest version among them.
+     * </p>
+     *
+     * @since 1.1
+     * @param changes Changes, in the order they happened.
+     * @return Combined change.
+     */
+    public static RosterChange merge(List<RosterChange> changes) {
+        if (changes.size() == 1) {
+            return changes.get(0);
+        }
+
+        boolean reset = false;
+        long version = 0;
+        Map<String, User> updated = new TreeMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        for (RosterChange change : changes) {
+            version = Math.max(version, change.version);
+            if (change.reset) {
+                reset = true;
+                updated.clear();
+                removed.clear();
+            }
+            for (String userName : change.removed) {
+                updated.remove(userName);
+                if (!reset) {
+                    removed.add(userName);
+                }
+            }
+            for (User user : change.updated) {
+                removed.remove(user.getName());
+                updated.put(user.getName(), user);
+            }
+        }
+        return new RosterChange(version, reset, updated.values(), removed);
+    }
+
+    /**
+     * Returns the version of the roster after the change.
+     *
+     * @since 1.1
+     * @return Version.
+     * @see Roster#getVersion()
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Verify if the whole user list was replaced.
+     *
+     * @since 1.1
+     * @return
+     * <ul>
+     * <li>true: if {@link #getUpdated()} is the new user list;</li>
+     * <li>false: if only the users listed changed.</li>
+     * </ul>
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * Returns the users added or updated.
+     *
+     * @since 1.1
+     * @return Users.
+     */
+    public List<User> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Returns the names of the users removed.
+     *
+     * @since 1.1
+     * @return User names.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous message sending.
+ *
+ * <p>
+ * Sends run on worker threads, so the caller never waits for key
+ * establishments, encryption or the socket. Sends to different destinations
+ * are encrypted in parallel; sends to the same destination run one after the
+ * other, in the order they were submitted, so they reach the socket in that
+ * order.
+ * </p>
+ *
+ * <p>
+ * Senders of many clients may share their workers, see
+ * {@link #newWorkers(int)}.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAClient#sendAsync(String, String)
+ */
+public class Sender implements AutoCloseable {
+
+    /**
+     * A send, as done by the synchronous methods of the client.
+     *
+     * @since 1.1
+     */
+    @FunctionalInterface
+    public interface Send {
+
+        /**
+         * Sends the message, returning after it is written to the socket.
+         *
+         * @since 1.1
+         * @throws IOException
+         */
+        void send() throws IOException;
+    }
+
+    /**
+     * Workers.
+     *
+     * @since 1.1
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * If the workers belong to this sender, rather than being shared.
+     *
+     * @since 1.1
+     */
+    private final boolean ownWorkers;
+
+    /**
+     * Last send submitted to each destination, while not completed.
+     *
+     * @since 1.1
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a sender.
+     *
+     * @since 1.1
+     * @param threads Maximum number of concurrent sends.
+     */
+    public Sender(int threads) {
+        this.workers = newWorkers(threads);
+        this.ownWorkers = true;
+    }
+
+    /**
+     * Creates a sender on shared workers.
+     *
+     * @since 1.1
+     * @param workers Workers made by {@link #newWorkers(int)}.
+     */
+    public Sender(ThreadPoolExecutor workers) {
+        this.workers = workers;
+        this.ownWorkers = false;
+    }
+
+    /**
+     * Creates workers for senders.
+     *
+     * @since 1.1
+     * @param threads Maximum number of concurrent sends.
+     * @return Workers.
+     */
+    public static ThreadPoolExecutor newWorkers(int threads) {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), (Runnable task) -> {
+            Thread worker = new Thread(task, "sender");
+            worker.setDaemon(true);
+            return worker;
+        });
+        workers.allowCoreThreadTimeOut(true);
+        return workers;
+    }
+
+    /**
+     * Submits a send to a destination.
+     *
+     * <p>
+     * The send starts once all sends previously submitted to the same
+     * destination are completed, successfully or not.
+     * </p>
+     *
+     * @since 1.1
+     * @param destination Destination's name, the ordering key.
+     * @param send
+     * @return Completed when the message reaches the socket; exceptionally if
+     * the send fails.
+     */
+    public CompletableFuture<Void> submit(String destination, Send send) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Runnable task = () -> {
+            try {
+                send.send();
+                done.complete(null);
+            } catch (Throwable ex) {
+                done.completeExceptionally(ex);
+            }
+        };
+
+        tails.compute(destination, (String key, CompletableFuture<Void> tail) -> {
+            if (tail == null) {
+                execute(task, done);
+            } else {
+                tail.whenComplete((Void result, Throwable ex) -> execute(task, done));
+            }
+            return done;
+        });
+        done.whenComplete((Void result, Throwable ex) -> tails.remove(destination, done));
+
+        return done;
+    }
+
+    /**
+     * Hands a task to the workers, failing its future if they are stopped.
+     *
+     * @since 1.1
+     * @param task
+     * @param done
+     */
+    private void execute(Runnable task, CompletableFuture<Void> done) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException ex) {
+            done.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Number of sends submitted and not started yet.
+     *
+     * @since 1.1
+     * @return Sends waiting for a worker; of all senders sharing them, if the
+     * workers are shared.
+     */
+    public int getPending() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * Stops the workers, if not shared; sends not started yet fail.
+     *
+     * @since 1.1
+     */
+    @Override
+    public void close() {
+        if (ownWorkers) {
+            workers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.AbstractListModel;
+
+/**
+ * List model of the message transcript.
+ *
+ * <p>
+ * Keeps the most recent lines in a ring buffer of fixed capacity, so memory
+ * stays flat however long the session is. Lines pushed out of the buffer are
+ * appended to a spill file, if one is set, and dropped from memory. Spill
+ * files hold plain text: they are created readable only by their owner, where
+ * the file system supports it.
+ * </p>
+ *
+ * <p>
+ * Instances must be used on the event dispatch thread only.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class TranscriptModel extends AbstractListModel<String> {
+
+    /**
+     * Default number of lines kept in memory.
+     *
+     * @since 1.1
+     */
+    public static final int CAPACITY = 10000;
+
+    private final String[] lines;
+    private int first;
+    private int size;
+
+    private final Path spillFile;
+    private Writer spill;
+    private boolean spillFailed;
+    private long spilled;
+
+    /**
+     * Creates a transcript with the default capacity.
+     *
+     * @since 1.1
+     * @param spillFile File where older lines are appended; null to discard
+     * them.
+     */
+    public TranscriptModel(Path spillFile) {
+        this(CAPACITY, spillFile);
+    }
+
+    /**
+     * Creates a transcript.
+     *
+     * @since 1.1
+     * @param capacity Number of lines kept in memory.
+     * @param spillFile File where older lines are appended; null to discard
+     * them.
+     */
+    public TranscriptModel(int capacity, Path spillFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.lines = new String[capacity];
+        this.spillFile = spillFile;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return lines[(first + index) % lines.length];
+    }
+
+    /**
+     * Appends lines, spilling the oldest ones if the buffer is full.
+     *
+     * <p>
+     * Listeners are notified once for the lines removed and once for the lines
+     * added.
+     * </p>
+     *
+     * @since 1.1
+     * @param newLines Lines, in order.
+     */
+    public void addAll(List<String> newLines) {
+        if (newLines.isEmpty()) {
+            return;
+        }
+
+        int capacity = lines.length;
+        int skipped = Math.max(0, newLines.size() - capacity);
+        int evicted = Math.min(size, Math.max(0, size + newLines.size() - skipped - capacity));
+
+        if (evicted > 0) {
+            for (int i = 0; i < evicted; i++) {
+                spill(lines[(first + i) % capacity]);
+                lines[(first + i) % capacity] = null;
+            }
+            first = (first + evicted) % capacity;
+            size -= evicted;
+            fireIntervalRemoved(this, 0, evicted - 1);
+        }
+
+        for (int i = 0; i < skipped; i++) {
+            spill(newLines.get(i));
+        }
+
+        int start = size;
+        for (int i = skipped; i < newLines.size(); i++) {
+            lines[(first + size) % capacity] = newLines.get(i);
+            size++;
+        }
+        fireIntervalAdded(this, start, size - 1);
+        flushSpill();
+    }
+
+    /**
+     * Returns the number of lines moved out of memory.
+     *
+     * @since 1.1
+     * @return Lines spilled, or discarded if there is no spill file.
+     */
+    public long getSpilled() {
+        return spilled;
+    }
+
+    /**
+     * Closes the spill file.
+     *
+     * @since 1.1
+     */
+    public void close() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException ex) {
+                Logger.getLogger(TranscriptModel.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            spill = null;
+        }
+    }
+
+    private void spill(String line) {
+        spilled++;
+        if (spillFile == null || spillFailed) {
+            return;
+        }
+        try {
+            if (spill == null) {
+                Files.createDirectories(spillFile.toAbsolutePath().getParent());
+                if (!Files.exists(spillFile)) {
+                    try {
+                        Files.createFile(spillFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+                    } catch (UnsupportedOperationException ex) {
+                        // Not a POSIX file system: permissions are left to the defaults.
+                        Files.createFile(spillFile);
+                    }
+                }
+                spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            spill.write(line);
+            spill.write('\n');
+        } catch (IOException ex) {
+            spillFailed = true;
+            Logger.getLogger(TranscriptModel.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void flushSpill() {
+        if (spill != null) {
+            try {
+                spill.flush();
+            } catch (IOException ex) {
+                Logger.getLogger(TranscriptModel.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+}
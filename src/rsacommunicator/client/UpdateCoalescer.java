@@ -0,0 +1,226 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import rsacommunicator.messages.PlainMessage;
+
+/**
+ * Coalesces the events of a RSA client into one interface update per frame.
+ *
+ * <p>
+ * Events are fired from the client's reader thread, one per message. This
+ * listener queues them and, about {@link #FRAME_MILLIS} after the first one,
+ * applies them all on the event dispatch thread: the roster changes merged into
+ * one {@link RosterChange}, and the new messages in a single list. Other events
+ * are delivered as they are, in order.
+ * </p>
+ *
+ * <p>
+ * The time spent on the event dispatch thread is measured, and logged once per
+ * second at {@link Level#FINE}.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class UpdateCoalescer implements PropertyChangeListener {
+
+    /**
+     * Interval between updates, in milliseconds.
+     *
+     * @since 1.1
+     */
+    public static final int FRAME_MILLIS = 16;
+
+    /**
+     * Interface updated.
+     *
+     * @since 1.1
+     */
+    public interface View extends PropertyChangeListener {
+
+        /**
+         * Applies a change in the user list.
+         *
+         * @since 1.1
+         * @param change
+         */
+        void updateUsers(RosterChange change);
+
+        /**
+         * Shows new messages.
+         *
+         * @since 1.1
+         * @param messages Messages, in arrival order.
+         */
+        void newMessages(List<PlainMessage> messages);
+    }
+
+    private final View view;
+    private final Queue<PropertyChangeEvent> events = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Timer timer;
+
+    /**
+     * Dispatch statistics: only updated on the event dispatch thread.
+     */
+    private volatile long dispatchNanos;
+    private volatile long dispatchedEvents;
+    private volatile long batches;
+    private long windowStart = System.nanoTime();
+    private long windowNanos;
+
+    /**
+     * Creates a coalescer.
+     *
+     * @since 1.1
+     * @param view Interface updated.
+     */
+    public UpdateCoalescer(View view) {
+        this.view = view;
+        timer = new Timer(FRAME_MILLIS, (event) -> flush());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Queues an event.
+     *
+     * @since 1.1
+     * @param evt Event fired by the client, from any thread.
+     */
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        events.add(evt);
+        if (scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(timer::restart);
+        }
+    }
+
+    /**
+     * Applies the queued events; runs on the event dispatch thread.
+     *
+     * @since 1.1
+     */
+    private void flush() {
+        scheduled.set(false);
+        long start = System.nanoTime();
+
+        List<RosterChange> changes = new ArrayList<>();
+        List<PlainMessage> messages = new ArrayList<>();
+        long count = 0;
+        PropertyChangeEvent evt;
+        while ((evt = events.poll()) != null) {
+            count++;
+            switch (ClientEvents.valueOf(evt.getPropertyName())) {
+                case ROSTER_CHANGE:
+                    changes.add((RosterChange) evt.getNewValue());
+                    break;
+                case NEW_MESSAGE:
+                    messages.add((PlainMessage) evt.getNewValue());
+                    break;
+                default:
+                    apply(changes, messages);
+                    view.propertyChange(evt);
+            }
+        }
+        apply(changes, messages);
+
+        long elapsed = System.nanoTime() - start;
+        dispatchNanos += elapsed;
+        dispatchedEvents += count;
+        batches++;
+        record(elapsed);
+    }
+
+    private void apply(List<RosterChange> changes, List<PlainMessage> messages) {
+        if (!changes.isEmpty()) {
+            view.updateUsers(RosterChange.merge(changes));
+            changes.clear();
+        }
+        if (!messages.isEmpty()) {
+            view.newMessages(new ArrayList<>(messages));
+            messages.clear();
+        }
+    }
+
+    /**
+     * Logs the time spent on the event dispatch thread, once per second.
+     */
+    private void record(long elapsed) {
+        windowNanos += elapsed;
+        long now = System.nanoTime();
+        if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            Logger.getLogger(UpdateCoalescer.class.getName()).log(Level.FINE,
+                    "Event dispatch thread busy {0} ms in the last {1} ms",
+                    new Object[]{TimeUnit.NANOSECONDS.toMillis(windowNanos), TimeUnit.NANOSECONDS.toMillis(now - windowStart)});
+            windowStart = now;
+            windowNanos = 0;
+        }
+    }
+
+    /**
+     * Returns the time spent applying updates on the event dispatch thread.
+     *
+     * @since 1.1
+     * @return Nanoseconds, since creation.
+     */
+    public long getDispatchNanos() {
+        return dispatchNanos;
+    }
+
+    /**
+     * Returns the number of events applied.
+     *
+     * @since 1.1
+     * @return Events, since creation.
+     */
+    public long getDispatchedEvents() {
+        return dispatchedEvents;
+    }
+
+    /**
+     * Returns the number of updates: one per frame with events.
+     *
+     * @since 1.1
+     * @return Updates, since creation.
+     */
+    public long getBatches() {
+        return batches;
+    }
+}
@@ -27,20 +27,38 @@
 package rsacommunicator.client;
 
 import java.io.Serializable;
-import java.math.BigInteger;
-import javafx.util.Pair;
+import rsacommunicator.crypto.KeyFingerprint;
+import rsacommunicator.crypto.RSAPublicKey;
 
 /**
  * Communicator User - client side.
  *
+ * <p>
+ * Keys are set by the message receiver and by background workers, and read
+ * from any thread: they are volatile.
+ * </p>
+ *
  * @author Victor de Lima Soares
  * @version 1.0
  */
 public class User implements Serializable{
 
+    /**
+     * Version of release 1.1: public keys are {@link RSAPublicKey}s, and users
+     * carry fingerprints, agreement keys and cipher suites; release 1.0
+     * clients can not read it.
+     *
+     * @since 1.1
+     */
+    private static final long serialVersionUID = 2L;
+
     private final String name;
-    private Pair<BigInteger, BigInteger> publicKeyPair;
-    private byte[] key;
+    private volatile RSAPublicKey publicKeyPair;
+    private volatile KeyFingerprint fingerprint;
+    private volatile byte[] agreementKey;
+    private volatile String cipherSuite;
+    private volatile byte[] key;
+    private transient volatile byte[] authenticationKey;
 
     public User(String name) {
         this.name = name;
@@ -69,6 +87,31 @@ public class User implements Serializable{
      */
     public void setKey(byte[] key) {
         this.key = key;
+        this.authenticationKey = null;
+    }
+
+    /**
+     * Returns the message authentication key, derived from the session key.
+     *
+     * @since 1.1
+     * @return Authentication key, or null if not derived yet.
+     */
+    public byte[] getAuthenticationKey() {
+        return authenticationKey;
+    }
+
+    /**
+     * Sets the message authentication key, derived from the session key.
+     *
+     * <p>
+     * Reset whenever the session key changes.
+     * </p>
+     *
+     * @since 1.1
+     * @param authenticationKey
+     */
+    public void setAuthenticationKey(byte[] authenticationKey) {
+        this.authenticationKey = authenticationKey;
     }
 
     /**
@@ -87,7 +130,7 @@ public class User implements Serializable{
      * @since 1.0
      * @return (n,e)
      */
-    public Pair<BigInteger, BigInteger> getPublicKeyPair() {
+    public RSAPublicKey getPublicKeyPair() {
         return publicKeyPair;
     }
 
@@ -97,8 +140,76 @@ public class User implements Serializable{
      * @since 1.0
      * @param publicKeyPair RSA pair (n,e)
      */
-    public void setPublicKey(Pair<BigInteger, BigInteger> publicKeyPair) {
+    public void setPublicKey(RSAPublicKey publicKeyPair) {
         this.publicKeyPair = publicKeyPair;
+        if (publicKeyPair != null) {
+            this.fingerprint = publicKeyPair.getFingerprint();
+        }
+    }
+
+    /**
+     * Return the public key fingerprint.
+     *
+     * <p>
+     * User lists carry fingerprints only: the public key itself may be
+     * unknown.
+     * </p>
+     *
+     * @since 1.1
+     * @return Fingerprint, or null if the user has no public key yet.
+     */
+    public KeyFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Attributes a public key fingerprint to this user, without the key.
+     *
+     * @since 1.1
+     * @param fingerprint
+     */
+    public void setFingerprint(KeyFingerprint fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Return the key agreement public key (ECDH).
+     *
+     * @since 1.1
+     * @return X.509 encoded public key, or null if the user did not publish one.
+     */
+    public byte[] getAgreementKey() {
+        return agreementKey;
+    }
+
+    /**
+     * Attributes a new key agreement public key (ECDH) to this user.
+     *
+     * @since 1.1
+     * @param agreementKey X.509 encoded public key.
+     */
+    public void setAgreementKey(byte[] agreementKey) {
+        this.agreementKey = agreementKey;
+    }
+
+    /**
+     * Return the cipher suite negotiated by this user.
+     *
+     * @since 1.1
+     * @return Suite name, or null if unknown.
+     */
+    public String getCipherSuite() {
+        return cipherSuite;
+    }
+
+    /**
+     * Attributes the cipher suite negotiated by this user.
+     *
+     * @since 1.1
+     * @param cipherSuite Suite name.
+     */
+    public void setCipherSuite(String cipherSuite) {
+        this.cipherSuite = cipherSuite;
     }
 
     @Override
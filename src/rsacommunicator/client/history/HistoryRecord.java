@@ -0,0 +1,113 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client.history;
+
+import rsacommunicator.messages.PlainMessage;
+
+/**
+ * A message stored in the {@link MessageHistory}.
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public final class HistoryRecord {
+
+    private final long position;
+    private final long timestamp;
+    private final String peer;
+    private final String source;
+    private final String destination;
+    private final String text;
+
+    HistoryRecord(long position, long timestamp, String peer, String source, String destination, String text) {
+        this.position = position;
+        this.timestamp = timestamp;
+        this.peer = peer;
+        this.source = source;
+        this.destination = destination;
+        this.text = text;
+    }
+
+    /**
+     * Returns the position of the record in the history log.
+     *
+     * @since 1.1
+     * @return Position: identifies the record.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns when the message was stored.
+     *
+     * @since 1.1
+     * @return Milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the conversation of the message.
+     *
+     * @since 1.1
+     * @return The other user, or the broadcast destination.
+     */
+    public String getPeer() {
+        return peer;
+    }
+
+    /**
+     * Returns the message.
+     *
+     * @since 1.1
+     * @return Message, as it was sent or received.
+     */
+    public PlainMessage toMessage() {
+        return new PlainMessage(source, destination, text);
+    }
+
+    /**
+     * Returns the message text.
+     *
+     * @since 1.1
+     * @return Text.
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return source + " -> " + destination + ": " + text;
+    }
+}
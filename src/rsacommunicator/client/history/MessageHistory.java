@@ -0,0 +1,657 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import rsacommunicator.messages.PlainMessage;
+
+/**
+ * Local message history: an append-only log of memory-mapped segment files.
+ *
+ * <p>
+ * Every record points to the previous record of the same conversation, and a
+ * sparse index keeps, per conversation, the position of every
+ * {@link #INDEX_INTERVAL}th record and of the last one. The last messages of a
+ * conversation, or any range of them, are read by following those pointers:
+ * other conversations are never scanned.
+ * </p>
+ *
+ * <p>
+ * Appends are queued and written in batches by a thread of the history, so
+ * callers, like the event dispatch thread, never wait for the disk.
+ * </p>
+ *
+ * <h3>Record format (big endian), in {@link #SEGMENT_SIZE} byte segments:</h3>
+ * <ul>
+ * <li>Length of the rest of the record: 4 bytes, written last; 0 ends the
+ * data in a segment;</li>
+ * <li>Timestamp: 8 bytes;</li>
+ * <li>Position of the previous record of the conversation: 8 bytes, -1 for
+ * the first;</li>
+ * <li>Peer, source and destination: each as a 2 byte length followed by its
+ * UTF-8 bytes;</li>
+ * <li>Text: 4 byte length followed by its UTF-8 bytes.</li>
+ * </ul>
+ *
+ * <p>
+ * The index is stored on close; records appended after it was stored are
+ * recovered from the log when the history is opened. So is the
+ * {@link SearchIndex}, updated as records are written.
+ * </p>
+ *
+ * <p>
+ * The history holds decrypted messages: its directory is only accessible by
+ * its owner (rwx------), and its files are created owner-only (rw-------), on
+ * POSIX file systems.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class MessageHistory implements Closeable {
+
+    /**
+     * Segment file size, in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int SEGMENT_SIZE = 1 << 24;
+
+    /**
+     * Records of a conversation between index entries.
+     *
+     * @since 1.1
+     */
+    public static final int INDEX_INTERVAL = 32;
+
+    /**
+     * Maximum number of records written in one batch.
+     *
+     * @since 1.1
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    private static final int MAGIC = 0x48535401;
+    private static final String INDEX_FILE = "history.idx";
+    private static final String SEARCH_FILE = "search.idx";
+    private static final int HEADER_SIZE = 4 + 8 + 8;
+    private static final Object STOP = new Object();
+
+    private final Path directory;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<String, Conversation> conversations = new HashMap<>();
+    private final BlockingQueue<Object> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private SearchIndex index;
+
+    /**
+     * Position of the next record.
+     */
+    private long end;
+    private volatile boolean closed;
+
+    private MessageHistory(Path directory) {
+        this.directory = directory;
+        writer = new Thread(this::write, "History writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Opens a history, creating it if needed.
+     *
+     * @since 1.1
+     * @param directory History directory.
+     * @return History.
+     * @throws IOException
+     */
+    public static MessageHistory open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try {
+            Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+        } catch (UnsupportedOperationException ex) {
+            // Not a POSIX file system: permissions are left to the defaults.
+        }
+        MessageHistory history = new MessageHistory(directory);
+        history.load();
+        history.writer.start();
+        return history;
+    }
+
+    /**
+     * Returns the history directory of a user, in a directory.
+     *
+     * @since 1.1
+     * @param directory
+     * @param userName
+     * @return History directory path; the name is escaped to be a valid file
+     * name.
+     */
+    public static Path directory(Path directory, String userName) {
+        try {
+            return directory.resolve(URLEncoder.encode(userName, "UTF-8"));
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Queues a message to be stored.
+     *
+     * @since 1.1
+     * @param peer Conversation: the other user, or the broadcast destination.
+     * @param msg
+     * @throws IllegalStateException If the history is closed.
+     */
+    public void append(String peer, PlainMessage msg) {
+        if (closed) {
+            throw new IllegalStateException("History closed.");
+        }
+        pending.add(new Pending(System.currentTimeMillis(), peer, msg));
+    }
+
+    /**
+     * Waits until the queued messages are stored, and forces them to disk.
+     *
+     * @since 1.1
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws IllegalStateException If the history is closed.
+     */
+    public void flush() throws IOException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("History closed.");
+        }
+        Flush done = new Flush();
+        pending.add(done);
+        try {
+            done.stored.get();
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Returns the conversations in the history.
+     *
+     * @since 1.1
+     * @return Peers, sorted.
+     */
+    public synchronized Set<String> getPeers() {
+        return new TreeSet<>(conversations.keySet());
+    }
+
+    /**
+     * Returns the number of messages of a conversation.
+     *
+     * @since 1.1
+     * @param peer
+     * @return Messages stored.
+     */
+    public synchronized long count(String peer) {
+        Conversation conversation = conversations.get(peer);
+        return conversation == null ? 0 : conversation.count;
+    }
+
+    /**
+     * Reads the last messages of a conversation.
+     *
+     * @since 1.1
+     * @param peer
+     * @param count Maximum number of messages.
+     * @return Messages, oldest first.
+     */
+    public synchronized List<HistoryRecord> last(String peer, int count) {
+        return read(peer, Math.max(0, count(peer) - count), count);
+    }
+
+    /**
+     * Reads messages of a conversation.
+     *
+     * @since 1.1
+     * @param peer
+     * @param from Index of the first message, in the conversation.
+     * @param count Maximum number of messages.
+     * @return Messages, oldest first.
+     */
+    public synchronized List<HistoryRecord> read(String peer, long from, int count) {
+        Conversation conversation = conversations.get(peer);
+        if (conversation == null || from < 0 || from >= conversation.count || count <= 0) {
+            return Collections.emptyList();
+        }
+
+        long to = Math.min(conversation.count, from + count) - 1;
+        long index;
+        long position;
+        long entry = (to + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        if (entry * INDEX_INTERVAL >= conversation.count) {
+            index = conversation.count - 1;
+            position = conversation.last;
+        } else {
+            index = entry * INDEX_INTERVAL;
+            position = conversation.entries[(int) entry];
+        }
+        for (; index > to; index--) {
+            position = previous(position);
+        }
+
+        HistoryRecord[] records = new HistoryRecord[(int) (to - from + 1)];
+        for (int i = records.length - 1; i >= 0; i--) {
+            records[i] = read(position);
+            position = previous(position);
+        }
+        return Arrays.asList(records);
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @since 1.1
+     * @param position Position of the record, as in
+     * {@link HistoryRecord#getPosition()}.
+     * @return Record.
+     */
+    public synchronized HistoryRecord read(long position) {
+        ByteBuffer segment = segments.get((int) (position / SEGMENT_SIZE)).duplicate();
+        segment.position((int) (position % SEGMENT_SIZE) + 4);
+        long timestamp = segment.getLong();
+        segment.getLong();
+        String peer = readString(segment, segment.getShort() & 0xFFFF);
+        String source = readString(segment, segment.getShort() & 0xFFFF);
+        String destination = readString(segment, segment.getShort() & 0xFFFF);
+        String text = readString(segment, segment.getInt());
+        return new HistoryRecord(position, timestamp, peer, source, destination, text);
+    }
+
+    /**
+     * Searches the messages.
+     *
+     * <p>
+     * Finds the messages with all the terms of the query, as split by
+     * {@link SearchIndex#terms(String)}. Messages still queued are not found.
+     * </p>
+     *
+     * @since 1.1
+     * @param query
+     * @param limit Maximum number of messages.
+     * @return Messages, most recent first.
+     */
+    public List<HistoryRecord> search(String query, int limit) {
+        long[] positions = index.search(query, limit);
+        List<HistoryRecord> records = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            records.add(read(position));
+        }
+        return records;
+    }
+
+    /**
+     * Stores the queued messages and the indexes, and stops the writer.
+     *
+     * @since 1.1
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            force();
+            saveIndex();
+            index.save(directory.resolve(SEARCH_FILE));
+        }
+    }
+
+    /**
+     * Writer loop: stores the queued messages in batches.
+     */
+    private void write() {
+        List<Object> batch = new ArrayList<>();
+        List<Flush> flushes = new ArrayList<>();
+        boolean stop = false;
+
+        while (!stop) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException ex) {
+                return;
+            }
+            pending.drainTo(batch, BATCH_SIZE - 1);
+
+            IOException failure = null;
+            synchronized (this) {
+                for (Object item : batch) {
+                    if (item instanceof Pending) {
+                        try {
+                            append((Pending) item);
+                        } catch (IOException | IllegalArgumentException ex) {
+                            Logger.getLogger(MessageHistory.class.getName()).log(Level.SEVERE, null, ex);
+                        }
+                    } else if (item == STOP) {
+                        stop = true;
+                    } else {
+                        flushes.add((Flush) item);
+                    }
+                }
+                if (!flushes.isEmpty()) {
+                    force();
+                }
+            }
+            flushes.forEach((Flush flush) -> flush.stored.complete(null));
+            flushes.clear();
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a record, at the end of the log.
+     */
+    private void append(Pending item) throws IOException {
+        byte[] peer = bytes(item.peer, 0xFFFF);
+        byte[] source = bytes(item.message.getSource(), 0xFFFF);
+        byte[] destination = bytes(item.message.getDestination(), 0xFFFF);
+        byte[] text = item.message.getMessage().getBytes(StandardCharsets.UTF_8);
+
+        int length = HEADER_SIZE - 4 + 2 + peer.length + 2 + source.length + 2 + destination.length + 4 + text.length;
+        if (4 + length > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Message too large for the history.");
+        }
+        if (end % SEGMENT_SIZE + 4 + length > SEGMENT_SIZE) {
+            end = (end / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+        }
+
+        Conversation conversation = conversations.get(item.peer);
+        if (conversation == null) {
+            conversation = new Conversation();
+            conversations.put(item.peer, conversation);
+        }
+
+        int offset = (int) (end % SEGMENT_SIZE);
+        ByteBuffer segment = segment((int) (end / SEGMENT_SIZE)).duplicate();
+        segment.position(offset + 4);
+        segment.putLong(item.timestamp);
+        segment.putLong(conversation.last);
+        segment.putShort((short) peer.length).put(peer);
+        segment.putShort((short) source.length).put(source);
+        segment.putShort((short) destination.length).put(destination);
+        segment.putInt(text.length).put(text);
+        segment.putInt(offset, length);
+
+        HistoryRecord record = new HistoryRecord(end, item.timestamp, item.peer,
+                item.message.getSource(), item.message.getDestination(), item.message.getMessage());
+        conversation.add(end);
+        end += 4 + length;
+        index.add(record, end);
+    }
+
+    /**
+     * Maps the segments, loads the indexes and recovers the records after
+     * them.
+     */
+    private void load() throws IOException {
+        while (Files.exists(segmentFile(segments.size()))) {
+            segment(segments.size());
+        }
+        loadIndex();
+
+        for (long position = recordAt(end); position >= 0; position = recordAt(end)) {
+            String peer = read(position).getPeer();
+            Conversation conversation = conversations.get(peer);
+            if (conversation == null) {
+                conversation = new Conversation();
+                conversations.put(peer, conversation);
+            }
+            conversation.add(position);
+            end = position + 4 + length(position);
+        }
+
+        try {
+            index = SearchIndex.load(directory.resolve(SEARCH_FILE));
+        } catch (IOException ex) {
+            Logger.getLogger(MessageHistory.class.getName()).log(Level.WARNING, "Search index not usable: rebuilding it.", ex);
+            index = new SearchIndex();
+        }
+        if (index.getEnd() > end) {
+            index = new SearchIndex();
+        }
+        for (long position = recordAt(index.getEnd()); position >= 0 && position < end; position = recordAt(index.getEnd())) {
+            index.add(read(position), position + 4 + length(position));
+        }
+    }
+
+    /**
+     * Finds the first record at or after a position.
+     *
+     * @return Position of the record, or -1 if there is none.
+     */
+    private long recordAt(long position) {
+        while (position / SEGMENT_SIZE < segments.size()) {
+            int offset = (int) (position % SEGMENT_SIZE);
+            int length = offset + 4 > SEGMENT_SIZE ? 0 : length(position);
+            if (length == 0) {
+                position = (position / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+                continue;
+            }
+            if (length < HEADER_SIZE - 4 || offset + 4 + length > SEGMENT_SIZE) {
+                return -1;
+            }
+            return position;
+        }
+        return -1;
+    }
+
+    private int length(long position) {
+        return segments.get((int) (position / SEGMENT_SIZE)).getInt((int) (position % SEGMENT_SIZE));
+    }
+
+    private void loadIndex() {
+        Path file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                return;
+            }
+            long indexEnd = input.readLong();
+            int peers = input.readInt();
+            Map<String, Conversation> loaded = new HashMap<>();
+            for (int i = 0; i < peers; i++) {
+                String peer = input.readUTF();
+                Conversation conversation = new Conversation();
+                conversation.count = input.readLong();
+                conversation.last = input.readLong();
+                conversation.entries = new long[input.readInt()];
+                for (int j = 0; j < conversation.entries.length; j++) {
+                    conversation.entries[j] = input.readLong();
+                }
+                loaded.put(peer, conversation);
+            }
+            if (indexEnd <= (long) segments.size() * SEGMENT_SIZE) {
+                conversations.putAll(loaded);
+                end = indexEnd;
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(MessageHistory.class.getName()).log(Level.WARNING, "History index not usable: rebuilding it.", ex);
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        // Temporary files are created owner-only.
+        Path temporary = Files.createTempFile(directory, null, null);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeLong(end);
+                output.writeInt(conversations.size());
+                for (Map.Entry<String, Conversation> entry : conversations.entrySet()) {
+                    Conversation conversation = entry.getValue();
+                    int entries = (int) ((conversation.count + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(conversation.count);
+                    output.writeLong(conversation.last);
+                    output.writeInt(entries);
+                    for (int i = 0; i < entries; i++) {
+                        output.writeLong(conversation.entries[i]);
+                    }
+                }
+            }
+            Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        while (segments.size() <= index) {
+            try (FileChannel channel = openSegment(segmentFile(segments.size()))) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE));
+            }
+        }
+        return segments.get(index);
+    }
+
+    private static FileChannel openSegment(Path file) throws IOException {
+        EnumSet<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return FileChannel.open(file, options, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException ex) {
+            // Not a POSIX file system: permissions are left to the defaults.
+            return FileChannel.open(file, options);
+        }
+    }
+
+    private Path segmentFile(int index) {
+        return directory.resolve(String.format("segment-%08d.log", index));
+    }
+
+    private void force() {
+        segments.forEach(MappedByteBuffer::force);
+    }
+
+    private long previous(long position) {
+        return segments.get((int) (position / SEGMENT_SIZE)).getLong((int) (position % SEGMENT_SIZE) + 4 + 8);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String text, int limit) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > limit) {
+            throw new IllegalArgumentException("Name too long for the history.");
+        }
+        return bytes;
+    }
+
+    /**
+     * Index of a conversation.
+     */
+    private static final class Conversation {
+
+        private long count;
+        private long last = -1;
+        private long[] entries = new long[4];
+
+        void add(long position) {
+            if (count % INDEX_INTERVAL == 0) {
+                int entry = (int) (count / INDEX_INTERVAL);
+                if (entry == entries.length) {
+                    entries = Arrays.copyOf(entries, Math.max(4, entries.length * 2));
+                }
+                entries[entry] = position;
+            }
+            count++;
+            last = position;
+        }
+    }
+
+    /**
+     * Message queued to be stored.
+     */
+    private static final class Pending {
+
+        private final long timestamp;
+        private final String peer;
+        private final PlainMessage message;
+
+        Pending(long timestamp, String peer, PlainMessage message) {
+            this.timestamp = timestamp;
+            this.peer = peer;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Flush request queued after the messages it waits for.
+     */
+    private static final class Flush {
+
+        private final CompletableFuture<Void> stored = new CompletableFuture<>();
+    }
+}
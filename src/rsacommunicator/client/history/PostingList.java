@@ -0,0 +1,224 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Posting list of a term: the ascending positions of the records with it.
+ *
+ * <p>
+ * Positions are stored as the difference to the previous one, in variable
+ * length bytes: 7 bits per byte, the high bit set on all but the last byte.
+ * Every {@link #BLOCK_SIZE} positions start a block, whose byte offset and
+ * preceding position are kept apart: blocks are decoded on their own, newest
+ * first, and membership tests decode a single block.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+final class PostingList {
+
+    /**
+     * Positions per block.
+     */
+    static final int BLOCK_SIZE = 128;
+
+    private byte[] bytes = new byte[4];
+    private int length;
+    private int count;
+    private long last;
+
+    /**
+     * Position before each block, and where each block starts in the bytes.
+     */
+    private long[] blockBase = new long[1];
+    private int[] blockOffset = new int[1];
+
+    /**
+     * Appends a position.
+     *
+     * @param position Larger than the last one.
+     */
+    void add(long position) {
+        if (count > 0 && position <= last) {
+            throw new IllegalArgumentException("Positions must be ascending.");
+        }
+        if (count % BLOCK_SIZE == 0) {
+            int block = count / BLOCK_SIZE;
+            if (block == blockBase.length) {
+                blockBase = Arrays.copyOf(blockBase, block * 2);
+                blockOffset = Arrays.copyOf(blockOffset, block * 2);
+            }
+            blockBase[block] = last;
+            blockOffset[block] = length;
+        }
+        if (length + 10 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+        }
+        long delta = position - last;
+        while ((delta & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        bytes[length++] = (byte) delta;
+        last = position;
+        count++;
+    }
+
+    /**
+     * Returns the number of positions.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the last position.
+     */
+    long last() {
+        return last;
+    }
+
+    /**
+     * Returns the number of blocks.
+     */
+    int blocks() {
+        return (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Decodes a block.
+     *
+     * @param block Block index.
+     * @return Positions of the block, ascending.
+     */
+    long[] decodeBlock(int block) {
+        long[] positions = new long[Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE)];
+        long position = blockBase[block];
+        int offset = blockOffset[block];
+        for (int i = 0; i < positions.length; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = bytes[offset++];
+                delta |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            position += delta;
+            positions[i] = position;
+        }
+        return positions;
+    }
+
+    /**
+     * Finds the block that would hold a position.
+     *
+     * @return Block index, or -1 if the position is before the first one.
+     */
+    private int blockOf(long position) {
+        int low = 0;
+        int high = blocks() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (middle == 0 || blockBase[middle] < position) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeInt(count);
+        output.writeInt(length);
+        output.write(bytes, 0, length);
+    }
+
+    static PostingList read(DataInput input) throws IOException {
+        PostingList encoded = new PostingList();
+        encoded.count = input.readInt();
+        encoded.length = input.readInt();
+        encoded.bytes = new byte[encoded.length];
+        input.readFully(encoded.bytes);
+
+        PostingList list = new PostingList();
+        long position = 0;
+        int offset = 0;
+        for (int i = 0; i < encoded.count; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = encoded.bytes[offset++];
+                delta |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            position += delta;
+            list.add(position);
+        }
+        return list;
+    }
+
+    /**
+     * Membership tests over a posting list, keeping the last block decoded.
+     *
+     * <p>
+     * Tests for nearby positions, as in a merge, decode each block once.
+     * </p>
+     */
+    static final class Cursor {
+
+        private final PostingList list;
+        private int block = -1;
+        private long[] positions;
+
+        Cursor(PostingList list) {
+            this.list = list;
+        }
+
+        boolean contains(long position) {
+            int target = list.blockOf(position);
+            if (target < 0) {
+                return false;
+            }
+            if (target != block) {
+                block = target;
+                positions = list.decodeBlock(target);
+            }
+            return Arrays.binarySearch(positions, position) >= 0;
+        }
+    }
+}
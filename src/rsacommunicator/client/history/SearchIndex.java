@@ -0,0 +1,267 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.client.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full-text index of the message history.
+ *
+ * <p>
+ * Maps every term to the {@link PostingList} of the records with it. Terms
+ * are the lower case runs of letters and digits of the message texts. Records
+ * are added as they are stored, in position order.
+ * </p>
+ *
+ * <p>
+ * Searches walk the shortest posting list of the query from its newest block
+ * back, testing each position against the other lists, and stop as soon as
+ * enough records match: the cost depends on the number of results wanted, not
+ * on the size of the history.
+ * </p>
+ *
+ * <h3>File format (big endian):</h3>
+ * <ul>
+ * <li>Magic number: 4 bytes;</li>
+ * <li>Position after the last record indexed: 8 bytes;</li>
+ * <li>Number of terms: 4 bytes;</li>
+ * <li>For each term: the term, in modified UTF-8, then its posting list:
+ * number of positions (4 bytes), length (4 bytes) and the encoded
+ * positions.</li>
+ * </ul>
+ *
+ * <p>
+ * Instances are thread safe.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class SearchIndex {
+
+    /**
+     * Longest term indexed, in characters: longer runs are skipped.
+     *
+     * @since 1.1
+     */
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private static final int MAGIC = 0x53494E01;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    /**
+     * Position after the last record indexed.
+     */
+    private long end;
+
+    /**
+     * Splits a text into terms.
+     *
+     * @since 1.1
+     * @param text
+     * @return Distinct terms, in order of appearance.
+     */
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Indexes a record.
+     *
+     * @since 1.1
+     * @param record Record after the ones already indexed.
+     * @param next Position after the record.
+     */
+    public synchronized void add(HistoryRecord record, long next) {
+        for (String term : terms(record.getText())) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(term, list);
+            }
+            if (list.size() == 0 || list.last() < record.getPosition()) {
+                list.add(record.getPosition());
+            }
+        }
+        end = next;
+    }
+
+    /**
+     * Returns the position after the last record indexed.
+     *
+     * @since 1.1
+     * @return Position.
+     */
+    public synchronized long getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @since 1.1
+     * @return Distinct terms indexed.
+     */
+    public synchronized int size() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the records with all the terms of a query.
+     *
+     * @since 1.1
+     * @param query Text: its terms are searched.
+     * @param limit Maximum number of positions.
+     * @return Positions of the matching records, most recent first.
+     */
+    public synchronized long[] search(String query, int limit) {
+        Set<String> terms = terms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList.Cursor[] others = new PostingList.Cursor[lists.size() - 1];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = new PostingList.Cursor(lists.get(i + 1));
+        }
+
+        PostingList shortest = lists.get(0);
+        long[] matches = new long[Math.min(limit, shortest.size())];
+        int found = 0;
+        for (int block = shortest.blocks() - 1; block >= 0 && found < matches.length; block--) {
+            long[] positions = shortest.decodeBlock(block);
+            for (int i = positions.length - 1; i >= 0 && found < matches.length; i--) {
+                if (containedInAll(others, positions[i])) {
+                    matches[found++] = positions[i];
+                }
+            }
+        }
+        return found == matches.length ? matches : Arrays.copyOf(matches, found);
+    }
+
+    private static boolean containedInAll(PostingList.Cursor[] cursors, long position) {
+        for (PostingList.Cursor cursor : cursors) {
+            if (!cursor.contains(position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the index in a file, replacing it.
+     *
+     * @since 1.1
+     * @param file Index file.
+     * @throws IOException
+     */
+    public synchronized void save(Path file) throws IOException {
+        // Temporary files are created owner-only.
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), null, null);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeLong(end);
+                output.writeInt(postings.size());
+                for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    entry.getValue().write(output);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Loads an index from a file.
+     *
+     * @since 1.1
+     * @param file Index file.
+     * @return Index; empty if the file does not exist.
+     * @throws IOException if the file is not a valid index.
+     */
+    public static SearchIndex load(Path file) throws IOException {
+        SearchIndex index = new SearchIndex();
+        if (!Files.exists(file)) {
+            return index;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a search index: " + file);
+            }
+            index.end = input.readLong();
+            int terms = input.readInt();
+            for (int i = 0; i < terms; i++) {
+                String term = input.readUTF();
+                index.postings.put(term, PostingList.read(input));
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+/**
+ * Bitsliced DES engine: encrypts 64 independent blocks per pass.
+ *
+ * <p>
+ * The 64 blocks are transposed so that each <code>long</code> holds the same
+ * bit of every block - one block per bit lane. Every step of DES then becomes
+ * a handful of bitwise operations over 64 blocks at once: permutations are just
+ * a different order of the lanes, and each S-box is evaluated as a boolean
+ * function of its six input bits.
+ * </p>
+ *
+ * <p>
+ * S-boxes are evaluated through their minterms: the six input bits are decoded
+ * into the 64 possible inputs and each output bit is the union of the inputs
+ * that set it. There are no table lookups indexed by data, so the running time
+ * does not depend on the key or the blocks.
+ * </p>
+ *
+ * <p>
+ * Instances hold working buffers and are not thread safe; the key schedule is
+ * cheap enough to create one engine per thread or per message.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class BitslicedDES {
+
+    /**
+     * Number of blocks processed per pass.
+     *
+     * @since 1.1
+     */
+    public static final int LANES = 64;
+
+    /**
+     * Block size in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int BLOCK_BYTES = 8;
+
+    private static final int[] IP = {
+        58, 50, 42, 34, 26, 18, 10, 2, 60, 52, 44, 36, 28, 20, 12, 4,
+        62, 54, 46, 38, 30, 22, 14, 6, 64, 56, 48, 40, 32, 24, 16, 8,
+        57, 49, 41, 33, 25, 17, 9, 1, 59, 51, 43, 35, 27, 19, 11, 3,
+        61, 53, 45, 37, 29, 21, 13, 5, 63, 55, 47, 39, 31, 23, 15, 7
+    };
+
+    private static final int[] FP = {
+        40, 8, 48, 16, 56, 24, 64, 32, 39, 7, 47, 15, 55, 23, 63, 31,
+        38, 6, 46, 14, 54, 22, 62, 30, 37, 5, 45, 13, 53, 21, 61, 29,
+        36, 4, 44, 12, 52, 20, 60, 28, 35, 3, 43, 11, 51, 19, 59, 27,
+        34, 2, 42, 10, 50, 18, 58, 26, 33, 1, 41, 9, 49, 17, 57, 25
+    };
+
+    private static final int[] E = {
+        32, 1, 2, 3, 4, 5, 4, 5, 6, 7, 8, 9, 8, 9, 10, 11,
+        12, 13, 12, 13, 14, 15, 16, 17, 16, 17, 18, 19, 20, 21, 20, 21,
+        22, 23, 24, 25, 24, 25, 26, 27, 28, 29, 28, 29, 30, 31, 32, 1
+    };
+
+    private static final int[] P = {
+        16, 7, 20, 21, 29, 12, 28, 17, 1, 15, 23, 26, 5, 18, 31, 10,
+        2, 8, 24, 14, 32, 27, 3, 9, 19, 13, 30, 6, 22, 11, 4, 25
+    };
+
+    private static final int[] PC1 = {
+        57, 49, 41, 33, 25, 17, 9, 1, 58, 50, 42, 34, 26, 18,
+        10, 2, 59, 51, 43, 35, 27, 19, 11, 3, 60, 52, 44, 36,
+        63, 55, 47, 39, 31, 23, 15, 7, 62, 54, 46, 38, 30, 22,
+        14, 6, 61, 53, 45, 37, 29, 21, 13, 5, 28, 20, 12, 4
+    };
+
+    private static final int[] PC2 = {
+        14, 17, 11, 24, 1, 5, 3, 28, 15, 6, 21, 10,
+        23, 19, 12, 4, 26, 8, 16, 7, 27, 20, 13, 2,
+        41, 52, 31, 37, 47, 55, 30, 40, 51, 45, 33, 48,
+        44, 49, 39, 56, 34, 53, 46, 42, 50, 36, 29, 32
+    };
+
+    private static final int[] SHIFTS = {1, 1, 2, 2, 2, 2, 2, 2, 1, 2, 2, 2, 2, 2, 2, 1};
+
+    private static final int[][] SBOXES = {
+        {
+            14, 4, 13, 1, 2, 15, 11, 8, 3, 10, 6, 12, 5, 9, 0, 7,
+            0, 15, 7, 4, 14, 2, 13, 1, 10, 6, 12, 11, 9, 5, 3, 8,
+            4, 1, 14, 8, 13, 6, 2, 11, 15, 12, 9, 7, 3, 10, 5, 0,
+            15, 12, 8, 2, 4, 9, 1, 7, 5, 11, 3, 14, 10, 0, 6, 13
+        }, {
+            15, 1, 8, 14, 6, 11, 3, 4, 9, 7, 2, 13, 12, 0, 5, 10,
+            3, 13, 4, 7, 15, 2, 8, 14, 12, 0, 1, 10, 6, 9, 11, 5,
+            0, 14, 7, 11, 10, 4, 13, 1, 5, 8, 12, 6, 9, 3, 2, 15,
+            13, 8, 10, 1, 3, 15, 4, 2, 11, 6, 7, 12, 0, 5, 14, 9
+        }, {
+            10, 0, 9, 14, 6, 3, 15, 5, 1, 13, 12, 7, 11, 4, 2, 8,
+            13, 7, 0, 9, 3, 4, 6, 10, 2, 8, 5, 14, 12, 11, 15, 1,
+            13, 6, 4, 9, 8, 15, 3, 0, 11, 1, 2, 12, 5, 10, 14, 7,
+            1, 10, 13, 0, 6, 9, 8, 7, 4, 15, 14, 3, 11, 5, 2, 12
+        }, {
+            7, 13, 14, 3, 0, 6, 9, 10, 1, 2, 8, 5, 11, 12, 4, 15,
+            13, 8, 11, 5, 6, 15, 0, 3, 4, 7, 2, 12, 1, 10, 14, 9,
+            10, 6, 9, 0, 12, 11, 7, 13, 15, 1, 3, 14, 5, 2, 8, 4,
+            3, 15, 0, 6, 10, 1, 13, 8, 9, 4, 5, 11, 12, 7, 2, 14
+        }, {
+            2, 12, 4, 1, 7, 10, 11, 6, 8, 5, 3, 15, 13, 0, 14, 9,
+            14, 11, 2, 12, 4, 7, 13, 1, 5, 0, 15, 10, 3, 9, 8, 6,
+            4, 2, 1, 11, 10, 13, 7, 8, 15, 9, 12, 5, 6, 3, 0, 14,
+            11, 8, 12, 7, 1, 14, 2, 13, 6, 15, 0, 9, 10, 4, 5, 3
+        }, {
+            12, 1, 10, 15, 9, 2, 6, 8, 0, 13, 3, 4, 14, 7, 5, 11,
+            10, 15, 4, 2, 7, 12, 9, 5, 6, 1, 13, 14, 0, 11, 3, 8,
+            9, 14, 15, 5, 2, 8, 12, 3, 7, 0, 4, 10, 1, 13, 11, 6,
+            4, 3, 2, 12, 9, 5, 15, 10, 11, 14, 1, 7, 6, 0, 8, 13
+        }, {
+            4, 11, 2, 14, 15, 0, 8, 13, 3, 12, 9, 7, 5, 10, 6, 1,
+            13, 0, 11, 7, 4, 9, 1, 10, 14, 3, 5, 12, 2, 15, 8, 6,
+            1, 4, 11, 13, 12, 3, 7, 14, 10, 15, 6, 8, 0, 5, 9, 2,
+            6, 11, 13, 8, 1, 4, 10, 7, 9, 5, 0, 15, 14, 2, 3, 12
+        }, {
+            13, 2, 8, 4, 6, 15, 11, 1, 10, 9, 3, 14, 5, 0, 12, 7,
+            1, 15, 13, 8, 10, 3, 7, 4, 12, 5, 6, 11, 0, 14, 9, 2,
+            7, 11, 4, 1, 9, 12, 14, 2, 0, 6, 10, 13, 15, 3, 5, 8,
+            2, 1, 14, 7, 4, 10, 8, 13, 15, 12, 9, 0, 3, 5, 6, 11
+        }
+    };
+
+    /**
+     * Minterms setting each S-box output bit: [S-box][output bit][...].
+     *
+     * <p>
+     * A minterm is the 6 bit S-box input, most significant bit first, as it
+     * arrives from the expansion.
+     * </p>
+     *
+     * @since 1.1
+     */
+    private static final int[][][] TERMS = new int[8][4][];
+
+    static {
+        for (int s = 0; s < 8; s++) {
+            for (int bit = 0; bit < 4; bit++) {
+                int[] terms = new int[64];
+                int count = 0;
+                for (int input = 0; input < 64; input++) {
+                    int row = ((input >>> 4) & 0x2) | (input & 0x1);
+                    int column = (input >>> 1) & 0xF;
+                    if (((SBOXES[s][row * 16 + column] >>> (3 - bit)) & 1) != 0) {
+                        terms[count++] = input;
+                    }
+                }
+                TERMS[s][bit] = java.util.Arrays.copyOf(terms, count);
+            }
+        }
+    }
+
+    /**
+     * Round keys, one mask (all zeros or all ones) per key bit.
+     *
+     * @since 1.1
+     */
+    private final long[][] subkeys = new long[16][48];
+
+    private final long[] left = new long[32];
+    private final long[] right = new long[32];
+    private final long[] expanded = new long[48];
+    private final long[] substituted = new long[32];
+    private final long[] preoutput = new long[64];
+    private final long[] minterms = new long[64];
+    private final long[] high = new long[8];
+    private final long[] low = new long[8];
+
+    /**
+     * Creates an engine for a key.
+     *
+     * @since 1.1
+     * @param key DES key: 8 bytes, parity bits are ignored.
+     */
+    public BitslicedDES(byte[] key) {
+        if (key.length != BLOCK_BYTES) {
+            throw new IllegalArgumentException("DES keys have " + BLOCK_BYTES + " bytes.");
+        }
+
+        boolean[] cd = new boolean[56];
+        for (int i = 0; i < 56; i++) {
+            int bit = PC1[i] - 1;
+            cd[i] = ((key[bit >>> 3] >>> (7 - (bit & 7))) & 1) != 0;
+        }
+
+        for (int round = 0; round < 16; round++) {
+            for (int shift = 0; shift < SHIFTS[round]; shift++) {
+                rotate(cd, 0);
+                rotate(cd, 28);
+            }
+            for (int i = 0; i < 48; i++) {
+                subkeys[round][i] = cd[PC2[i] - 1] ? -1L : 0L;
+            }
+        }
+    }
+
+    /**
+     * Rotates one 28 bit half of the key schedule register, one bit left.
+     */
+    private static void rotate(boolean[] cd, int offset) {
+        boolean first = cd[offset];
+        System.arraycopy(cd, offset + 1, cd, offset, 27);
+        cd[offset + 27] = first;
+    }
+
+    /**
+     * Encrypts 64 blocks in place.
+     *
+     * <p>
+     * Each block is a <code>long</code> read in big endian order: the first
+     * byte of the block is the most significant one.
+     * </p>
+     *
+     * @since 1.1
+     * @param blocks 64 blocks.
+     */
+    public void encrypt(long[] blocks) {
+        if (blocks.length != LANES) {
+            throw new IllegalArgumentException("Bitsliced DES works on " + LANES + " blocks.");
+        }
+
+        // After the transposition, blocks[i] holds bit i+1 of every block.
+        transpose(blocks);
+
+        for (int i = 0; i < 32; i++) {
+            left[i] = blocks[IP[i] - 1];
+            right[i] = blocks[IP[i + 32] - 1];
+        }
+
+        for (int round = 0; round < 16; round++) {
+            long[] subkey = subkeys[round];
+
+            for (int i = 0; i < 48; i++) {
+                expanded[i] = right[E[i] - 1] ^ subkey[i];
+            }
+            for (int s = 0; s < 8; s++) {
+                substitute(s);
+            }
+            for (int i = 0; i < 32; i++) {
+                long previous = right[i];
+                right[i] = left[i] ^ substituted[P[i] - 1];
+                left[i] = previous;
+            }
+        }
+
+        System.arraycopy(right, 0, preoutput, 0, 32);
+        System.arraycopy(left, 0, preoutput, 32, 32);
+        for (int i = 0; i < 64; i++) {
+            blocks[i] = preoutput[FP[i] - 1];
+        }
+
+        transpose(blocks);
+    }
+
+    /**
+     * Evaluates one S-box over all lanes.
+     *
+     * @param s S-box index.
+     */
+    private void substitute(int s) {
+        int in = s * 6;
+        decode(expanded[in], expanded[in + 1], expanded[in + 2], high);
+        decode(expanded[in + 3], expanded[in + 4], expanded[in + 5], low);
+
+        for (int h = 0; h < 8; h++) {
+            for (int l = 0; l < 8; l++) {
+                minterms[(h << 3) | l] = high[h] & low[l];
+            }
+        }
+
+        int out = s * 4;
+        for (int bit = 0; bit < 4; bit++) {
+            long value = 0;
+            for (int term : TERMS[s][bit]) {
+                value |= minterms[term];
+            }
+            substituted[out + bit] = value;
+        }
+    }
+
+    /**
+     * Decodes three bit lanes into the eight possible values.
+     */
+    private static void decode(long a, long b, long c, long[] values) {
+        long na = ~a;
+        long nb = ~b;
+        long nc = ~c;
+        long v00 = na & nb;
+        long v01 = na & b;
+        long v10 = a & nb;
+        long v11 = a & b;
+        values[0] = v00 & nc;
+        values[1] = v00 & c;
+        values[2] = v01 & nc;
+        values[3] = v01 & c;
+        values[4] = v10 & nc;
+        values[5] = v10 & c;
+        values[6] = v11 & nc;
+        values[7] = v11 & c;
+    }
+
+    /**
+     * Transposes a 64x64 bit matrix in place; its own inverse.
+     *
+     * <p>
+     * Row i, column j is the bit (63 - j) of <code>matrix[i]</code>.
+     * </p>
+     *
+     * @param matrix 64 rows.
+     */
+    static void transpose(long[] matrix) {
+        long mask = 0x00000000FFFFFFFFL;
+        for (int j = 32; j != 0; j >>>= 1, mask ^= (mask << j)) {
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+                long t = (matrix[k] ^ (matrix[k | j] >>> j)) & mask;
+                matrix[k] ^= t;
+                matrix[k | j] ^= (t << j);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import rsacommunicator.crypto.suite.SymmetricCipher;
+
+/**
+ * DES in counter mode (CTR), over the bitsliced engine.
+ *
+ * <p>
+ * The key stream is the encryption of consecutive counter blocks, starting at
+ * a random initial counter; the cipher text is the plain text XOR the key
+ * stream. Counter blocks are independent, so they are encrypted 64 at a time by
+ * {@link BitslicedDES}.
+ * </p>
+ *
+ * <p>
+ * For the same reason, large payloads are split in segments transformed in
+ * parallel on the common ForkJoin pool: the first bytes, up to the parallel
+ * threshold, are transformed sequentially; the rest, in batches of
+ * {@link #BATCH_BYTES}. The output is the same as the sequential one.
+ * </p>
+ *
+ * <h3>Format:</h3>
+ * <ul>
+ * <li>Initial counter: 8 bytes;</li>
+ * <li>Cipher text: as long as the plain text, no padding.</li>
+ * </ul>
+ *
+ * <p>
+ * Instances keep no state and can be shared between threads.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see BitslicedDES
+ */
+public class DESCounterMode implements SymmetricCipher {
+
+    /**
+     * Initial counter size in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int IV_SIZE = BitslicedDES.BLOCK_BYTES;
+
+    /**
+     * Bytes of key stream produced per engine pass.
+     *
+     * @since 1.1
+     */
+    public static final int PASS_BYTES = BitslicedDES.LANES * BitslicedDES.BLOCK_BYTES;
+
+    /**
+     * Bytes transformed by one parallel task.
+     *
+     * @since 1.1
+     */
+    public static final int SEGMENT_BYTES = 128 * PASS_BYTES;
+
+    /**
+     * Bytes read at once, past the parallel threshold.
+     *
+     * @since 1.1
+     */
+    public static final int BATCH_BYTES = 16 * SEGMENT_BYTES;
+
+    /**
+     * Default number of bytes transformed sequentially before switching to
+     * parallel segments.
+     *
+     * @since 1.1
+     */
+    public static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+    /**
+     * Source for initial counters.
+     *
+     * @since 1.1
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Number of bytes transformed sequentially before switching to parallel
+     * segments.
+     *
+     * @since 1.1
+     */
+    private final int parallelThreshold;
+
+    /**
+     * Creates a DES/CTR cipher with the default parallel threshold.
+     *
+     * @since 1.1
+     */
+    public DESCounterMode() {
+        this(PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Creates a DES/CTR cipher.
+     *
+     * @since 1.1
+     * @param parallelThreshold Number of bytes transformed sequentially before
+     * switching to parallel segments; {@link Integer#MAX_VALUE}, to always stay
+     * sequential.
+     */
+    public DESCounterMode(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Negative threshold: " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the number of bytes transformed sequentially before switching to
+     * parallel segments.
+     *
+     * @since 1.1
+     * @return Threshold in bytes.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    @Override
+    public String getName() {
+        return "DES/CTR";
+    }
+
+    @Override
+    public int getKeySize() {
+        return BitslicedDES.BLOCK_BYTES;
+    }
+
+    /**
+     * Encrypts a stream.
+     *
+     * @since 1.1
+     * @param input Plain text.
+     * @param key DES key: the first 8 bytes are used.
+     * @param output Initial counter followed by the cipher text.
+     * @throws IOException
+     */
+    @Override
+    public void encrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+        byte[] iv = new byte[IV_SIZE];
+        RANDOM.nextBytes(iv);
+        output.write(iv);
+
+        transform(input, Arrays.copyOf(key, getKeySize()), toLong(iv, 0), output);
+    }
+
+    /**
+     * Decrypts a stream.
+     *
+     * @since 1.1
+     * @param input Initial counter followed by the cipher text.
+     * @param key DES key: the first 8 bytes are used.
+     * @param output Plain text.
+     * @throws IOException
+     */
+    @Override
+    public void decrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+        byte[] iv = new byte[IV_SIZE];
+        if (read(input, iv) != IV_SIZE) {
+            throw new IOException("Missing initial counter.");
+        }
+
+        transform(input, Arrays.copyOf(key, getKeySize()), toLong(iv, 0), output);
+    }
+
+    /**
+     * XORs a stream with the key stream.
+     */
+    private void transform(InputStream input, byte[] key, long counter, OutputStream output) throws IOException {
+        BitslicedDES engine = new BitslicedDES(key);
+        byte[] buffer = new byte[PASS_BYTES];
+        long[] blocks = new long[BitslicedDES.LANES];
+
+        long transformed = 0;
+        int length;
+        while (transformed < parallelThreshold && (length = read(input, buffer)) > 0) {
+            apply(engine, counter, blocks, buffer, 0, length);
+            output.write(buffer, 0, length);
+            counter += BitslicedDES.LANES;
+            transformed += length;
+        }
+
+        if (transformed < parallelThreshold) {
+            return;
+        }
+
+        byte[] batch = new byte[BATCH_BYTES];
+        while ((length = read(input, batch)) > 0) {
+            applyParallel(key, counter, batch, length);
+            output.write(batch, 0, length);
+            counter += BATCH_BYTES / BitslicedDES.BLOCK_BYTES;
+        }
+    }
+
+    /**
+     * XORs the key stream into a buffer, one segment per task.
+     *
+     * <p>
+     * Engines keep working buffers, so each task has its own.
+     * </p>
+     *
+     * @since 1.1
+     * @param key DES key.
+     * @param counter Counter of the first block.
+     * @param data Data to transform.
+     * @param length Bytes to transform.
+     */
+    static void applyParallel(byte[] key, long counter, byte[] data, int length) {
+        IntStream.range(0, (length + SEGMENT_BYTES - 1) / SEGMENT_BYTES).parallel().forEach((int segment) -> {
+            BitslicedDES engine = new BitslicedDES(key);
+            long[] blocks = new long[BitslicedDES.LANES];
+
+            int end = Math.min(length, (segment + 1) * SEGMENT_BYTES);
+            for (int offset = segment * SEGMENT_BYTES; offset < end; offset += PASS_BYTES) {
+                apply(engine, counter + offset / BitslicedDES.BLOCK_BYTES, blocks, data, offset, Math.min(PASS_BYTES, end - offset));
+            }
+        });
+    }
+
+    /**
+     * XORs up to one pass of key stream into a buffer.
+     *
+     * @since 1.1
+     * @param engine Engine with the key in use.
+     * @param counter Counter of the first block.
+     * @param blocks Working buffer, 64 blocks.
+     * @param data Data to transform.
+     * @param offset First byte to transform.
+     * @param length Bytes to transform, up to {@link #PASS_BYTES}.
+     */
+    static void apply(BitslicedDES engine, long counter, long[] blocks, byte[] data, int offset, int length) {
+        for (int i = 0; i < BitslicedDES.LANES; i++) {
+            blocks[i] = counter + i;
+        }
+        engine.encrypt(blocks);
+
+        for (int i = 0; i < length; i++) {
+            data[offset + i] ^= (byte) (blocks[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends.
+     *
+     * @return Bytes read.
+     */
+    private static int read(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        int count;
+        while (total < buffer.length && (count = input.read(buffer, total, buffer.length - total)) > 0) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Reads a big endian long.
+     */
+    static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import javax.crypto.KeyAgreement;
+import rsacommunicator.crypto.suite.KeyAgreementScheme;
+
+/**
+ * Elliptic curve Diffie-Hellman key agreement.
+ *
+ * <p>
+ * Each client publishes the public half of an ECDH key pair; two clients that
+ * know each other's public halves derive the same session key locally, without
+ * exchanging any message.
+ * </p>
+ *
+ * <p>
+ * The derived session key is the first bytes of
+ * SHA-256(label || shared secret).
+ * </p>
+ *
+ * <p>
+ * Key pairs can be stored and restored ({@link #getEncoded()}): a client that
+ * keeps its key pair across launches derives the same session keys again.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class ECDHAgreement implements KeyAgreementScheme.Party {
+
+    /**
+     * Curve used for the key pairs.
+     *
+     * @since 1.1
+     */
+    public static final String CURVE = "secp256r1";
+
+    /**
+     * Label mixed into the key derivation.
+     *
+     * @since 1.1
+     */
+    private static final byte[] LABEL = "RSA communicator session key".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * ECDH as a key agreement scheme for cipher suites.
+     *
+     * @since 1.1
+     */
+    public static final KeyAgreementScheme SCHEME = new KeyAgreementScheme() {
+
+        @Override
+        public String getName() {
+            return "ECDH/" + CURVE;
+        }
+
+        @Override
+        public KeyAgreementScheme.Party newParty() throws GeneralSecurityException {
+            return new ECDHAgreement();
+        }
+
+        @Override
+        public KeyAgreementScheme.Party restoreParty(byte[] encoded) throws GeneralSecurityException {
+            return new ECDHAgreement(encoded);
+        }
+    };
+
+    /**
+     * Key pair for this side of the agreement.
+     *
+     * @since 1.1
+     */
+    private final KeyPair keyPair;
+
+    /**
+     * Creates a new key pair for agreements.
+     *
+     * @since 1.1
+     * @throws GeneralSecurityException if the platform does not support ECDH.
+     */
+    public ECDHAgreement() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(CURVE));
+        keyPair = generator.generateKeyPair();
+    }
+
+    /**
+     * Restores a key pair for agreements.
+     *
+     * @since 1.1
+     * @param encoded Form returned by {@link #getEncoded()}.
+     * @throws GeneralSecurityException if the form is not a valid key pair.
+     */
+    public ECDHAgreement(byte[] encoded) throws GeneralSecurityException {
+        if (encoded.length < 2) {
+            throw new InvalidKeySpecException("Truncated key pair.");
+        }
+        int privateLength = ((encoded[0] & 0xFF) << 8) | (encoded[1] & 0xFF);
+        if (encoded.length < 2 + privateLength) {
+            throw new InvalidKeySpecException("Truncated key pair.");
+        }
+        KeyFactory factory = KeyFactory.getInstance("EC");
+        keyPair = new KeyPair(
+                factory.generatePublic(new X509EncodedKeySpec(Arrays.copyOfRange(encoded, 2 + privateLength, encoded.length))),
+                factory.generatePrivate(new PKCS8EncodedKeySpec(Arrays.copyOfRange(encoded, 2, 2 + privateLength))));
+    }
+
+    /**
+     * Returns the public half of the key pair, X.509 encoded.
+     *
+     * @since 1.1
+     * @return Encoded public key.
+     */
+    @Override
+    public byte[] getPublicKey() {
+        return keyPair.getPublic().getEncoded();
+    }
+
+    /**
+     * Returns the key pair: the PKCS#8 private key, prefixed by its length in
+     * two bytes, followed by the X.509 public key.
+     *
+     * @since 1.1
+     * @return Encoded key pair.
+     */
+    @Override
+    public byte[] getEncoded() {
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+
+        byte[] encoded = new byte[2 + privateKey.length + publicKey.length];
+        encoded[0] = (byte) (privateKey.length >>> 8);
+        encoded[1] = (byte) privateKey.length;
+        System.arraycopy(privateKey, 0, encoded, 2, privateKey.length);
+        System.arraycopy(publicKey, 0, encoded, 2 + privateKey.length, publicKey.length);
+        return encoded;
+    }
+
+    /**
+     * Derives the session key shared with a peer.
+     *
+     * @since 1.1
+     * @param peerPublicKey Peer's public key, X.509 encoded.
+     * @param keySize Session key size, in bytes (up to 32).
+     * @return Session key.
+     * @throws GeneralSecurityException if the peer's key is invalid.
+     */
+    @Override
+    public byte[] deriveKey(byte[] peerPublicKey, int keySize) throws GeneralSecurityException {
+        PublicKey peer = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(peerPublicKey));
+
+        KeyAgreement agreement = KeyAgreement.getInstance("ECDH");
+        agreement.init(keyPair.getPrivate());
+        agreement.doPhase(peer, true);
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(LABEL);
+        digest.update(agreement.generateSecret());
+
+        return Arrays.copyOf(digest.digest(), keySize);
+    }
+}
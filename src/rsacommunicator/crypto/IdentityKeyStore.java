@@ -0,0 +1,326 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import rsacommunicator.crypto.suite.KeyAgreementScheme;
+
+/**
+ * On-disk store for identity key pairs.
+ *
+ * <p>
+ * Keeps a client's RSA key pair across launches, so its public key does not
+ * change and peers can keep what they know about it. Key agreement key pairs
+ * are kept as well, one file per scheme: with the same agreement keys on both
+ * sides, peers derive the same session keys again, without any KEY exchange.
+ * Key files are small and binary, and are memory-mapped on load: no key
+ * generation nor text parsing happens at startup.
+ * </p>
+ *
+ * <h3>Format (big endian):</h3>
+ * <ul>
+ * <li>Magic number: 4 bytes, {@link #MAGIC};</li>
+ * <li>p, q, e, d mod (p - 1), d mod (q - 1) and q^-1 mod p, each as a 2 byte
+ * length followed by its magnitude.</li>
+ * </ul>
+ *
+ * <h3>Agreement key files:</h3>
+ * <ul>
+ * <li>Magic number: 4 bytes, {@link #AGREEMENT_MAGIC};</li>
+ * <li>The key pair, as {@link KeyAgreementScheme.Party#getEncoded()}, with a 2
+ * byte length.</li>
+ * </ul>
+ *
+ * <p>
+ * Files hold private keys: they are written atomically, and readable only by
+ * their owner where the file system supports it.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAKeyPair
+ */
+public final class IdentityKeyStore {
+
+    /**
+     * Magic number of key files: "RSK" and the format version.
+     *
+     * @since 1.1
+     */
+    public static final int MAGIC = 0x52534B01;
+
+    /**
+     * Extension of key files.
+     *
+     * @since 1.1
+     */
+    public static final String EXTENSION = ".key";
+
+    /**
+     * Magic number of agreement key files: "RSA" and the format version.
+     *
+     * @since 1.1
+     */
+    public static final int AGREEMENT_MAGIC = 0x52534101;
+
+    /**
+     * Extension of agreement key files.
+     *
+     * @since 1.1
+     */
+    public static final String AGREEMENT_EXTENSION = ".agreement";
+
+    /**
+     * Default directory for key files.
+     *
+     * @since 1.1
+     */
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".rsacommunicator", "identity");
+
+    private static final int PARAMETERS = 6;
+
+    private IdentityKeyStore() {
+    }
+
+    /**
+     * Returns the key file of a user, in a directory.
+     *
+     * @since 1.1
+     * @param directory
+     * @param userName
+     * @return Key file path; the name is escaped to be a valid file name.
+     */
+    public static Path file(Path directory, String userName) {
+        return directory.resolve(escape(userName) + EXTENSION);
+    }
+
+    /**
+     * Returns the agreement key file of a user, for a scheme, in a directory.
+     *
+     * @since 1.1
+     * @param directory
+     * @param userName
+     * @param scheme
+     * @return Agreement key file path; the names are escaped to be a valid
+     * file name.
+     */
+    public static Path agreementFile(Path directory, String userName, KeyAgreementScheme scheme) {
+        return directory.resolve(escape(userName) + "." + escape(scheme.getName()) + AGREEMENT_EXTENSION);
+    }
+
+    private static String escape(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Loads a key pair, generating and storing a new one if there is none.
+     *
+     * @since 1.1
+     * @param file Key file.
+     * @param bits Modulus size, in bits, for new key pairs.
+     * @return Key pair.
+     * @throws IOException if the file cannot be read, written or is corrupted.
+     */
+    public static RSAKeyPair loadOrCreate(Path file, int bits) throws IOException {
+        if (Files.exists(file)) {
+            return load(file);
+        }
+        RSAKeyPair keyPair = RSAKeyPair.generate(bits);
+        save(file, keyPair);
+        return keyPair;
+    }
+
+    /**
+     * Loads a key pair.
+     *
+     * @since 1.1
+     * @param file Key file.
+     * @return Key pair.
+     * @throws IOException if the file cannot be read or is corrupted.
+     */
+    public static RSAKeyPair load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an identity key file: " + file);
+            }
+
+            BigInteger[] parameters = new BigInteger[PARAMETERS];
+            for (int i = 0; i < PARAMETERS; i++) {
+                byte[] magnitude = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(magnitude);
+                parameters[i] = new BigInteger(1, magnitude);
+            }
+
+            return new RSAKeyPair(parameters[0], parameters[1], parameters[2], parameters[3], parameters[4], parameters[5],
+                    RSAKeyPair.DEFAULT_ENGINE);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Truncated identity key file: " + file, ex);
+        }
+    }
+
+    /**
+     * Stores a key pair, replacing the file if it exists.
+     *
+     * @since 1.1
+     * @param file Key file.
+     * @param keyPair
+     * @throws IOException
+     */
+    public static void save(Path file, RSAKeyPair keyPair) throws IOException {
+        BigInteger[] parameters = keyPair.getParameters();
+
+        int size = Integer.BYTES;
+        for (BigInteger parameter : parameters) {
+            size += Short.BYTES + (parameter.bitLength() + 7) / 8;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        for (BigInteger parameter : parameters) {
+            int length = (parameter.bitLength() + 7) / 8;
+            buffer.putShort((short) length);
+            buffer.put(RSAKeyPair.toBytes(parameter, length));
+        }
+        buffer.flip();
+
+        write(file, buffer);
+    }
+
+    /**
+     * Loads an agreement key pair, generating and storing a new one if there
+     * is none.
+     *
+     * @since 1.1
+     * @param file Agreement key file.
+     * @param scheme Scheme of the key pair.
+     * @return Party with the key pair.
+     * @throws IOException if the file cannot be read, written or is corrupted.
+     * @throws GeneralSecurityException if the scheme cannot create key pairs.
+     */
+    public static KeyAgreementScheme.Party loadOrCreateAgreement(Path file, KeyAgreementScheme scheme)
+            throws IOException, GeneralSecurityException {
+        if (Files.exists(file)) {
+            return loadAgreement(file, scheme);
+        }
+        KeyAgreementScheme.Party party = scheme.newParty();
+        saveAgreement(file, party);
+        return party;
+    }
+
+    /**
+     * Loads an agreement key pair.
+     *
+     * @since 1.1
+     * @param file Agreement key file.
+     * @param scheme Scheme of the key pair.
+     * @return Party with the key pair.
+     * @throws IOException if the file cannot be read or is corrupted.
+     */
+    public static KeyAgreementScheme.Party loadAgreement(Path file, KeyAgreementScheme scheme) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != AGREEMENT_MAGIC) {
+                throw new IOException("Not an agreement key file: " + file);
+            }
+
+            byte[] encoded = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(encoded);
+            return scheme.restoreParty(encoded);
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Truncated agreement key file: " + file, ex);
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Invalid agreement key file: " + file, ex);
+        }
+    }
+
+    /**
+     * Stores an agreement key pair, replacing the file if it exists.
+     *
+     * @since 1.1
+     * @param file Agreement key file.
+     * @param party
+     * @throws IOException
+     */
+    public static void saveAgreement(Path file, KeyAgreementScheme.Party party) throws IOException {
+        byte[] encoded = party.getEncoded();
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + encoded.length);
+        buffer.putInt(AGREEMENT_MAGIC);
+        buffer.putShort((short) encoded.length);
+        buffer.put(encoded);
+        buffer.flip();
+
+        write(file, buffer);
+    }
+
+    /**
+     * Writes a key file atomically, readable only by its owner.
+     */
+    private static void write(Path file, ByteBuffer buffer) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, null, EXTENSION);
+        try {
+            try {
+                Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ex) {
+                // Not a POSIX file system: permissions are left to the defaults.
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
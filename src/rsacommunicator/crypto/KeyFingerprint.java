@@ -0,0 +1,148 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Short fingerprint of an RSA public key.
+ *
+ * <p>
+ * The first {@link #SIZE} bytes of SHA-256 over the encoded form of the key
+ * (see {@link RSAPublicKey#getEncoded()}). Fingerprints identify public keys in user lists, in
+ * place of the keys themselves.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public final class KeyFingerprint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Fingerprint size, in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int SIZE = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] value;
+
+    private KeyFingerprint(byte[] value) {
+        this.value = value;
+    }
+
+    /**
+     * Computes the fingerprint of a public key.
+     *
+     * <p>
+     * Keys cache their fingerprints: prefer {@link RSAPublicKey#getFingerprint()}.
+     * </p>
+     *
+     * @since 1.1
+     * @param publicKey (n,e)
+     * @return Fingerprint.
+     */
+    public static KeyFingerprint of(RSAPublicKey publicKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(publicKey.encoded());
+            return new KeyFingerprint(Arrays.copyOf(digest.digest(), SIZE));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+
+    /**
+     * Creates a fingerprint from its bytes.
+     *
+     * @since 1.1
+     * @param bytes {@link #SIZE} bytes.
+     * @return Fingerprint.
+     */
+    public static KeyFingerprint fromBytes(byte[] bytes) {
+        if (bytes.length != SIZE) {
+            throw new IllegalArgumentException("Fingerprints have " + SIZE + " bytes.");
+        }
+        return new KeyFingerprint(bytes.clone());
+    }
+
+    /**
+     * Returns the fingerprint bytes.
+     *
+     * @since 1.1
+     * @return A copy of the bytes.
+     */
+    public byte[] getBytes() {
+        return value.clone();
+    }
+
+    /**
+     * Verify if this is the fingerprint of a public key.
+     *
+     * @since 1.1
+     * @param publicKey (n,e)
+     * @return
+     * <ul>
+     * <li>true: if the key has this fingerprint;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    public boolean matches(RSAPublicKey publicKey) {
+        return publicKey != null && equals(publicKey.getFingerprint());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof KeyFingerprint && Arrays.equals(value, ((KeyFingerprint) other).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        char[] hex = new char[value.length * 2];
+        for (int i = 0; i < value.length; i++) {
+            hex[2 * i] = HEX[(value[i] >>> 4) & 0xF];
+            hex[2 * i + 1] = HEX[value[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Montgomery modular arithmetic over fixed width limbs.
+ *
+ * <p>
+ * A context is created once per odd modulus, with every buffer an
+ * exponentiation needs; after that, {@link #modPow(long[], long[], int, long[])}
+ * does not allocate. Numbers are little endian arrays of 32 bit digits held in
+ * <code>long</code>s, so digit products plus carries always fit in 64 bits.
+ * </p>
+ *
+ * <h3>Algorithms:</h3>
+ * <ul>
+ * <li>Multiplication: CIOS (coarsely integrated operand scanning) Montgomery
+ * multiplication;</li>
+ * <li>Exponentiation: left to right sliding window, over odd powers of the
+ * base.</li>
+ * </ul>
+ *
+ * <p>
+ * Contexts hold working buffers and are not thread safe. Exponentiation time
+ * depends on the exponent bits: this is schoolbook RSA, not a side channel
+ * resistant implementation.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class Montgomery {
+
+    /**
+     * Digit mask.
+     *
+     * @since 1.1
+     */
+    private static final long MASK = 0xFFFFFFFFL;
+
+    /**
+     * Modulus digits.
+     *
+     * @since 1.1
+     */
+    private final long[] modulus;
+
+    /**
+     * Number of digits.
+     *
+     * @since 1.1
+     */
+    private final int size;
+
+    /**
+     * -modulus^-1 mod 2^32.
+     *
+     * @since 1.1
+     */
+    private final long inverse;
+
+    /**
+     * R^2 mod modulus, for conversions into the Montgomery domain.
+     *
+     * @since 1.1
+     */
+    private final long[] r2;
+
+    /**
+     * Window size, in bits.
+     *
+     * @since 1.1
+     */
+    private final int window;
+
+    /**
+     * Odd powers of the base: table[i] = base^(2i + 1).
+     *
+     * @since 1.1
+     */
+    private final long[][] table;
+
+    private final long[] product;
+    private final long[] accumulator;
+    private final long[] square;
+    private final long[] one;
+
+    /**
+     * Creates a context for an odd modulus.
+     *
+     * @since 1.1
+     * @param modulus Odd modulus.
+     */
+    public Montgomery(BigInteger modulus) {
+        if (modulus.signum() <= 0 || !modulus.testBit(0)) {
+            throw new IllegalArgumentException("Montgomery arithmetic requires an odd positive modulus.");
+        }
+
+        size = (modulus.bitLength() + 31) >>> 5;
+        this.modulus = toLimbs(modulus, size);
+
+        // Newton iteration for modulus^-1 mod 2^32: each step doubles the correct bits.
+        long x = this.modulus[0];
+        for (int i = 0; i < 5; i++) {
+            x = (x * (2 - this.modulus[0] * x)) & MASK;
+        }
+        inverse = (-x) & MASK;
+
+        r2 = toLimbs(BigInteger.ONE.shiftLeft(64 * size).mod(modulus), size);
+
+        window = size <= 16 ? 4 : (size <= 64 ? 5 : 6);
+        table = new long[1 << (window - 1)][size];
+
+        product = new long[size + 1];
+        accumulator = new long[size];
+        square = new long[size];
+        one = new long[size];
+        one[0] = 1;
+    }
+
+    /**
+     * Returns the number of 32 bit digits of this modulus.
+     *
+     * @since 1.1
+     * @return Number of digits.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Computes base^exponent mod modulus, without allocating.
+     *
+     * @since 1.1
+     * @param base Base digits, smaller than the modulus.
+     * @param exponent Exponent digits.
+     * @param exponentBits Exponent length in bits.
+     * @param result Result digits; can be the base itself.
+     */
+    public void modPow(long[] base, long[] exponent, int exponentBits, long[] result) {
+        if (exponentBits == 0) {
+            multiply(r2, one, result);
+            multiply(result, one, result);
+            return;
+        }
+
+        // Odd powers of the base, in the Montgomery domain.
+        multiply(base, r2, table[0]);
+        multiply(table[0], table[0], square);
+        for (int i = 1; i < table.length; i++) {
+            multiply(table[i - 1], square, table[i]);
+        }
+
+        // One, in the Montgomery domain.
+        multiply(r2, one, accumulator);
+
+        int i = exponentBits - 1;
+        while (i >= 0) {
+            if (!testBit(exponent, i)) {
+                multiply(accumulator, accumulator, accumulator);
+                i--;
+                continue;
+            }
+
+            // Longest window, up to its size, ending on a set bit.
+            int last = Math.max(i - window + 1, 0);
+            while (!testBit(exponent, last)) {
+                last++;
+            }
+
+            int value = 0;
+            for (int bit = i; bit >= last; bit--) {
+                multiply(accumulator, accumulator, accumulator);
+                value = (value << 1) | (testBit(exponent, bit) ? 1 : 0);
+            }
+            multiply(accumulator, table[value >>> 1], accumulator);
+
+            i = last - 1;
+        }
+
+        multiply(accumulator, one, result);
+    }
+
+    /**
+     * Computes base^exponent mod modulus.
+     *
+     * <p>
+     * Convenience method: converting the arguments and the result allocates.
+     * </p>
+     *
+     * @since 1.1
+     * @param base Base.
+     * @param exponent Non negative exponent.
+     * @return base^exponent mod modulus.
+     */
+    public BigInteger modPow(BigInteger base, BigInteger exponent) {
+        long[] value = toLimbs(base.mod(toBigInteger(modulus)), size);
+        long[] exponentLimbs = toLimbs(exponent, (exponent.bitLength() + 31) >>> 5);
+        modPow(value, exponentLimbs, exponent.bitLength(), value);
+        return toBigInteger(value);
+    }
+
+    /**
+     * Montgomery product: a * b * R^-1 mod modulus.
+     *
+     * <p>
+     * The output can be either operand.
+     * </p>
+     */
+    private void multiply(long[] a, long[] b, long[] out) {
+        long[] t = product;
+        long[] n = modulus;
+        Arrays.fill(t, 0);
+
+        for (int i = 0; i < size; i++) {
+            long ai = a[i];
+
+            // Multiplication and reduction of each digit in one pass.
+            long sum = t[0] + ai * b[0];
+            long m = (sum * inverse) & MASK;
+            long carry = sum >>> 32;
+            long reduced = (sum & MASK) + m * n[0];
+            long reducedCarry = reduced >>> 32;
+
+            for (int j = 1; j < size; j++) {
+                sum = t[j] + ai * b[j] + carry;
+                carry = sum >>> 32;
+                reduced = (sum & MASK) + m * n[j] + reducedCarry;
+                reducedCarry = reduced >>> 32;
+                t[j - 1] = reduced & MASK;
+            }
+
+            sum = t[size] + carry + reducedCarry;
+            t[size - 1] = sum & MASK;
+            t[size] = sum >>> 32;
+        }
+
+        if (t[size] != 0 || !lessThanModulus(t)) {
+            long borrow = 0;
+            for (int j = 0; j < size; j++) {
+                long difference = t[j] - modulus[j] - borrow;
+                t[j] = difference & MASK;
+                borrow = (difference >>> 63);
+            }
+        }
+
+        System.arraycopy(t, 0, out, 0, size);
+    }
+
+    /**
+     * Compares the low digits of a number with the modulus.
+     */
+    private boolean lessThanModulus(long[] t) {
+        for (int j = size - 1; j >= 0; j--) {
+            if (t[j] != modulus[j]) {
+                return t[j] < modulus[j];
+            }
+        }
+        return false;
+    }
+
+    private static boolean testBit(long[] number, int bit) {
+        return ((number[bit >>> 5] >>> (bit & 31)) & 1) != 0;
+    }
+
+    /**
+     * Converts a non negative number into digits.
+     *
+     * @since 1.1
+     * @param number Non negative number.
+     * @param size Number of digits.
+     * @return Little endian 32 bit digits.
+     */
+    public static long[] toLimbs(BigInteger number, int size) {
+        long[] limbs = new long[size];
+        for (int i = 0; i < size; i++) {
+            limbs[i] = number.shiftRight(32 * i).longValue() & MASK;
+        }
+        return limbs;
+    }
+
+    /**
+     * Converts digits into a number.
+     *
+     * @since 1.1
+     * @param limbs Little endian 32 bit digits.
+     * @return Non negative number.
+     */
+    public static BigInteger toBigInteger(long[] limbs) {
+        byte[] bytes = new byte[limbs.length * 4 + 1];
+        for (int i = 0; i < limbs.length; i++) {
+            int offset = bytes.length - 4 * (i + 1);
+            bytes[offset] = (byte) (limbs[i] >>> 24);
+            bytes[offset + 1] = (byte) (limbs[i] >>> 16);
+            bytes[offset + 2] = (byte) (limbs[i] >>> 8);
+            bytes[offset + 3] = (byte) limbs[i];
+        }
+        return new BigInteger(bytes);
+    }
+}
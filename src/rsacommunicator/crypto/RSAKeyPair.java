@@ -0,0 +1,396 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import rsacommunicator.crypto.suite.AsymmetricCipher;
+
+/**
+ * RSA key pair.
+ *
+ * <p>
+ * Schoolbook RSA (no padding), as the rest of the communicator. Private key
+ * operations use the Chinese remainder theorem: two exponentiations modulo
+ * each prime, half the size of the modulus.
+ * </p>
+ *
+ * <p>
+ * The exponentiations run on an {@link Engine}: by default, on
+ * <code>BigInteger.modPow</code>, which the JVM compiles to intrinsics and is
+ * the fastest in measurements ({@link rsacommunicator.benchmark.RSABenchmark});
+ * the {@link Montgomery} arithmetic core is used only when requested, with the
+ * <code>rsacommunicator.montgomery</code> system property or per key pair. Its
+ * contexts are reused by every operation: each concurrent caller takes one
+ * out of a pool, so operations run in parallel on either engine.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see Montgomery
+ */
+public class RSAKeyPair implements AsymmetricCipher.KeyPair {
+
+    /**
+     * Default public exponent.
+     *
+     * @since 1.1
+     */
+    public static final BigInteger PUBLIC_EXPONENT = BigInteger.valueOf(65537);
+
+    /**
+     * Engine of key pairs created without one: {@link Engine#MONTGOMERY} if
+     * the <code>rsacommunicator.montgomery</code> system property is true,
+     * {@link Engine#BIG_INTEGER} otherwise.
+     *
+     * @since 1.1
+     */
+    public static final Engine DEFAULT_ENGINE = Boolean.getBoolean("rsacommunicator.montgomery")
+            ? Engine.MONTGOMERY : Engine.BIG_INTEGER;
+
+    /**
+     * Modular exponentiation engines.
+     *
+     * @since 1.1
+     */
+    public enum Engine {
+
+        /**
+         * <code>BigInteger.modPow</code>.
+         */
+        BIG_INTEGER,
+        /**
+         * The {@link Montgomery} arithmetic core.
+         */
+        MONTGOMERY
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Engine engine;
+
+    private final BigInteger n;
+    private final BigInteger e;
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger exponentP;
+    private final BigInteger exponentQ;
+    private final BigInteger qInverse;
+    private final RSAPublicKey publicKey;
+
+    /**
+     * Private key contexts not in use, for the Montgomery engine.
+     *
+     * @since 1.1
+     */
+    private final Queue<PrivateContext> contexts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Private exponents for each prime, as digits; null, unless on the
+     * Montgomery engine.
+     *
+     * @since 1.1
+     */
+    private final long[] dP;
+    private final long[] dQ;
+
+    private final int dPBits;
+    private final int dQBits;
+
+    /**
+     * Creates a key pair from its primes, on the default engine.
+     *
+     * @since 1.1
+     * @param p First prime.
+     * @param q Second prime.
+     * @param e Public exponent, coprime with (p - 1)(q - 1).
+     */
+    public RSAKeyPair(BigInteger p, BigInteger q, BigInteger e) {
+        this(p, q, e, DEFAULT_ENGINE);
+    }
+
+    /**
+     * Creates a key pair from its primes.
+     *
+     * @since 1.1
+     * @param p First prime.
+     * @param q Second prime.
+     * @param e Public exponent, coprime with (p - 1)(q - 1).
+     * @param engine Exponentiation engine.
+     */
+    public RSAKeyPair(BigInteger p, BigInteger q, BigInteger e, Engine engine) {
+        this(p, q, e, e.modInverse(p.subtract(BigInteger.ONE)), e.modInverse(q.subtract(BigInteger.ONE)), q.modInverse(p), engine);
+    }
+
+    /**
+     * Creates a key pair from its primes and precomputed CRT parameters.
+     *
+     * @since 1.1
+     * @param p First prime.
+     * @param q Second prime.
+     * @param e Public exponent.
+     * @param exponentP d mod (p - 1).
+     * @param exponentQ d mod (q - 1).
+     * @param qInverse q^-1 mod p.
+     * @param engine Exponentiation engine.
+     */
+    RSAKeyPair(BigInteger p, BigInteger q, BigInteger e, BigInteger exponentP, BigInteger exponentQ, BigInteger qInverse,
+            Engine engine) {
+        this.engine = engine;
+        this.p = p;
+        this.q = q;
+        this.e = e;
+        this.exponentP = exponentP;
+        this.exponentQ = exponentQ;
+        this.qInverse = qInverse;
+        n = p.multiply(q);
+        publicKey = new RSAPublicKey(n, e);
+
+        dPBits = exponentP.bitLength();
+        dQBits = exponentQ.bitLength();
+        if (engine == Engine.MONTGOMERY) {
+            PrivateContext context = new PrivateContext();
+            dP = Montgomery.toLimbs(exponentP, context.moduloP.size());
+            dQ = Montgomery.toLimbs(exponentQ, context.moduloQ.size());
+            contexts.offer(context);
+        } else {
+            dP = dQ = null;
+        }
+    }
+
+    /**
+     * Generates a new key pair, on the default engine.
+     *
+     * @since 1.1
+     * @param bits Modulus size, in bits: from 512 to 4096.
+     * @return New key pair.
+     */
+    public static RSAKeyPair generate(int bits) {
+        return generate(bits, DEFAULT_ENGINE);
+    }
+
+    /**
+     * Generates a new key pair.
+     *
+     * @since 1.1
+     * @param bits Modulus size, in bits: from 512 to 4096.
+     * @param engine Exponentiation engine.
+     * @return New key pair.
+     */
+    public static RSAKeyPair generate(int bits, Engine engine) {
+        BigInteger p;
+        BigInteger q;
+        do {
+            p = BigInteger.probablePrime(bits - bits / 2, RANDOM);
+            q = BigInteger.probablePrime(bits / 2, RANDOM);
+        } while (p.equals(q)
+                || !p.subtract(BigInteger.ONE).gcd(PUBLIC_EXPONENT).equals(BigInteger.ONE)
+                || !q.subtract(BigInteger.ONE).gcd(PUBLIC_EXPONENT).equals(BigInteger.ONE)
+                || p.multiply(q).bitLength() != bits);
+
+        return new RSAKeyPair(p, q, PUBLIC_EXPONENT, engine);
+    }
+
+    /**
+     * Returns this key pair on another engine.
+     *
+     * @since 1.1
+     * @param engine Exponentiation engine.
+     * @return This key pair, if already on the engine; otherwise, a new key
+     * pair with the same keys.
+     */
+    public RSAKeyPair on(Engine engine) {
+        return (engine == this.engine) ? this : new RSAKeyPair(p, q, e, exponentP, exponentQ, qInverse, engine);
+    }
+
+    /**
+     * Returns the exponentiation engine.
+     *
+     * @since 1.1
+     * @return Engine.
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the private parameters, for storage: p, q, e, d mod (p - 1),
+     * d mod (q - 1) and q^-1 mod p.
+     *
+     * @since 1.1
+     * @return Parameters, in constructor order.
+     * @see IdentityKeyStore
+     */
+    BigInteger[] getParameters() {
+        return new BigInteger[]{p, q, e, exponentP, exponentQ, qInverse};
+    }
+
+    /**
+     * Return the (n,e) public key pair.
+     *
+     * @since 1.1
+     * @return (n,e)
+     */
+    @Override
+    public RSAPublicKey getPublicKeyPair() {
+        return publicKey;
+    }
+
+    /**
+     * Encrypts with this pair's public key.
+     *
+     * @since 1.1
+     * @param message Message, smaller than n.
+     * @return message^e mod n.
+     */
+    public BigInteger encrypt(BigInteger message) {
+        return encrypt(publicKey, message, engine);
+    }
+
+    /**
+     * Decrypts with this pair's private key.
+     *
+     * @since 1.1
+     * @param cipherText Cipher text, smaller than n.
+     * @return cipherText^d mod n.
+     */
+    @Override
+    public BigInteger decrypt(BigInteger cipherText) {
+        if (engine == Engine.MONTGOMERY) {
+            return decryptMontgomery(cipherText);
+        }
+        return combine(cipherText.modPow(exponentP, p), cipherText.modPow(exponentQ, q));
+    }
+
+    /**
+     * Decrypts on the Montgomery engine, with a context of the pool.
+     */
+    private BigInteger decryptMontgomery(BigInteger cipherText) {
+        PrivateContext context = contexts.poll();
+        if (context == null) {
+            context = new PrivateContext();
+        }
+        try {
+            Montgomery moduloP = context.moduloP;
+            Montgomery moduloQ = context.moduloQ;
+            moduloP.modPow(Montgomery.toLimbs(cipherText.mod(p), moduloP.size()), dP, dPBits, context.bufferP);
+            moduloQ.modPow(Montgomery.toLimbs(cipherText.mod(q), moduloQ.size()), dQ, dQBits, context.bufferQ);
+
+            return combine(Montgomery.toBigInteger(context.bufferP), Montgomery.toBigInteger(context.bufferQ));
+        } finally {
+            contexts.offer(context);
+        }
+    }
+
+    /**
+     * Garner's recombination of the CRT halves.
+     */
+    private BigInteger combine(BigInteger mP, BigInteger mQ) {
+        BigInteger h = qInverse.multiply(mP.subtract(mQ)).mod(p);
+
+        return mQ.add(h.multiply(q));
+    }
+
+    /**
+     * Encrypts with a public key, on the default engine.
+     *
+     * @since 1.1
+     * @param publicKey (n,e)
+     * @param message Message, smaller than n.
+     * @return message^e mod n.
+     */
+    public static BigInteger encrypt(RSAPublicKey publicKey, BigInteger message) {
+        return encrypt(publicKey, message, DEFAULT_ENGINE);
+    }
+
+    /**
+     * Encrypts with a public key.
+     *
+     * <p>
+     * On the Montgomery engine, the arithmetic context comes from the key's
+     * own cache: it is created once per key and concurrent caller, not once
+     * per call.
+     * </p>
+     *
+     * @since 1.1
+     * @param publicKey (n,e)
+     * @param message Message, smaller than n.
+     * @param engine Exponentiation engine.
+     * @return message^e mod n.
+     */
+    public static BigInteger encrypt(RSAPublicKey publicKey, BigInteger message, Engine engine) {
+        if (engine != Engine.MONTGOMERY) {
+            return message.modPow(publicKey.getExponent(), publicKey.getModulus());
+        }
+        Montgomery context = publicKey.acquireContext();
+        try {
+            long[] value = Montgomery.toLimbs(message, context.size());
+            context.modPow(value, publicKey.exponentDigits(), publicKey.getExponent().bitLength(), value);
+            return Montgomery.toBigInteger(value);
+        } finally {
+            publicKey.releaseContext(context);
+        }
+    }
+
+    /**
+     * Arithmetic contexts modulo each prime, and their working buffers.
+     */
+    private final class PrivateContext {
+
+        private final Montgomery moduloP = new Montgomery(p);
+        private final Montgomery moduloQ = new Montgomery(q);
+        private final long[] bufferP = new long[moduloP.size()];
+        private final long[] bufferQ = new long[moduloQ.size()];
+    }
+
+    /**
+     * Converts a number back into a fixed number of bytes.
+     *
+     * <p>
+     * Inverse of <code>new BigInteger(1, bytes)</code> for arrays of the given
+     * length.
+     * </p>
+     *
+     * @since 1.1
+     * @param number Non negative number.
+     * @param length Number of bytes.
+     * @return Big endian bytes, left padded with zeros.
+     */
+    public static byte[] toBytes(BigInteger number, int length) {
+        byte[] bytes = number.toByteArray();
+        if (bytes.length > length) {
+            return Arrays.copyOfRange(bytes, bytes.length - length, bytes.length);
+        }
+        byte[] padded = new byte[length];
+        System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+        return padded;
+    }
+}
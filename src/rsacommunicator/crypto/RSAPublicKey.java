@@ -0,0 +1,281 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * RSA public key (n,e).
+ *
+ * <p>
+ * Serialized in a compact binary form, instead of as two serialized
+ * BigIntegers: the modulus magnitude, prefixed by its length in two bytes,
+ * followed by the exponent magnitude, prefixed by its length in one byte.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable; the encoded form and the fingerprint are computed
+ * once, on first use. Keys also cache the {@link Montgomery} contexts of their
+ * modulus, for public key operations on that engine.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public final class RSAPublicKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final BigInteger modulus;
+    private final BigInteger exponent;
+
+    private transient volatile byte[] encoded;
+    private transient volatile KeyFingerprint fingerprint;
+
+    /**
+     * Montgomery contexts not in use, and the exponent digits they take.
+     *
+     * <p>
+     * Contexts are not thread safe: each caller takes one out, and returns it
+     * when done, so there are at most as many as concurrent callers.
+     * </p>
+     *
+     * @since 1.1
+     */
+    private final transient Queue<Montgomery> contexts = new ConcurrentLinkedQueue<>();
+    private transient volatile long[] exponentDigits;
+
+    /**
+     * Creates a public key.
+     *
+     * @since 1.1
+     * @param modulus n
+     * @param exponent e
+     */
+    public RSAPublicKey(BigInteger modulus, BigInteger exponent) {
+        if (modulus.signum() <= 0 || exponent.signum() <= 0) {
+            throw new IllegalArgumentException("Modulus and exponent must be positive.");
+        }
+        if (modulus.bitLength() > 0xFFFF * Byte.SIZE || exponent.bitLength() > 0xFF * Byte.SIZE) {
+            throw new IllegalArgumentException("Key too large to encode.");
+        }
+        this.modulus = modulus;
+        this.exponent = exponent;
+    }
+
+    /**
+     * Decodes a public key.
+     *
+     * @since 1.1
+     * @param encoded Form returned by {@link #getEncoded()}.
+     * @return Public key.
+     * @throws IllegalArgumentException If the bytes are not a valid encoding.
+     */
+    public static RSAPublicKey decode(byte[] encoded) {
+        if (encoded.length < 3) {
+            throw new IllegalArgumentException("Truncated public key.");
+        }
+        int modulusLength = ((encoded[0] & 0xFF) << 8) | (encoded[1] & 0xFF);
+        if (encoded.length < 3 + modulusLength) {
+            throw new IllegalArgumentException("Truncated public key.");
+        }
+        int exponentLength = encoded[2 + modulusLength] & 0xFF;
+        if (encoded.length != 3 + modulusLength + exponentLength) {
+            throw new IllegalArgumentException("Malformed public key.");
+        }
+        RSAPublicKey key = new RSAPublicKey(
+                new BigInteger(1, Arrays.copyOfRange(encoded, 2, 2 + modulusLength)),
+                new BigInteger(1, Arrays.copyOfRange(encoded, 3 + modulusLength, encoded.length)));
+        key.encoded = encoded.clone();
+        return key;
+    }
+
+    /**
+     * Returns the modulus.
+     *
+     * @since 1.1
+     * @return n
+     */
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Returns the public exponent.
+     *
+     * @since 1.1
+     * @return e
+     */
+    public BigInteger getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Returns the modulus size.
+     *
+     * @since 1.1
+     * @return Bit length of n.
+     */
+    public int bitLength() {
+        return modulus.bitLength();
+    }
+
+    /**
+     * Returns the compact binary form of this key.
+     *
+     * @since 1.1
+     * @return A copy of the encoded form.
+     */
+    public byte[] getEncoded() {
+        return encoded().clone();
+    }
+
+    /**
+     * Returns the fingerprint of this key.
+     *
+     * @since 1.1
+     * @return Fingerprint.
+     */
+    public KeyFingerprint getFingerprint() {
+        KeyFingerprint result = fingerprint;
+        if (result == null) {
+            fingerprint = result = KeyFingerprint.of(this);
+        }
+        return result;
+    }
+
+    /**
+     * Takes a Montgomery context for the modulus, out of the cache, creating
+     * one if there is none free.
+     *
+     * @return Context, to be returned with {@link #releaseContext(Montgomery)}.
+     */
+    Montgomery acquireContext() {
+        Montgomery context = contexts.poll();
+        return (context != null) ? context : new Montgomery(modulus);
+    }
+
+    /**
+     * Returns a context to the cache.
+     *
+     * @param context Context from {@link #acquireContext()}.
+     */
+    void releaseContext(Montgomery context) {
+        contexts.offer(context);
+    }
+
+    /**
+     * Exponent, as digits, shared: callers must not modify it.
+     */
+    long[] exponentDigits() {
+        long[] result = exponentDigits;
+        if (result == null) {
+            exponentDigits = result = Montgomery.toLimbs(exponent, (exponent.bitLength() + 31) >>> 5);
+        }
+        return result;
+    }
+
+    /**
+     * Encoded form, shared: callers must not modify it.
+     */
+    byte[] encoded() {
+        byte[] result = encoded;
+        if (result == null) {
+            byte[] n = RSAKeyPair.toBytes(modulus, (modulus.bitLength() + 7) / 8);
+            byte[] e = RSAKeyPair.toBytes(exponent, (exponent.bitLength() + 7) / 8);
+            result = new byte[3 + n.length + e.length];
+            result[0] = (byte) (n.length >>> 8);
+            result[1] = (byte) n.length;
+            System.arraycopy(n, 0, result, 2, n.length);
+            result[2 + n.length] = (byte) e.length;
+            System.arraycopy(e, 0, result, 3 + n.length, e.length);
+            encoded = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RSAPublicKey)) {
+            return false;
+        }
+        RSAPublicKey key = (RSAPublicKey) other;
+        return modulus.equals(key.modulus) && exponent.equals(key.exponent);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * modulus.hashCode() + exponent.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RSAPublicKey(" + bitLength() + " bits, " + getFingerprint() + ")";
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new Encoded(encoded());
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Encoded form required.");
+    }
+
+    /**
+     * Serialized form: the encoded key only.
+     */
+    private static final class Encoded implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] key;
+
+        Encoded(byte[] key) {
+            this.key = key;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            try {
+                return decode(key);
+            } catch (IllegalArgumentException ex) {
+                InvalidObjectException exception = new InvalidObjectException(ex.getMessage());
+                exception.initCause(ex);
+                throw exception;
+            }
+        }
+    }
+}
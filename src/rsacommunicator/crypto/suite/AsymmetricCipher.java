@@ -0,0 +1,100 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.math.BigInteger;
+import rsacommunicator.crypto.RSAPublicKey;
+
+/**
+ * Asymmetric cipher of a cipher suite: schoolbook RSA over (n,e) public keys.
+ *
+ * <p>
+ * Every implementation computes the same function, so keys generated by one
+ * are usable by all of them; they differ in speed.
+ * </p>
+ *
+ * <p>
+ * Implementations must be thread safe.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public interface AsymmetricCipher {
+
+    /**
+     * Returns the cipher name.
+     *
+     * @since 1.1
+     * @return Cipher name.
+     */
+    String getName();
+
+    /**
+     * Generates a new key pair.
+     *
+     * @since 1.1
+     * @param bits Modulus size, in bits.
+     * @return New key pair.
+     */
+    KeyPair generate(int bits);
+
+    /**
+     * Encrypts with a public key.
+     *
+     * @since 1.1
+     * @param publicKey (n,e)
+     * @param message Message, smaller than n.
+     * @return message^e mod n.
+     */
+    BigInteger encrypt(RSAPublicKey publicKey, BigInteger message);
+
+    /**
+     * Key pair of an asymmetric cipher.
+     *
+     * @since 1.1
+     */
+    interface KeyPair {
+
+        /**
+         * Return the (n,e) public key pair.
+         *
+         * @since 1.1
+         * @return (n,e)
+         */
+        RSAPublicKey getPublicKeyPair();
+
+        /**
+         * Decrypts with the private key.
+         *
+         * @since 1.1
+         * @param cipherText Cipher text, smaller than n.
+         * @return cipherText^d mod n.
+         */
+        BigInteger decrypt(BigInteger cipherText);
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import rsacommunicator.crypto.RSAPublicKey;
+import rsacommunicator.crypto.suite.SuiteMetrics.Operation;
+
+/**
+ * Cipher suite: the set of algorithms used by a session.
+ *
+ * <p>
+ * Clients offer the suites they support at login, and the server chooses one
+ * of them. Every component is wrapped so that its operations are recorded on
+ * the suite's {@link SuiteMetrics}.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see CipherSuites
+ */
+public class CipherSuite {
+
+    private final String name;
+    private final AsymmetricCipher asymmetric;
+    private final SymmetricCipher symmetric;
+    private final MessageAuthenticator authenticator;
+    private final KeyAgreementScheme agreement;
+    private final SuiteMetrics metrics = new SuiteMetrics();
+
+    /**
+     * Creates a cipher suite.
+     *
+     * @since 1.1
+     * @param name Suite name, as negotiated.
+     * @param asymmetric Asymmetric cipher.
+     * @param symmetric Symmetric cipher.
+     * @param authenticator Message authentication code, or null.
+     * @param agreement Key agreement, or null.
+     */
+    public CipherSuite(String name, AsymmetricCipher asymmetric, SymmetricCipher symmetric,
+            MessageAuthenticator authenticator, KeyAgreementScheme agreement) {
+        this.name = name;
+        this.asymmetric = new MeteredAsymmetric(asymmetric);
+        this.symmetric = new MeteredSymmetric(symmetric);
+        this.authenticator = authenticator == null ? null : new MeteredAuthenticator(authenticator);
+        this.agreement = agreement == null ? null : new MeteredAgreement(agreement);
+    }
+
+    /**
+     * Returns the suite name.
+     *
+     * @since 1.1
+     * @return Suite name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the asymmetric cipher.
+     *
+     * @since 1.1
+     * @return Asymmetric cipher.
+     */
+    public AsymmetricCipher getAsymmetric() {
+        return asymmetric;
+    }
+
+    /**
+     * Returns the symmetric cipher.
+     *
+     * @since 1.1
+     * @return Symmetric cipher.
+     */
+    public SymmetricCipher getSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * Returns the message authentication code.
+     *
+     * @since 1.1
+     * @return MAC, or null if this suite has none.
+     */
+    public MessageAuthenticator getAuthenticator() {
+        return authenticator;
+    }
+
+    /**
+     * Returns the key agreement.
+     *
+     * @since 1.1
+     * @return Key agreement, or null if this suite has none.
+     */
+    public KeyAgreementScheme getAgreement() {
+        return agreement;
+    }
+
+    /**
+     * Returns the throughput metrics of this suite.
+     *
+     * @since 1.1
+     * @return Metrics.
+     */
+    public SuiteMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Input stream that counts the bytes read.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    private class MeteredSymmetric implements SymmetricCipher {
+
+        private final SymmetricCipher cipher;
+
+        MeteredSymmetric(SymmetricCipher cipher) {
+            this.cipher = cipher;
+        }
+
+        @Override
+        public String getName() {
+            return cipher.getName();
+        }
+
+        @Override
+        public int getKeySize() {
+            return cipher.getKeySize();
+        }
+
+        @Override
+        public void encrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+            CountingInputStream counter = new CountingInputStream(input);
+            long start = System.nanoTime();
+            cipher.encrypt(counter, key, output);
+            metrics.record(Operation.ENCRYPT, counter.count, System.nanoTime() - start);
+        }
+
+        @Override
+        public void decrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+            CountingInputStream counter = new CountingInputStream(input);
+            long start = System.nanoTime();
+            cipher.decrypt(counter, key, output);
+            metrics.record(Operation.DECRYPT, counter.count, System.nanoTime() - start);
+        }
+    }
+
+    private class MeteredAsymmetric implements AsymmetricCipher {
+
+        private final AsymmetricCipher cipher;
+
+        MeteredAsymmetric(AsymmetricCipher cipher) {
+            this.cipher = cipher;
+        }
+
+        @Override
+        public String getName() {
+            return cipher.getName();
+        }
+
+        @Override
+        public KeyPair generate(int bits) {
+            KeyPair keyPair = cipher.generate(bits);
+            return new KeyPair() {
+
+                @Override
+                public RSAPublicKey getPublicKeyPair() {
+                    return keyPair.getPublicKeyPair();
+                }
+
+                @Override
+                public BigInteger decrypt(BigInteger cipherText) {
+                    long start = System.nanoTime();
+                    BigInteger message = keyPair.decrypt(cipherText);
+                    metrics.record(Operation.PRIVATE, (bits + 7) / 8, System.nanoTime() - start);
+                    return message;
+                }
+            };
+        }
+
+        @Override
+        public BigInteger encrypt(RSAPublicKey publicKey, BigInteger message) {
+            long start = System.nanoTime();
+            BigInteger cipherText = cipher.encrypt(publicKey, message);
+            metrics.record(Operation.PUBLIC, (publicKey.bitLength() + 7) / 8, System.nanoTime() - start);
+            return cipherText;
+        }
+    }
+
+    private class MeteredAuthenticator implements MessageAuthenticator {
+
+        private final MessageAuthenticator authenticator;
+
+        MeteredAuthenticator(MessageAuthenticator authenticator) {
+            this.authenticator = authenticator;
+        }
+
+        @Override
+        public String getName() {
+            return authenticator.getName();
+        }
+
+        @Override
+        public int getTagSize() {
+            return authenticator.getTagSize();
+        }
+
+        @Override
+        public void tag(byte[] key, byte[] data, int offset, int length, byte[] tag, int tagOffset) throws GeneralSecurityException {
+            long start = System.nanoTime();
+            authenticator.tag(key, data, offset, length, tag, tagOffset);
+            metrics.record(Operation.AUTHENTICATE, length, System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean verify(byte[] key, byte[] data, int offset, int length, byte[] tag, int tagOffset) throws GeneralSecurityException {
+            long start = System.nanoTime();
+            boolean valid = authenticator.verify(key, data, offset, length, tag, tagOffset);
+            metrics.record(Operation.AUTHENTICATE, length, System.nanoTime() - start);
+            return valid;
+        }
+
+        @Override
+        public void tag(byte[] key, List<byte[]> frames, byte[] tag, int tagOffset) throws GeneralSecurityException {
+            long start = System.nanoTime();
+            authenticator.tag(key, frames, tag, tagOffset);
+            metrics.record(Operation.AUTHENTICATE, size(frames), System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean verify(byte[] key, List<byte[]> frames, byte[] tag, int tagOffset) throws GeneralSecurityException {
+            long start = System.nanoTime();
+            boolean valid = authenticator.verify(key, frames, tag, tagOffset);
+            metrics.record(Operation.AUTHENTICATE, size(frames), System.nanoTime() - start);
+            return valid;
+        }
+
+        private long size(List<byte[]> frames) {
+            long size = 0;
+            for (byte[] frame : frames) {
+                size += frame.length;
+            }
+            return size;
+        }
+    }
+
+    private class MeteredAgreement implements KeyAgreementScheme {
+
+        private final KeyAgreementScheme agreement;
+
+        MeteredAgreement(KeyAgreementScheme agreement) {
+            this.agreement = agreement;
+        }
+
+        @Override
+        public String getName() {
+            return agreement.getName();
+        }
+
+        @Override
+        public Party newParty() throws GeneralSecurityException {
+            return metered(agreement.newParty());
+        }
+
+        @Override
+        public Party restoreParty(byte[] encoded) throws GeneralSecurityException {
+            return metered(agreement.restoreParty(encoded));
+        }
+
+        private Party metered(Party party) {
+            return new Party() {
+
+                @Override
+                public byte[] getPublicKey() {
+                    return party.getPublicKey();
+                }
+
+                @Override
+                public byte[] getEncoded() {
+                    return party.getEncoded();
+                }
+
+                @Override
+                public byte[] deriveKey(byte[] peerPublicKey, int keySize) throws GeneralSecurityException {
+                    long start = System.nanoTime();
+                    byte[] key = party.deriveKey(peerPublicKey, keySize);
+                    metrics.record(Operation.AGREE, keySize, System.nanoTime() - start);
+                    return key;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the cipher suites available, in preference order.
+ *
+ * <p>
+ * The suites of the built-in providers are registered first, fastest first:
+ * </p>
+ * <ul>
+ * <li>{@link JCEProvider}: AES in counter mode, from the Java platform;</li>
+ * <li>{@link ProjectProvider}: bitsliced DES in counter mode and RSA, from
+ * this project;</li>
+ * <li>{@link LibraryProvider}: DES and RSA from the crypto library - the
+ * suite of sessions before one is negotiated.</li>
+ * </ul>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public final class CipherSuites {
+
+    /**
+     * Suite used before one is negotiated, and with peers whose suite is not
+     * known.
+     *
+     * @since 1.1
+     */
+    public static final String LEGACY = LibraryProvider.RSA_DES;
+
+    /**
+     * Registered suites, in preference order.
+     *
+     * @since 1.1
+     */
+    private static final Map<String, CipherSuite> SUITES = new LinkedHashMap<>();
+
+    static {
+        register(new JCEProvider());
+        register(new ProjectProvider());
+        register(new LibraryProvider());
+    }
+
+    private CipherSuites() {
+    }
+
+    /**
+     * Registers the suites of a provider, after the ones already registered.
+     *
+     * @since 1.1
+     * @param provider
+     */
+    public static synchronized void register(CipherSuiteProvider provider) {
+        for (CipherSuite suite : provider.getSuites()) {
+            SUITES.putIfAbsent(suite.getName(), suite);
+        }
+    }
+
+    /**
+     * Returns a suite by name.
+     *
+     * @since 1.1
+     * @param name Suite name.
+     * @return Suite, or null if not registered.
+     */
+    public static synchronized CipherSuite get(String name) {
+        return SUITES.get(name);
+    }
+
+    /**
+     * Returns the names of all registered suites, in preference order.
+     *
+     * @since 1.1
+     * @return Suite names.
+     */
+    public static synchronized List<String> names() {
+        return new ArrayList<>(SUITES.keySet());
+    }
+
+    /**
+     * Returns a symmetric cipher by name, from any registered suite.
+     *
+     * <p>
+     * Messages name the symmetric cipher they were encrypted with, which can
+     * belong to a suite other than the receiver's.
+     * </p>
+     *
+     * @since 1.1
+     * @param name Symmetric cipher name.
+     * @return Symmetric cipher, or null if no suite has it.
+     */
+    public static synchronized SymmetricCipher symmetric(String name) {
+        for (CipherSuite suite : SUITES.values()) {
+            if (suite.getSymmetric().getName().equals(name)) {
+                return suite.getSymmetric();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Chooses a suite for a session.
+     *
+     * @since 1.1
+     * @param preferences Suites supported by the chooser, in preference order.
+     * @param offered Suites offered by the other side.
+     * @return First preferred suite that was offered and is registered; or
+     * null if nothing was offered, or there is no suite in common.
+     */
+    public static synchronized CipherSuite negotiate(List<String> preferences, List<String> offered) {
+        if (offered == null || offered.isEmpty()) {
+            return null;
+        }
+        for (String name : preferences) {
+            if (offered.contains(name) && SUITES.containsKey(name)) {
+                return SUITES.get(name);
+            }
+        }
+        return null;
+    }
+}
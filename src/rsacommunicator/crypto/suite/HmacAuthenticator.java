@@ -0,0 +1,167 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HMAC-SHA256 message authentication code, from the Java platform.
+ *
+ * <p>
+ * Each thread keeps a MAC initialized with the last key it used, and scratch
+ * buffers: tagging and verifying with the same key, as done with a session,
+ * allocates nothing.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class HmacAuthenticator implements MessageAuthenticator {
+
+    /**
+     * Tag size in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int TAG_SIZE = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * One MAC per thread: instances are not thread safe.
+     *
+     * @since 1.1
+     */
+    private final ThreadLocal<State> states = new ThreadLocal<>();
+
+    @Override
+    public String getName() {
+        return "HMAC-SHA256";
+    }
+
+    @Override
+    public int getTagSize() {
+        return TAG_SIZE;
+    }
+
+    @Override
+    public void tag(byte[] key, byte[] data, int offset, int length, byte[] tag, int tagOffset) throws GeneralSecurityException {
+        Mac mac = mac(key);
+        mac.update(data, offset, length);
+        mac.doFinal(tag, tagOffset);
+    }
+
+    @Override
+    public boolean verify(byte[] key, byte[] data, int offset, int length, byte[] tag, int tagOffset) throws GeneralSecurityException {
+        byte[] expected = state().expected;
+        tag(key, data, offset, length, expected, 0);
+        return equals(expected, tag, tagOffset);
+    }
+
+    @Override
+    public void tag(byte[] key, List<byte[]> frames, byte[] tag, int tagOffset) throws GeneralSecurityException {
+        Mac mac = mac(key);
+        byte[] length = state().length;
+        for (byte[] frame : frames) {
+            length[0] = (byte) (frame.length >>> 24);
+            length[1] = (byte) (frame.length >>> 16);
+            length[2] = (byte) (frame.length >>> 8);
+            length[3] = (byte) frame.length;
+            mac.update(length);
+            mac.update(frame);
+        }
+        mac.doFinal(tag, tagOffset);
+    }
+
+    @Override
+    public boolean verify(byte[] key, List<byte[]> frames, byte[] tag, int tagOffset) throws GeneralSecurityException {
+        byte[] expected = state().expected;
+        tag(key, frames, expected, 0);
+        return equals(expected, tag, tagOffset);
+    }
+
+    /**
+     * Returns this thread's state.
+     */
+    private State state() throws GeneralSecurityException {
+        State state = states.get();
+        if (state == null) {
+            state = new State(Mac.getInstance(ALGORITHM));
+            states.set(state);
+        }
+        return state;
+    }
+
+    /**
+     * Returns this thread's MAC, initialized with a key.
+     */
+    private Mac mac(byte[] key) throws GeneralSecurityException {
+        State state = state();
+        if (!Arrays.equals(state.key, key)) {
+            state.mac.init(new SecretKeySpec(key, ALGORITHM));
+            state.key = key.clone();
+        }
+        return state.mac;
+    }
+
+    /**
+     * Compares a computed tag with a received one, in constant time.
+     *
+     * <p>
+     * Received tags that are too short never match.
+     * </p>
+     */
+    private static boolean equals(byte[] expected, byte[] tag, int tagOffset) {
+        if (tag == null || tagOffset < 0 || tag.length - tagOffset < expected.length) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < expected.length; i++) {
+            difference |= expected[i] ^ tag[tagOffset + i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Per thread state.
+     */
+    private static class State {
+
+        private final Mac mac;
+        private final byte[] expected = new byte[TAG_SIZE];
+        private final byte[] length = new byte[4];
+        private byte[] key;
+
+        State(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
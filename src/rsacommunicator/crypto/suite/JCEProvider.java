@@ -0,0 +1,200 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Collections;
+import java.util.List;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import rsacommunicator.crypto.RSAKeyPair;
+import rsacommunicator.crypto.RSAPublicKey;
+
+/**
+ * Cipher suites of the Java platform (JCE).
+ *
+ * <p>
+ * AES in counter mode, usually hardware accelerated, raw RSA and HMAC-SHA256.
+ * </p>
+ *
+ * <p>
+ * Session keys are sent with RSA, without key agreement: an ECDH derivation
+ * costs more CPU than wrapping and unwrapping a key with 512 bit RSA, on
+ * either side ({@link rsacommunicator.benchmark.HandshakeBenchmark}). Key
+ * agreement is available with {@link ProjectProvider}.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class JCEProvider implements CipherSuiteProvider {
+
+    /**
+     * JCE RSA and AES-128 in counter mode.
+     *
+     * @since 1.1
+     */
+    public static final String RSA_AES_CTR = "JCE_RSA_AES_CTR";
+
+    @Override
+    public List<CipherSuite> getSuites() {
+        return Collections.singletonList(new CipherSuite(RSA_AES_CTR, new JCERSA(), new AESCounterMode(),
+                new HmacAuthenticator(), null));
+    }
+
+    /**
+     * Raw RSA ("RSA/ECB/NoPadding") from the Java platform.
+     */
+    private static class JCERSA implements AsymmetricCipher {
+
+        @Override
+        public String getName() {
+            return "RSA/JCE";
+        }
+
+        @Override
+        public KeyPair generate(int bits) {
+            try {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(bits);
+                java.security.KeyPair keyPair = generator.generateKeyPair();
+                java.security.interfaces.RSAPublicKey jcePublicKey = (java.security.interfaces.RSAPublicKey) keyPair.getPublic();
+                RSAPublicKey publicKey = new RSAPublicKey(jcePublicKey.getModulus(), jcePublicKey.getPublicExponent());
+
+                return new KeyPair() {
+
+                    @Override
+                    public RSAPublicKey getPublicKeyPair() {
+                        return publicKey;
+                    }
+
+                    @Override
+                    public BigInteger decrypt(BigInteger cipherText) {
+                        return apply(Cipher.DECRYPT_MODE, keyPair.getPrivate(), publicKey.getModulus(), cipherText);
+                    }
+                };
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("RSA is not available.", ex);
+            }
+        }
+
+        @Override
+        public BigInteger encrypt(RSAPublicKey publicKey, BigInteger message) {
+            try {
+                java.security.PublicKey key = KeyFactory.getInstance("RSA")
+                        .generatePublic(new RSAPublicKeySpec(publicKey.getModulus(), publicKey.getExponent()));
+                return apply(Cipher.ENCRYPT_MODE, key, publicKey.getModulus(), message);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalArgumentException("Invalid public key.", ex);
+            }
+        }
+
+        private static BigInteger apply(int mode, java.security.Key key, BigInteger modulus, BigInteger value) {
+            try {
+                Cipher rsa = Cipher.getInstance("RSA/ECB/NoPadding");
+                rsa.init(mode, key);
+                byte[] input = RSAKeyPair.toBytes(value, (modulus.bitLength() + 7) / 8);
+                return new BigInteger(1, rsa.doFinal(input));
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalArgumentException("RSA operation failed.", ex);
+            }
+        }
+    }
+
+    /**
+     * AES-128 in counter mode ("AES/CTR/NoPadding").
+     *
+     * <p>
+     * Format: 16 bytes of initial counter followed by the cipher text, as long
+     * as the plain text.
+     * </p>
+     */
+    private static class AESCounterMode implements SymmetricCipher {
+
+        private static final int IV_SIZE = 16;
+        private static final int BUFFER_SIZE = 8192;
+        private static final SecureRandom RANDOM = new SecureRandom();
+
+        @Override
+        public String getName() {
+            return "AES/CTR";
+        }
+
+        @Override
+        public int getKeySize() {
+            return 16;
+        }
+
+        @Override
+        public void encrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+            byte[] iv = new byte[IV_SIZE];
+            RANDOM.nextBytes(iv);
+            output.write(iv);
+            transform(Cipher.ENCRYPT_MODE, input, key, iv, output);
+        }
+
+        @Override
+        public void decrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+            byte[] iv = new byte[IV_SIZE];
+            int read = 0;
+            int count;
+            while (read < IV_SIZE && (count = input.read(iv, read, IV_SIZE - read)) > 0) {
+                read += count;
+            }
+            if (read != IV_SIZE) {
+                throw new IOException("Missing initial counter.");
+            }
+            transform(Cipher.DECRYPT_MODE, input, key, iv, output);
+        }
+
+        private void transform(int mode, InputStream input, byte[] key, byte[] iv, OutputStream output) throws IOException {
+            try {
+                Cipher aes = Cipher.getInstance("AES/CTR/NoPadding");
+                aes.init(mode, new SecretKeySpec(key, 0, getKeySize(), "AES"), new IvParameterSpec(iv));
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                byte[] out = new byte[BUFFER_SIZE];
+                int length;
+                while ((length = input.read(buffer)) > 0) {
+                    output.write(out, 0, aes.update(buffer, 0, length, out));
+                }
+                output.write(aes.doFinal());
+            } catch (GeneralSecurityException ex) {
+                throw new IOException("AES is not available.", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Key agreement of a cipher suite.
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public interface KeyAgreementScheme {
+
+    /**
+     * Returns the scheme name.
+     *
+     * @since 1.1
+     * @return Scheme name.
+     */
+    String getName();
+
+    /**
+     * Creates a new party: a key pair for agreements.
+     *
+     * @since 1.1
+     * @return New party.
+     * @throws GeneralSecurityException
+     */
+    Party newParty() throws GeneralSecurityException;
+
+    /**
+     * Restores a party, from its stored form.
+     *
+     * @since 1.1
+     * @param encoded Form returned by {@link Party#getEncoded()}.
+     * @return Party.
+     * @throws GeneralSecurityException if the form is not valid for this
+     * scheme.
+     */
+    Party restoreParty(byte[] encoded) throws GeneralSecurityException;
+
+    /**
+     * One side of key agreements.
+     *
+     * @since 1.1
+     */
+    interface Party {
+
+        /**
+         * Returns the public key to publish.
+         *
+         * @since 1.1
+         * @return Encoded public key.
+         */
+        byte[] getPublicKey();
+
+        /**
+         * Returns the key pair, private half included, for storage.
+         *
+         * @since 1.1
+         * @return Encoded key pair.
+         * @see KeyAgreementScheme#restoreParty(byte[])
+         */
+        byte[] getEncoded();
+
+        /**
+         * Derives the session key shared with a peer.
+         *
+         * @since 1.1
+         * @param peerPublicKey Peer's encoded public key.
+         * @param keySize Session key size, in bytes.
+         * @return Session key.
+         * @throws GeneralSecurityException if the peer's key is invalid.
+         */
+        byte[] deriveKey(byte[] peerPublicKey, int keySize) throws GeneralSecurityException;
+    }
+}
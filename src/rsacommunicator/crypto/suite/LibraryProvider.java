@@ -0,0 +1,136 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import crypto.ciphers.Cipher;
+import crypto.ciphers.asy.rsa.RSA;
+import crypto.ciphers.block.feistel.des.DES;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javafx.util.Pair;
+import rsacommunicator.crypto.RSAPublicKey;
+
+/**
+ * Cipher suites of the crypto library.
+ *
+ * <p>
+ * DES and RSA as implemented by the crypto library, with no MAC and no key
+ * agreement: what clients used before cipher suites were negotiated.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class LibraryProvider implements CipherSuiteProvider {
+
+    /**
+     * RSA and DES from the crypto library.
+     *
+     * @since 1.1
+     */
+    public static final String RSA_DES = "LIBRARY_RSA_DES";
+
+    @Override
+    public List<CipherSuite> getSuites() {
+        return Collections.singletonList(new CipherSuite(RSA_DES, new LibraryRSA(), new LibraryDES(), null, null));
+    }
+
+    /**
+     * RSA from the crypto library.
+     *
+     * <p>
+     * Public key operations are the plain exponentiation the library performs,
+     * on numbers rather than on its own text and byte conversions. The
+     * library's (n,e) pairs are converted to {@link RSAPublicKey} here, once
+     * per key pair.
+     * </p>
+     */
+    private static class LibraryRSA implements AsymmetricCipher {
+
+        @Override
+        public String getName() {
+            return "RSA";
+        }
+
+        @Override
+        public KeyPair generate(int bits) {
+            RSA rsa = new RSA(bits);
+            Pair<BigInteger, BigInteger> publicKeyPair = rsa.getPublicKeyPair();
+            RSAPublicKey publicKey = new RSAPublicKey(publicKeyPair.getKey(), publicKeyPair.getValue());
+            return new KeyPair() {
+
+                @Override
+                public RSAPublicKey getPublicKeyPair() {
+                    return publicKey;
+                }
+
+                @Override
+                public BigInteger decrypt(BigInteger cipherText) {
+                    return rsa.decrypt(cipherText);
+                }
+            };
+        }
+
+        @Override
+        public BigInteger encrypt(RSAPublicKey publicKey, BigInteger message) {
+            return message.modPow(publicKey.getExponent(), publicKey.getModulus());
+        }
+    }
+
+    /**
+     * DES from the crypto library.
+     */
+    private static class LibraryDES implements SymmetricCipher {
+
+        private static final Cipher des = new DES();
+
+        @Override
+        public String getName() {
+            return "DES";
+        }
+
+        @Override
+        public int getKeySize() {
+            return DES.BLOCK_SIZE / Byte.SIZE;
+        }
+
+        @Override
+        public void encrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+            des.encrypt(input, Arrays.copyOf(key, getKeySize()), output);
+        }
+
+        @Override
+        public void decrypt(InputStream input, byte[] key, OutputStream output) throws IOException {
+            des.decrypt(input, Arrays.copyOf(key, getKeySize()), output);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.security.GeneralSecurityException;
+import java.util.List;
+
+/**
+ * Message authentication code of a cipher suite.
+ *
+ * <p>
+ * Besides single frames, a batch of frames can be authenticated under one
+ * tag: each frame is authenticated with its length, so frame boundaries are
+ * part of the tag.
+ * </p>
+ *
+ * <p>
+ * Implementations must be thread safe, and verify tags in constant time.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public interface MessageAuthenticator {
+
+    /**
+     * Returns the MAC name.
+     *
+     * @since 1.1
+     * @return MAC name.
+     */
+    String getName();
+
+    /**
+     * Returns the tag size.
+     *
+     * @since 1.1
+     * @return Tag size in bytes.
+     */
+    int getTagSize();
+
+    /**
+     * Computes the tag of some data.
+     *
+     * @since 1.1
+     * @param key Session key.
+     * @param data Data.
+     * @param offset First byte to authenticate.
+     * @param length Bytes to authenticate.
+     * @param tag Output buffer.
+     * @param tagOffset Where to write the tag.
+     * @throws GeneralSecurityException
+     */
+    void tag(byte[] key, byte[] data, int offset, int length, byte[] tag, int tagOffset) throws GeneralSecurityException;
+
+    /**
+     * Verifies the tag of some data.
+     *
+     * @since 1.1
+     * @param key Session key.
+     * @param data Data.
+     * @param offset First authenticated byte.
+     * @param length Authenticated bytes.
+     * @param tag Tag to verify.
+     * @param tagOffset Where the tag starts.
+     * @return
+     * <ul>
+     * <li>true: if the tag matches;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     * @throws GeneralSecurityException
+     */
+    boolean verify(byte[] key, byte[] data, int offset, int length, byte[] tag, int tagOffset) throws GeneralSecurityException;
+
+    /**
+     * Computes the tag of a batch of frames.
+     *
+     * @since 1.1
+     * @param key Session key.
+     * @param frames Frames, in order.
+     * @param tag Output buffer.
+     * @param tagOffset Where to write the tag.
+     * @throws GeneralSecurityException
+     */
+    void tag(byte[] key, List<byte[]> frames, byte[] tag, int tagOffset) throws GeneralSecurityException;
+
+    /**
+     * Verifies the tag of a batch of frames.
+     *
+     * @since 1.1
+     * @param key Session key.
+     * @param frames Frames, in order.
+     * @param tag Tag to verify.
+     * @param tagOffset Where the tag starts.
+     * @return
+     * <ul>
+     * <li>true: if the tag matches;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     * @throws GeneralSecurityException
+     */
+    boolean verify(byte[] key, List<byte[]> frames, byte[] tag, int tagOffset) throws GeneralSecurityException;
+}
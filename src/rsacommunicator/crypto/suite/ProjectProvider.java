@@ -0,0 +1,87 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import rsacommunicator.crypto.DESCounterMode;
+import rsacommunicator.crypto.ECDHAgreement;
+import rsacommunicator.crypto.RSAKeyPair;
+import rsacommunicator.crypto.RSAPublicKey;
+
+/**
+ * Cipher suites implemented by this project.
+ *
+ * <p>
+ * RSA with CRT private keys, bitsliced DES in counter mode, HMAC-SHA256 and
+ * ECDH key agreement. RSA runs on the default {@link RSAKeyPair.Engine}: the
+ * Montgomery arithmetic core only when it is requested.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see RSAKeyPair
+ * @see DESCounterMode
+ */
+public class ProjectProvider implements CipherSuiteProvider {
+
+    /**
+     * Project RSA and bitsliced DES in counter mode.
+     *
+     * @since 1.1
+     */
+    public static final String RSA_DES_CTR = "PROJECT_RSA_DES_CTR";
+
+    @Override
+    public List<CipherSuite> getSuites() {
+        return Collections.singletonList(new CipherSuite(RSA_DES_CTR, new ProjectRSA(), new DESCounterMode(),
+                new HmacAuthenticator(), ECDHAgreement.SCHEME));
+    }
+
+    /**
+     * RSA over {@link RSAKeyPair}, on the default engine.
+     */
+    private static class ProjectRSA implements AsymmetricCipher {
+
+        @Override
+        public String getName() {
+            return (RSAKeyPair.DEFAULT_ENGINE == RSAKeyPair.Engine.MONTGOMERY) ? "RSA/Montgomery" : "RSA/CRT";
+        }
+
+        @Override
+        public KeyPair generate(int bits) {
+            return RSAKeyPair.generate(bits);
+        }
+
+        @Override
+        public BigInteger encrypt(RSAPublicKey publicKey, BigInteger message) {
+            return RSAKeyPair.encrypt(publicKey, message);
+        }
+    }
+}
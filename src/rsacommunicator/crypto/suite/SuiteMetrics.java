@@ -0,0 +1,164 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput metrics of a cipher suite.
+ *
+ * <p>
+ * Every operation performed through a {@link CipherSuite} is counted, with the
+ * bytes processed and the time spent.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class SuiteMetrics {
+
+    /**
+     * Measured operations.
+     *
+     * @since 1.1
+     */
+    public enum Operation {
+
+        /**
+         * Symmetric encryption.
+         *
+         * @since 1.1
+         */
+        ENCRYPT,
+        /**
+         * Symmetric decryption.
+         *
+         * @since 1.1
+         */
+        DECRYPT,
+        /**
+         * Public key encryption.
+         *
+         * @since 1.1
+         */
+        PUBLIC,
+        /**
+         * Private key decryption.
+         *
+         * @since 1.1
+         */
+        PRIVATE,
+        /**
+         * Message authentication.
+         *
+         * @since 1.1
+         */
+        AUTHENTICATE,
+        /**
+         * Key agreement.
+         *
+         * @since 1.1
+         */
+        AGREE
+    }
+
+    private final Map<Operation, LongAdder> counts = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> bytes = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> nanos = new EnumMap<>(Operation.class);
+
+    public SuiteMetrics() {
+        for (Operation operation : Operation.values()) {
+            counts.put(operation, new LongAdder());
+            bytes.put(operation, new LongAdder());
+            nanos.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Records an operation.
+     *
+     * @since 1.1
+     * @param operation
+     * @param processed Bytes processed.
+     * @param elapsed Time spent, in nanoseconds.
+     */
+    public void record(Operation operation, long processed, long elapsed) {
+        counts.get(operation).increment();
+        bytes.get(operation).add(processed);
+        nanos.get(operation).add(elapsed);
+    }
+
+    /**
+     * Returns how many times an operation was performed.
+     *
+     * @since 1.1
+     * @param operation
+     * @return Operation count.
+     */
+    public long getCount(Operation operation) {
+        return counts.get(operation).sum();
+    }
+
+    /**
+     * Returns the throughput of an operation.
+     *
+     * @since 1.1
+     * @param operation
+     * @return Bytes per second, or zero if never performed.
+     */
+    public double getThroughput(Operation operation) {
+        long elapsed = nanos.get(operation).sum();
+        return elapsed == 0 ? 0 : bytes.get(operation).sum() * 1e9 / elapsed;
+    }
+
+    /**
+     * Returns the average time of an operation.
+     *
+     * @since 1.1
+     * @param operation
+     * @return Nanoseconds per operation, or zero if never performed.
+     */
+    public double getAverageTime(Operation operation) {
+        long count = counts.get(operation).sum();
+        return count == 0 ? 0 : (double) nanos.get(operation).sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            long count = getCount(operation);
+            if (count > 0) {
+                summary.append(String.format("%s: %d ops, %.1f MB/s, %.1f us/op%n",
+                        operation, count, getThroughput(operation) / 1e6, getAverageTime(operation) / 1e3));
+            }
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.crypto.suite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Symmetric cipher of a cipher suite.
+ *
+ * <p>
+ * Session keys are key material shared by every symmetric cipher: each cipher
+ * uses the first {@link #getKeySize()} bytes of it. So a session key is valid
+ * whichever cipher a message is sent with.
+ * </p>
+ *
+ * <p>
+ * Implementations must be thread safe.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public interface SymmetricCipher {
+
+    /**
+     * Returns the cipher name, as sent on messages.
+     *
+     * @since 1.1
+     * @return Cipher name.
+     */
+    String getName();
+
+    /**
+     * Returns how many bytes of the session key this cipher uses.
+     *
+     * @since 1.1
+     * @return Key size in bytes.
+     */
+    int getKeySize();
+
+    /**
+     * Encrypts a stream.
+     *
+     * @since 1.1
+     * @param input Plain text.
+     * @param key Session key, at least {@link #getKeySize()} bytes.
+     * @param output Cipher text.
+     * @throws IOException
+     */
+    void encrypt(InputStream input, byte[] key, OutputStream output) throws IOException;
+
+    /**
+     * Decrypts a stream.
+     *
+     * @since 1.1
+     * @param input Cipher text.
+     * @param key Session key, at least {@link #getKeySize()} bytes.
+     * @param output Plain text.
+     * @throws IOException
+     */
+    void decrypt(InputStream input, byte[] key, OutputStream output) throws IOException;
+}
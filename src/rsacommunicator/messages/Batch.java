@@ -0,0 +1,86 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Symmetrically encrypted messages, from one user to another, authenticated
+ * under one tag.
+ *
+ * <p>
+ * The tag covers all frames, in order, by the message authenticator of the
+ * destination's cipher suite: each frame with its number, source, destination
+ * and cipher, as for a single message. Frames carry no tag of their own.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see rsacommunicator.crypto.suite.MessageAuthenticator
+ */
+public class Batch extends Message<ArrayList<SymmetricMessage>> {
+
+    /**
+     * Authentication tag of the frames.
+     *
+     * @since 1.1
+     */
+    private final byte[] tag;
+
+    public Batch(String source, String destination, List<SymmetricMessage> frames, byte[] tag) {
+        super(source, destination, Type.BATCH, new ArrayList<>(frames));
+        this.tag = tag;
+    }
+
+    /**
+     * Returns the authentication tag.
+     *
+     * @since 1.1
+     * @return Tag.
+     */
+    public byte[] getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the data of the frames covered by the tag, in order.
+     *
+     * @since 1.1
+     * @return Data to authenticate, one entry per frame.
+     * @see SymmetricMessage#getAuthenticatedData()
+     */
+    public List<byte[]> getAuthenticatedData() {
+        List<byte[]> data = new ArrayList<>(getMessage().size());
+        for (SymmetricMessage frame : getMessage()) {
+            data.add(frame.getAuthenticatedData());
+        }
+        return data;
+    }
+
+}
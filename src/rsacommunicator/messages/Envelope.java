@@ -0,0 +1,137 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.messages;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Message encrypted once for many recipients - multi-recipient envelope.
+ *
+ * <p>
+ * The contents are encrypted with a symmetric cipher under a fresh content key,
+ * and only that key is encrypted, with RSA, for each recipient. Every recipient finds its own
+ * slot by user name and ignores the others.
+ * </p>
+ *
+ * <p>
+ * Envelopes can carry the sender's number for them, as
+ * {@link SymmetricMessage} does.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class Envelope extends Message<byte[]> {
+
+    /**
+     * Content key encrypted for each recipient, indexed by user name.
+     *
+     * @since 1.1
+     */
+    private final TreeMap<String, BigInteger> keys;
+
+    /**
+     * Symmetric cipher used to encrypt the contents.
+     *
+     * @since 1.1
+     */
+    private final String cipher;
+
+    /**
+     * Sender's number for the message; 0, if none.
+     *
+     * @since 1.1
+     */
+    private final long id;
+
+    public Envelope(String source, String destination, String cipher, byte[] message, Map<String, BigInteger> keys) {
+        this(source, destination, cipher, message, keys, 0);
+    }
+
+    /**
+     * Creates a numbered envelope.
+     *
+     * @since 1.1
+     * @param source
+     * @param destination
+     * @param cipher Symmetric cipher name.
+     * @param message Cipher text.
+     * @param keys Encrypted content keys, indexed by user name.
+     * @param id Sender's number for the message; 0, for none.
+     */
+    public Envelope(String source, String destination, String cipher, byte[] message, Map<String, BigInteger> keys, long id) {
+        super(source, destination, Type.ENVELOPE, message);
+        this.cipher = cipher;
+        this.keys = new TreeMap<>(keys);
+        this.id = id;
+    }
+
+    /**
+     * Returns the symmetric cipher used to encrypt the contents.
+     *
+     * @since 1.1
+     * @return Symmetric cipher name.
+     */
+    public String getCipher() {
+        return cipher;
+    }
+
+    /**
+     * Returns the content key encrypted for a recipient.
+     *
+     * @since 1.1
+     * @param recipient User name.
+     * @return Encrypted content key or null, if the recipient has no slot.
+     */
+    public BigInteger getKey(String recipient) {
+        return keys.get(recipient);
+    }
+
+    /**
+     * Returns all recipients' slots.
+     *
+     * @since 1.1
+     * @return Encrypted content keys, indexed by user name.
+     */
+    public Map<String, BigInteger> getKeys() {
+        return Collections.unmodifiableMap(keys);
+    }
+
+    /**
+     * Returns the sender's number for the message.
+     *
+     * @since 1.1
+     * @return Id; 0, if the message is not numbered.
+     */
+    public long getId() {
+        return id;
+    }
+
+}
@@ -26,16 +26,91 @@
  */
 package rsacommunicator.messages;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Request to login.
  *
+ * <p>
+ * Logins carry cipher suites: the ones offered by the client, in preference
+ * order, on requests; the one chosen for the user, on the server's
+ * notifications.
+ * </p>
+ *
+ * <p>
+ * A request may also carry a resumption {@link Ticket}, to take back a session
+ * interrupted shortly before.
+ * </p>
+ *
  * @author Victor de Lima Soares
- * @version 1.0
+ * @version 1.1
  */
 public class Login extends Message<String> {
 
+    /**
+     * Version of release 1.0, kept: the cipher suites were added as an
+     * optional field.
+     *
+     * @since 1.1
+     */
+    private static final long serialVersionUID = 7595661440113706973L;
+
+    /**
+     * Cipher suite names.
+     *
+     * @since 1.1
+     */
+    private final ArrayList<String> cipherSuites;
+
+    /**
+     * Resumption ticket.
+     *
+     * @since 1.1
+     */
+    private final byte[] ticket;
+
     public Login(String userName) {
+        this(userName, null);
+    }
+
+    public Login(String userName, List<String> cipherSuites) {
+        this(userName, cipherSuites, null);
+    }
+
+    /**
+     * Creates a login request that resumes a session.
+     *
+     * @since 1.1
+     * @param userName
+     * @param cipherSuites Offered suites, in preference order: used if the
+     * session cannot be resumed.
+     * @param ticket Resumption ticket.
+     */
+    public Login(String userName, List<String> cipherSuites, byte[] ticket) {
         super(userName.trim(), Destination.SERVER.name(), Type.LOGIN, userName.trim());
+        this.cipherSuites = cipherSuites == null ? null : new ArrayList<>(cipherSuites);
+        this.ticket = ticket;
+    }
+
+    /**
+     * Returns the cipher suites.
+     *
+     * @since 1.1
+     * @return Suite names, or null if none were sent.
+     */
+    public List<String> getCipherSuites() {
+        return cipherSuites;
+    }
+
+    /**
+     * Returns the resumption ticket.
+     *
+     * @since 1.1
+     * @return Ticket, or null for new sessions.
+     */
+    public byte[] getTicket() {
+        return ticket;
     }
 
 }
@@ -26,19 +26,24 @@
  */
 package rsacommunicator.messages;
 
-import java.math.BigInteger;
-import javafx.util.Pair;
+import rsacommunicator.crypto.RSAPublicKey;
 
 /**
  * Update Public key (for RSA).
  *
+ * <p>
+ * Sent to the server by users publishing their keys, broadcast by the server,
+ * and sent by the server to single users, as answer to a
+ * {@link PublicKeyRequest}.
+ * </p>
+ *
  * @author Victor de Lima Soares
  * @version 1.0
  */
-public class PublicKey extends Message<Pair<BigInteger, BigInteger>> {
+public class PublicKey extends Message<RSAPublicKey> {
 
-    public PublicKey(String source, String destination, Pair<BigInteger, BigInteger> key) {
-        super(source, Destination.SERVER.name(), Type.PUB_KEY, key);
+    public PublicKey(String source, String destination, RSAPublicKey key) {
+        super(source, destination, Type.PUB_KEY, key);
     }
 
 }
@@ -27,17 +27,145 @@
 package rsacommunicator.messages;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Message encrypted with RSA - using public keys.
  *
+ * <p>
+ * Messages come in three forms:
+ * </p>
+ * <ul>
+ * <li>Single: the text fits in one RSA block, the message field;</li>
+ * <li>Chunked: the text is split in blocks, encrypted one by one, the first
+ * one in the message field;</li>
+ * <li>Hybrid: the message field holds a content key encrypted with RSA, and
+ * the text is encrypted with that key by a symmetric cipher.</li>
+ * </ul>
+ * *
  * @author Victor de Lima Soares
- * @version 1.0
+ * @version 1.1
  */
 public class RSAMessage extends Message<BigInteger> {
 
+    /**
+     * Version of release 1.0, kept: the chunk and content fields were added as
+     * optional fields.
+     *
+     * @since 1.1
+     */
+    private static final long serialVersionUID = -7903156384761966340L;
+
+    /**
+     * Blocks after the first, for chunked messages.
+     *
+     * @since 1.1
+     */
+    private final ArrayList<BigInteger> chunks;
+
+    /**
+     * Symmetric cipher of the contents, for hybrid messages, as named by
+     * {@link rsacommunicator.crypto.suite.SymmetricCipher#getName()}.
+     *
+     * @since 1.1
+     */
+    private final String cipher;
+
+    /**
+     * Encrypted contents, for hybrid messages.
+     *
+     * @since 1.1
+     */
+    private final byte[] content;
+
     public RSAMessage(String source, String destination, BigInteger message) {
+        this(source, destination, message, null, null, null);
+    }
+
+    /**
+     * Creates a chunked message.
+     *
+     * @since 1.1
+     * @param source
+     * @param destination
+     * @param chunks Encrypted blocks, in order.
+     */
+    public RSAMessage(String source, String destination, List<BigInteger> chunks) {
+        this(source, destination, chunks.get(0), new ArrayList<>(chunks.subList(1, chunks.size())), null, null);
+    }
+
+    /**
+     * Creates a hybrid message.
+     *
+     * @since 1.1
+     * @param source
+     * @param destination
+     * @param encryptedKey Content key, encrypted with RSA.
+     * @param cipher Symmetric cipher of the contents.
+     * @param content Encrypted contents.
+     */
+    public RSAMessage(String source, String destination, BigInteger encryptedKey, String cipher, byte[] content) {
+        this(source, destination, encryptedKey, null, cipher, content);
+    }
+
+    private RSAMessage(String source, String destination, BigInteger message,
+            ArrayList<BigInteger> chunks, String cipher, byte[] content) {
         super(source, destination, Type.RSA_MSG, message);
+        this.chunks = chunks;
+        this.cipher = cipher;
+        this.content = content;
+    }
+
+    /**
+     * Returns all encrypted blocks.
+     *
+     * @since 1.1
+     * @return Blocks, in order; just the message field, for single messages.
+     */
+    public List<BigInteger> getChunks() {
+        if (chunks == null) {
+            return Collections.singletonList(getMessage());
+        }
+        List<BigInteger> all = new ArrayList<>(chunks.size() + 1);
+        all.add(getMessage());
+        all.addAll(chunks);
+        return all;
+    }
+
+    /**
+     * Verify if this is a hybrid message.
+     *
+     * @since 1.1
+     * @return
+     * <ul>
+     * <li>true: if the message field is an encrypted content key;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    public boolean isHybrid() {
+        return cipher != null;
+    }
+
+    /**
+     * Returns the symmetric cipher of the contents.
+     *
+     * @since 1.1
+     * @return Cipher name; null, if the message is not hybrid.
+     */
+    public String getCipher() {
+        return cipher;
+    }
+
+    /**
+     * Returns the encrypted contents.
+     *
+     * @since 1.1
+     * @return Contents; null, if the message is not hybrid.
+     */
+    public byte[] getContent() {
+        return content;
     }
 
 }
@@ -0,0 +1,70 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import rsacommunicator.client.User;
+
+/**
+ * Changes in the user list, sent instead of a {@link UserList} when a session
+ * is resumed.
+ *
+ * <p>
+ * Carries the users that logged in or updated their keys, and the names of the
+ * ones that left, since the session was interrupted.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class RosterDelta extends Message<TreeMap<String, User>> {
+
+    /**
+     * Names of the users that left.
+     *
+     * @since 1.1
+     */
+    private final ArrayList<String> removed;
+
+    public RosterDelta(String destination, TreeMap<String, User> changed, List<String> removed) {
+        super(Destination.SERVER.name(), destination, Type.ROSTER_DELTA, changed);
+        this.removed = new ArrayList<>(removed);
+    }
+
+    /**
+     * Returns the names of the users that left.
+     *
+     * @since 1.1
+     * @return User names.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+}
@@ -26,17 +26,167 @@
  */
 package rsacommunicator.messages;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Message encrypted with DES - using session keys.
  *
+ * <p>
+ * The cipher field tells how DES was used; messages without one are
+ * {@link #DES}.
+ * </p>
+ *
+ * <p>
+ * Messages can carry a tag, by the message authenticator of the destination's
+ * cipher suite. The tag covers the number, source, destination and cipher of
+ * the message along with the cipher text, see {@link #getAuthenticatedData()}:
+ * a message cannot be replayed under another number, nor passed for one from,
+ * or to, another user. Frames of a {@link Batch} have none.
+ * </p>
+ *
+ * <p>
+ * Messages can also carry the sender's number for them, so that a message
+ * sent again after a lost connection is only delivered once.
+ * </p>
+ *
  * @author Victor de Lima Soares
- * @version 1.0
+ * @version 1.1
  */
 public class SymmetricMessage extends Message<byte[]> {
 
+    /**
+     * Version of release 1.0, kept: the cipher field was added as an optional
+     * field.
+     *
+     * @since 1.1
+     */
+    private static final long serialVersionUID = -5005174841217827729L;
+
+    /**
+     * DES, as implemented by the crypto library.
+     *
+     * @since 1.1
+     */
+    public static final String DES = "DES";
+
+    /**
+     * Symmetric cipher used to encrypt the contents, as named by
+     * {@link rsacommunicator.crypto.suite.SymmetricCipher#getName()}.
+     *
+     * @since 1.1
+     */
+    private final String cipher;
+
+    /**
+     * Authentication tag of the message.
+     *
+     * @since 1.1
+     */
+    private final byte[] tag;
+
+    /**
+     * Sender's number for the message; 0, if none.
+     *
+     * @since 1.1
+     */
+    private final long id;
+
     public SymmetricMessage(String source,String destination,byte[] message) {
-        super(source,destination,Type.SYM_MSG, message);
+        this(source, destination, DES, message);
+    }
+
+    public SymmetricMessage(String source, String destination, String cipher, byte[] message) {
+        this(source, destination, cipher, message, null);
+    }
+
+    /**
+     * Creates an authenticated message.
+     *
+     * @since 1.1
+     * @param source
+     * @param destination
+     * @param cipher Cipher name.
+     * @param message Cipher text.
+     * @param tag Authentication tag of the message.
+     */
+    public SymmetricMessage(String source, String destination, String cipher, byte[] message, byte[] tag) {
+        this(source, destination, cipher, message, tag, 0);
+    }
+
+    /**
+     * Creates an authenticated, numbered message.
+     *
+     * @since 1.1
+     * @param source
+     * @param destination
+     * @param cipher Cipher name.
+     * @param message Cipher text.
+     * @param tag Authentication tag of the message; null, for none.
+     * @param id Sender's number for the message; 0, for none.
+     */
+    public SymmetricMessage(String source, String destination, String cipher, byte[] message, byte[] tag, long id) {
+        super(source, destination, Type.SYM_MSG, message);
+        this.cipher = cipher;
+        this.tag = tag;
+        this.id = id;
+    }
+
+    /**
+     * Returns the cipher used to encrypt the contents.
+     *
+     * @since 1.1
+     * @return Cipher name.
+     */
+    public String getCipher() {
+        return cipher == null ? DES : cipher;
+    }
+
+    /**
+     * Returns the authentication tag.
+     *
+     * @since 1.1
+     * @return Tag; null, if the message is not authenticated by itself.
+     */
+    public byte[] getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the sender's number for the message.
+     *
+     * @since 1.1
+     * @return Id; 0, if the message is not numbered.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the data covered by the tag.
+     *
+     * <p>
+     * The number, then the source, destination and cipher names, each as
+     * UTF-8 after its length, then the cipher text.
+     * </p>
+     *
+     * @since 1.1
+     * @return Data to authenticate.
+     */
+    public byte[] getAuthenticatedData() {
+        byte[] sourceName = getSource().getBytes(StandardCharsets.UTF_8);
+        byte[] destinationName = getDestination().getBytes(StandardCharsets.UTF_8);
+        byte[] cipherName = getCipher().getBytes(StandardCharsets.UTF_8);
+        byte[] cipherText = getMessage();
+
+        return ByteBuffer.allocate(Long.BYTES + 3 * Integer.BYTES
+                + sourceName.length + destinationName.length + cipherName.length + cipherText.length)
+                .putLong(id)
+                .putInt(sourceName.length).put(sourceName)
+                .putInt(destinationName.length).put(destinationName)
+                .putInt(cipherName.length).put(cipherName)
+                .put(cipherText)
+                .array();
     }
 
 }
@@ -0,0 +1,67 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.messages;
+
+/**
+ * Resumption ticket issued by the server at login.
+ *
+ * <p>
+ * The ticket stays valid while the client is connected. A client whose
+ * connection drops and that reconnects within the ticket's validity can present
+ * it in its login request, to take back its session: same name, same keys, and only the
+ * changes in the user list since then. Tickets can be used once; a new one is
+ * issued with every login.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class Ticket extends Message<byte[]> {
+
+    /**
+     * Validity, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private final long validity;
+
+    public Ticket(String destination, byte[] ticket, long validity) {
+        super(Destination.SERVER.name(), destination, Type.TICKET, ticket);
+        this.validity = validity;
+    }
+
+    /**
+     * Returns how long the ticket is valid, from when the connection drops.
+     *
+     * @since 1.1
+     * @return Validity, in milliseconds.
+     */
+    public long getValidity() {
+        return validity;
+    }
+
+}
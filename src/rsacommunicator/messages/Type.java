@@ -85,7 +85,67 @@ public enum Type {
      *
      * @since 1.0
      */
-    PLAIN_MSG(PlainMessage.class);
+    PLAIN_MSG(PlainMessage.class),
+    /**
+     * Message encrypted once for many recipients - multi-recipient envelope.
+     *
+     * @since 1.1
+     */
+    ENVELOPE(Envelope.class),
+    /**
+     * Update key agreement public key (for ECDH).
+     *
+     * @since 1.1
+     */
+    AGREEMENT_KEY(AgreementKey.class),
+    /**
+     * Cipher suite chosen by the server for the session.
+     *
+     * @since 1.1
+     */
+    SUITE(Suite.class),
+    /**
+     * Symmetrically encrypted messages authenticated under one tag.
+     *
+     * @since 1.1
+     */
+    BATCH(Batch.class),
+    /**
+     * Resumption ticket issued at login.
+     *
+     * @since 1.1
+     */
+    TICKET(Ticket.class),
+    /**
+     * Changes in the user list since a resumed session was interrupted.
+     *
+     * @since 1.1
+     */
+    ROSTER_DELTA(RosterDelta.class),
+    /**
+     * Request for a user's public key (for RSA).
+     *
+     * @since 1.1
+     */
+    PUB_KEY_REQUEST(PublicKeyRequest.class),
+    /**
+     * Page of the user list, sorted by user name.
+     *
+     * @since 1.1
+     */
+    USER_LIST_PAGE(UserListPage.class),
+    /**
+     * Request for the next page of the user list.
+     *
+     * @since 1.1
+     */
+    USER_LIST_REQUEST(UserListRequest.class),
+    /**
+     * Request for a session key, from one user to another.
+     *
+     * @since 1.1
+     */
+    SESSION_KEY_REQUEST(SessionKeyRequest.class);
     
     private Class messageClass;
     
@@ -35,7 +35,7 @@ import rsacommunicator.client.User;
  * @author Victor de Lima Soares
  * @version 1.0
  */
-public class UserList extends Message<TreeMap> {
+public class UserList extends Message<TreeMap<String, User>> {
 
     public UserList(String source, String destination, Type type, TreeMap<String, User> message) {
         super(source, destination, Type.USER_LIST, message);
@@ -0,0 +1,91 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.messages;
+
+import java.util.TreeMap;
+import rsacommunicator.client.User;
+
+/**
+ * One page of the user list in the server.
+ *
+ * <p>
+ * Pages are sorted by user name. A page carries the token it was requested
+ * with, and the token of the next page: the client renders a page as soon as
+ * it arrives, and asks for the next one with a {@link UserListRequest}.
+ * </p>
+ *
+ * <p>
+ * Sent at login, instead of a {@link UserList}, to clients that negotiate a
+ * cipher suite.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ */
+public class UserListPage extends Message<TreeMap<String, User>> {
+
+    /**
+     * Token of this page: null for the first one.
+     *
+     * @since 1.1
+     */
+    private final String after;
+
+    /**
+     * Token of the next page: null for the last one.
+     *
+     * @since 1.1
+     */
+    private final String continuation;
+
+    public UserListPage(String destination, TreeMap<String, User> page, String after, String continuation) {
+        super(Destination.SERVER.name(), destination, Type.USER_LIST_PAGE, page);
+        this.after = after;
+        this.continuation = continuation;
+    }
+
+    /**
+     * Returns the token this page was requested with.
+     *
+     * @since 1.1
+     * @return Token, or null for the first page.
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Returns the token of the next page.
+     *
+     * @since 1.1
+     * @return Token, or null if this is the last page.
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+}
@@ -28,12 +28,13 @@ package rsacommunicator.server;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
-import java.math.BigInteger;
 import java.net.Socket;
 import java.time.LocalDateTime;
-import javafx.util.Pair;
+import java.util.ArrayList;
+import java.util.List;
 import rsacommunicator.MessageReader;
 import rsacommunicator.client.User;
+import rsacommunicator.crypto.RSAPublicKey;
 import rsacommunicator.messages.Message;
 
 /**
@@ -62,7 +63,9 @@ import rsacommunicator.messages.Message;
 public class Client implements Comparable<Client>, AutoCloseable {
 
     private String name;
-    private Pair<BigInteger, BigInteger> publicKeyPair;
+    private RSAPublicKey publicKeyPair;
+    private byte[] agreementKey;
+    private String cipherSuite;
 
     private final Socket socket;
     private final ObjectOutputStream out;
@@ -84,6 +87,50 @@ public class Client implements Comparable<Client>, AutoCloseable {
      */
     private boolean connected = false;
 
+    /**
+     * Flag to indicate if the connection was lost while logged in: the session
+     * is kept, without a channel, until it is resumed or expires.
+     *
+     * @since 1.1
+     */
+    private volatile boolean dropped = false;
+
+    /**
+     * Flag to indicate if the channel was closed.
+     *
+     * @since 1.1
+     */
+    private boolean channelClosed = false;
+
+    /**
+     * Maximum number of messages held for a dropped session.
+     *
+     * @since 1.1
+     */
+    public static final int PENDING_CAPACITY = 1024;
+
+    /**
+     * Messages held while the session is dropped, in arrival order; also the
+     * lock of the hand over.
+     *
+     * @since 1.1
+     */
+    private final List<Message> pending = new ArrayList<>();
+
+    /**
+     * Session that resumed this one: messages are forwarded to it.
+     *
+     * @since 1.1
+     */
+    private volatile Client replacement;
+
+    /**
+     * Flag to indicate if more messages arrived than could be held.
+     *
+     * @since 1.1
+     */
+    private boolean overflowed = false;
+
     /**
      * Creates a new user from a connection request.
      *
@@ -106,13 +153,106 @@ public class Client implements Comparable<Client>, AutoCloseable {
     /**
      * Send a message for this user.
      *
+     * <p>
+     * Messages to a dropped session are held, up to
+     * {@link #PENDING_CAPACITY}, until it is resumed; the session expires if
+     * more arrive. Changes in the user list are not held: the resumed session
+     * gets them all at once.
+     * </p>
+     *
      * @since 1.0
      * @param msg Message to be sent.
      * @throws java.io.IOException
      */
     public void sendMessage(Message msg) throws IOException {
-        out.writeObject(msg);
-        out.flush();
+        if (dropped || replacement != null) {
+            hold(msg);
+            return;
+        }
+        synchronized (out) {
+            out.writeObject(msg);
+            out.flush();
+        }
+    }
+
+    /**
+     * Holds a message for a dropped session, or forwards it to the session that
+     * resumed it.
+     *
+     * @since 1.1
+     * @param msg
+     * @throws IOException
+     */
+    private void hold(Message msg) throws IOException {
+        Client forward;
+        synchronized (pending) {
+            forward = replacement;
+            if (forward == null) {
+                if (isUserListChange(msg)) {
+                    return;
+                }
+                if (pending.size() < PENDING_CAPACITY) {
+                    pending.add(msg);
+                } else if (!overflowed) {
+                    overflowed = true;
+                    server.expireNow(this);
+                }
+                return;
+            }
+        }
+        forward.sendMessage(msg);
+    }
+
+    /**
+     * Verifies if a message is a change in the user list, or an answer to a
+     * request of the lost channel.
+     *
+     * @since 1.1
+     * @param msg
+     * @return
+     * <ul>
+     * <li>true: if the message is covered by the user list changes sent on
+     * resumption, or was requested by the lost channel;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    private static boolean isUserListChange(Message msg) {
+        switch (msg.getType()) {
+            case LOGIN:
+            case LOGOUT:
+            case USER_LIST:
+            case USER_LIST_PAGE:
+            case ROSTER_DELTA:
+            case AGREEMENT_KEY:
+            case PUB_KEY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Hands this session over to the one that resumed it.
+     *
+     * <p>
+     * The new session gets a first message, then the messages held, in order;
+     * later messages to this session are forwarded to it.
+     * </p>
+     *
+     * @since 1.1
+     * @param successor Session that resumed this one.
+     * @param first Message to send before the ones held.
+     * @throws IOException
+     */
+    void handOver(Client successor, Message first) throws IOException {
+        synchronized (pending) {
+            successor.sendMessage(first);
+            for (Message msg : pending) {
+                successor.sendMessage(msg);
+            }
+            pending.clear();
+            replacement = successor;
+        }
     }
 
     /**
@@ -141,7 +281,7 @@ public class Client implements Comparable<Client>, AutoCloseable {
      * @since 1.0
      * @return Client's public key.
      */
-    public Pair<BigInteger, BigInteger> getPublicKeyPair() {
+    public RSAPublicKey getPublicKeyPair() {
         return publicKeyPair;
     }
 
@@ -151,10 +291,50 @@ public class Client implements Comparable<Client>, AutoCloseable {
      * @since 1.0
      * @param publicKeyPair New public key.
      */
-    public void setPublicKeyPair(Pair<BigInteger, BigInteger> publicKeyPair) {
+    public void setPublicKeyPair(RSAPublicKey publicKeyPair) {
         this.publicKeyPair = publicKeyPair;
     }
 
+    /**
+     * Get key agreement public key.
+     *
+     * @since 1.1
+     * @return Client's key agreement public key.
+     */
+    public byte[] getAgreementKey() {
+        return agreementKey;
+    }
+
+    /**
+     * Update key agreement public key.
+     *
+     * @since 1.1
+     * @param agreementKey New key agreement public key.
+     */
+    public void setAgreementKey(byte[] agreementKey) {
+        this.agreementKey = agreementKey;
+    }
+
+    /**
+     * Get the cipher suite negotiated at login.
+     *
+     * @since 1.1
+     * @return Suite name.
+     */
+    public String getCipherSuite() {
+        return cipherSuite;
+    }
+
+    /**
+     * Update the cipher suite negotiated at login.
+     *
+     * @since 1.1
+     * @param cipherSuite Suite name.
+     */
+    public void setCipherSuite(String cipherSuite) {
+        this.cipherSuite = cipherSuite;
+    }
+
     /**
      * Close resources.
      *
@@ -169,13 +349,70 @@ public class Client implements Comparable<Client>, AutoCloseable {
             }
 
             userColeCollector.cancelTasks();
-            
-            receiver.close();
-            out.close();
-            socket.close();
+            closeChannel();
         }
     }
 
+    /**
+     * Handles a lost connection.
+     *
+     * <p>
+     * A logged in session is kept, without its channel, for the resumption
+     * window: the user is still listed and may resume it with a ticket. The
+     * server expires it afterwards. Sessions not logged in are closed.
+     * </p>
+     *
+     * @since 1.1
+     * @throws Exception
+     */
+    public void drop() throws Exception {
+        synchronized (this) {
+            if (!this.isConnected()) {
+                close();
+                return;
+            }
+            if (dropped) {
+                return;
+            }
+            dropped = true;
+
+            userColeCollector.cancelTasks();
+            closeChannel();
+        }
+        server.scheduleExpiry(this);
+    }
+
+    /**
+     * Verifies if the connection was lost while logged in.
+     *
+     * @since 1.1
+     * @return
+     * <ul>
+     * <li>true: if the session is waiting to be resumed or to expire;</li>
+     * <li>false: otherwise.</li>
+     * </ul>
+     */
+    public boolean isDropped() {
+        return dropped;
+    }
+
+    /**
+     * Closes the channel, once.
+     *
+     * @since 1.1
+     * @throws Exception
+     */
+    private void closeChannel() throws Exception {
+        if (channelClosed) {
+            return;
+        }
+        channelClosed = true;
+
+        receiver.close();
+        out.close();
+        socket.close();
+    }
+
     /**
      * Verifies if the servers has connected to this user.
      *
@@ -231,7 +468,8 @@ public class Client implements Comparable<Client>, AutoCloseable {
      * 
      * <p>
      * This make possible to send information about connected clients to RSA
-     * clients.
+     * clients. The public key is replaced by its fingerprint: clients request
+     * keys when they need them.
      * </p>
      * 
      * @since 1.0
@@ -241,7 +479,9 @@ public class Client implements Comparable<Client>, AutoCloseable {
      */
     public User toClientUser() {
         User clientUser = new User(name);
-        clientUser.setPublicKey(publicKeyPair);
+        clientUser.setFingerprint(publicKeyPair == null ? null : publicKeyPair.getFingerprint());
+        clientUser.setAgreementKey(agreementKey);
+        clientUser.setCipherSuite(cipherSuite);
         return clientUser;
     }
 
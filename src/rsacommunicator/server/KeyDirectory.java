@@ -0,0 +1,91 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.server;
+
+import rsacommunicator.crypto.RSAPublicKey;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Public keys of the connected users, by user name.
+ *
+ * <p>
+ * Serves key requests apart from the user registry: lookups take no lock, so
+ * requests do not contend with logins, logouts and broadcasts.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see rsacommunicator.messages.PublicKeyRequest
+ */
+public class KeyDirectory {
+
+    private final ConcurrentMap<String, RSAPublicKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Publishes a user's key, replacing the previous one.
+     *
+     * @since 1.1
+     * @param userName
+     * @param publicKeyPair (n,e)
+     */
+    public void put(String userName, RSAPublicKey publicKeyPair) {
+        keys.put(userName, publicKeyPair);
+    }
+
+    /**
+     * Returns a user's key.
+     *
+     * @since 1.1
+     * @param userName
+     * @return Public key, or null if the user has not published one.
+     */
+    public RSAPublicKey get(String userName) {
+        return keys.get(userName);
+    }
+
+    /**
+     * Removes a user's key.
+     *
+     * @since 1.1
+     * @param userName
+     */
+    public void remove(String userName) {
+        keys.remove(userName);
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @since 1.1
+     * @return Number of users with a public key.
+     */
+    public int size() {
+        return keys.size();
+    }
+}
@@ -32,24 +32,45 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import rsacommunicator.MessageReader;
 import rsacommunicator.client.RSAClient;
 import rsacommunicator.client.User;
+import rsacommunicator.crypto.RSAPublicKey;
+import rsacommunicator.crypto.suite.CipherSuite;
+import rsacommunicator.crypto.suite.CipherSuites;
+import rsacommunicator.messages.AgreementKey;
+import rsacommunicator.messages.Batch;
 import rsacommunicator.messages.Destination;
+import rsacommunicator.messages.Envelope;
 import rsacommunicator.messages.Key;
 import rsacommunicator.messages.Login;
 import rsacommunicator.messages.Logout;
 import rsacommunicator.messages.Message;
 import rsacommunicator.messages.PlainMessage;
 import rsacommunicator.messages.PublicKey;
+import rsacommunicator.messages.PublicKeyRequest;
 import rsacommunicator.messages.RSAMessage;
+import rsacommunicator.messages.RosterDelta;
+import rsacommunicator.messages.SessionKeyRequest;
+import rsacommunicator.messages.Suite;
 import rsacommunicator.messages.SymmetricMessage;
+import rsacommunicator.messages.Ticket;
 import rsacommunicator.messages.Type;
-import rsacommunicator.messages.UserList;
+import rsacommunicator.messages.UserListPage;
+import rsacommunicator.messages.UserListRequest;
 
 /**
  * RSA communicator server.
@@ -61,11 +82,77 @@ public class RSAServer implements Runnable, PropertyChangeListener {
 
     private final Integer PORT = 4931;
 
-    private final Map<String, Client> usersConnected = Collections.synchronizedSortedMap(new TreeMap<String, Client>());
+    private final SortedMap<String, Client> usersConnected = Collections.synchronizedSortedMap(new TreeMap<String, Client>());
+
+    /**
+     * Users per user list page.
+     *
+     * @since 1.1
+     */
+    public static final int PAGE_SIZE = 256;
 
     private final ServerSocket serverSock;
 
+    /**
+     * Cipher suites accepted by the server, in preference order.
+     *
+     * @since 1.1
+     */
+    private final List<String> cipherSuites;
+
+    /**
+     * Public keys, for key requests.
+     *
+     * @since 1.1
+     */
+    private final KeyDirectory keyDirectory = new KeyDirectory();
+
+    /**
+     * Session resumption tickets.
+     *
+     * @since 1.1
+     */
+    private final ResumptionTickets tickets = new ResumptionTickets();
+
+    /**
+     * User list version: incremented on every change.
+     *
+     * @since 1.1
+     */
+    private long rosterVersion;
+
+    /**
+     * Version of the last change of each user, including the ones that left,
+     * since the oldest outstanding ticket.
+     *
+     * @since 1.1
+     */
+    private final Map<String, Long> rosterChanges = new HashMap<>();
+
+    /**
+     * Expires dropped sessions that were not resumed.
+     *
+     * @since 1.1
+     */
+    private final ScheduledExecutorService expirations = Executors.newSingleThreadScheduledExecutor((Runnable task) -> {
+        Thread thread = new Thread(task, "session-expirations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public RSAServer() throws IOException {
+        this(CipherSuites.names());
+    }
+
+    /**
+     * Creates a server that accepts the specified cipher suites.
+     *
+     * @since 1.1
+     * @param cipherSuites Suite names, in preference order.
+     * @throws IOException
+     */
+    public RSAServer(List<String> cipherSuites) throws IOException {
+        this.cipherSuites = Collections.unmodifiableList(cipherSuites);
         this.serverSock = new ServerSocket(PORT);
     }
 
@@ -104,11 +191,28 @@ public class RSAServer implements Runnable, PropertyChangeListener {
      */
     public void bradcast(Message message) throws IOException {
 
-        for (Client user : usersConnected.values()) {
+        for (Client user : sessions()) {
             user.sendMessage(message);
         }
     }
 
+    /**
+     * Returns the connected users.
+     *
+     * <p>
+     * The users are copied under the registry lock, to be iterated without it:
+     * logins, logouts and expirations change the registry from other threads.
+     * </p>
+     *
+     * @since 1.1
+     * @return Copy of the connected users, sorted by name.
+     */
+    private List<Client> sessions() {
+        synchronized (usersConnected) {
+            return new ArrayList<>(usersConnected.values());
+        }
+    }
+
     /**
      * Method called when a event is fired and the server is a subscriber.
      *
@@ -127,6 +231,12 @@ public class RSAServer implements Runnable, PropertyChangeListener {
     public void propertyChange(PropertyChangeEvent evt) {
 
         try {
+            if (MessageReader.DISCONNECTED.equals(evt.getPropertyName())) {
+                //The channel failed: the session waits to be resumed.
+                ((Client) evt.getSource()).drop();
+                return;
+            }
+
             //Verifies if user in the channel has not send a message as other user.
             Message msg = (Message) evt.getNewValue();
             String sourceField = msg.getSource();
@@ -160,6 +270,24 @@ public class RSAServer implements Runnable, PropertyChangeListener {
                         }
                     }
                     break;
+                    case ENVELOPE:
+                        process((Envelope) msg);
+                        break;
+                    case AGREEMENT_KEY:
+                        process((AgreementKey) msg);
+                        break;
+                    case BATCH:
+                        process((Batch) msg);
+                        break;
+                    case PUB_KEY_REQUEST:
+                        process((Client) evt.getSource(), (PublicKeyRequest) msg);
+                        break;
+                    case USER_LIST_REQUEST:
+                        process((Client) evt.getSource(), (UserListRequest) msg);
+                        break;
+                    case SESSION_KEY_REQUEST:
+                        process((SessionKeyRequest) msg);
+                        break;
                 }
             }
         } catch (IOException ex) {
@@ -177,17 +305,161 @@ public class RSAServer implements Runnable, PropertyChangeListener {
      * @param user
      */
     public void removeUser(Client user) {
-        usersConnected.remove(user.getName());
+        if (removeSession(user)) {
+            keyDirectory.remove(user.getName());
+            rosterChanged(user.getName());
+        }
+    }
+
+    /**
+     * Removes a session from the connected users, if it was not replaced.
+     *
+     * <p>
+     * Sessions are compared by identity: clients are equal by name, and a
+     * resumed session has the name of the one it replaces.
+     * </p>
+     *
+     * @since 1.1
+     * @param user
+     * @return
+     * <ul>
+     * <li>true: if the session was removed;</li>
+     * <li>false: if it was not listed.</li>
+     * </ul>
+     */
+    private boolean removeSession(Client user) {
+        synchronized (usersConnected) {
+            if (usersConnected.get(user.getName()) != user) {
+                return false;
+            }
+            usersConnected.remove(user.getName());
+            return true;
+        }
+    }
+
+    /**
+     * Schedules the expiration of a dropped session.
+     *
+     * <p>
+     * The user's tickets stay valid for the resumption window, counted from
+     * now.
+     * </p>
+     *
+     * @since 1.1
+     * @param user Dropped session.
+     */
+    void scheduleExpiry(Client user) {
+        tickets.suspend(user.getName());
+        expirations.schedule(() -> {
+            try {
+                expire(user);
+            } catch (IOException ex) {
+                Logger.getLogger(RSAServer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }, tickets.getWindow(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Expires a dropped session right away, on the expiration thread: more
+     * messages arrived for it than could be held.
+     *
+     * @since 1.1
+     * @param user Dropped session.
+     */
+    void expireNow(Client user) {
+        expirations.execute(() -> {
+            try {
+                expire(user);
+            } catch (IOException ex) {
+                Logger.getLogger(RSAServer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+    }
+
+    /**
+     * Ends a dropped session, if it was not resumed: the other users are
+     * notified that the user left.
+     *
+     * @since 1.1
+     * @param user Dropped session.
+     * @throws IOException
+     */
+    private void expire(Client user) throws IOException {
+        boolean removed;
+        synchronized (user) {
+            removed = removeSession(user);
+        }
+        if (removed) {
+            keyDirectory.remove(user.getName());
+            rosterChanged(user.getName());
+            tickets.revoke(user.getName());
+            bradcast(new Logout(Destination.SERVER.name(), user.getName()));
+        }
+    }
+
+    /**
+     * Records a change in the user list.
+     *
+     * @since 1.1
+     * @param userName User that logged in, left or updated keys.
+     */
+    private synchronized void rosterChanged(String userName) {
+        rosterChanges.put(userName, ++rosterVersion);
+    }
+
+    /**
+     * Issues a resumption ticket.
+     *
+     * <p>
+     * Changes older than every outstanding ticket are forgotten.
+     * </p>
+     *
+     * @since 1.1
+     * @param userName
+     * @return TICKET message.
+     */
+    private synchronized Ticket issueTicket(String userName) {
+        byte[] ticket = tickets.issue(userName, rosterVersion);
+        long oldest = tickets.oldestVersion(rosterVersion);
+        rosterChanges.values().removeIf((Long version) -> version <= oldest);
+        return new Ticket(userName, ticket, tickets.getWindow());
+    }
+
+    /**
+     * Lists the changes in the user list since a version.
+     *
+     * @since 1.1
+     * @param userName Destination, left out of the changes.
+     * @param since Version known by the destination.
+     * @return ROSTER_DELTA message.
+     */
+    private synchronized RosterDelta rosterDelta(String userName, long since) {
+        TreeMap<String, User> changed = new TreeMap<>();
+        List<String> removed = new ArrayList<>();
+
+        rosterChanges.forEach((String name, Long version) -> {
+            if (version > since && !name.equals(userName)) {
+                Client client = usersConnected.get(name);
+                if (client == null) {
+                    removed.add(name);
+                } else {
+                    changed.put(name, client.toClientUser());
+                }
+            }
+        });
+
+        return new RosterDelta(userName, changed, removed);
     }
 
     /**
      * Run server as an independent program.
      *
-     * @param args the command line arguments
+     * @param args the command line arguments: the accepted cipher suites, in
+     * preference order (all registered suites, if none).
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        RSAServer server = new RSAServer();
+        RSAServer server = (args.length == 0) ? new RSAServer() : new RSAServer(Arrays.asList(args));
         server.run();
     }
 
@@ -196,6 +468,17 @@ public class RSAServer implements Runnable, PropertyChangeListener {
      *
      * Login a user to the server.
      *
+     * <p>
+     * The cipher suite of the session is the server's most preferred suite
+     * offered by the user. Users that offer none, or without a common suite,
+     * are rejected.
+     * </p>
+     *
+     * <p>
+     * Users get the suite, a resumption ticket and the first page of the user
+     * list.
+     * </p>
+     *
      * @since 1.0
      * @param user
      * @param msg
@@ -203,14 +486,27 @@ public class RSAServer implements Runnable, PropertyChangeListener {
      */
     public void process(Client user, Login msg) throws IOException, Exception {
 
+        if (msg.getTicket() != null && resume(user, msg)) {
+            return;
+        }
+
         synchronized (user) {
             String userName = msg.getMessage();
+            CipherSuite suite = CipherSuites.negotiate(cipherSuites, msg.getCipherSuites());
+
+            Client dropped = usersConnected.get(userName);
+            if (dropped != null && dropped.isDropped()) {
+                //A new session replaces the one waiting to be resumed.
+                expire(dropped);
+            }
 
-            if (!usersConnected.containsKey(userName)) {
+            if (!usersConnected.containsKey(userName) && suite != null) {
                 user.setName(userName);
+                user.setCipherSuite(suite.getName());
                 user.setConnected(true);
                 usersConnected.put(userName, user);
-                bradcast(new Login(userName));
+                rosterChanged(userName);
+                bradcast(new Login(userName, Collections.singletonList(suite.getName())));
             } else {
                 user.sendMessage(new Logout(Destination.SERVER.name(), userName));
                 user.close();
@@ -218,10 +514,66 @@ public class RSAServer implements Runnable, PropertyChangeListener {
         }
 
         if (user.isConnected()) {
-            user.sendMessage(new UserList(Destination.SERVER.name(), user.getName(), Type.USER_LIST, getClientUsersMap()));
+            user.sendMessage(new Suite(user.getName(), user.getCipherSuite()));
+            user.sendMessage(issueTicket(user.getName()));
+            user.sendMessage(userListPage(user.getName(), null));
         }
     }
 
+    /**
+     * Resumes a session with a ticket.
+     *
+     * <p>
+     * The new channel takes the place of the interrupted one, keeping the
+     * user's keys and suite: nothing is broadcast, so the other users keep
+     * their session keys with the user. The interrupted session may still be
+     * up, or waiting after its channel dropped; either way, it is closed. The
+     * user gets the changes in the user list since the ticket was issued, then
+     * the messages held for the interrupted session, and a new ticket.
+     * </p>
+     *
+     * @since 1.1
+     * @param user New channel.
+     * @param msg Login request with a ticket.
+     * @return
+     * <ul>
+     * <li>true: if the session was resumed;</li>
+     * <li>false: if the ticket is not valid, or the interrupted session is
+     * over: the login proceeds as a new session.</li>
+     * </ul>
+     * @throws Exception
+     */
+    private boolean resume(Client user, Login msg) throws Exception {
+        ResumptionTickets.Entry entry = tickets.redeem(msg.getTicket(), msg.getMessage());
+        if (entry == null) {
+            return false;
+        }
+
+        Client previous = usersConnected.get(entry.getUserName());
+        if (previous == null) {
+            return false;
+        }
+        synchronized (previous) {
+            if (usersConnected.get(entry.getUserName()) != previous) {
+                //Expired meanwhile.
+                return false;
+            }
+            synchronized (user) {
+                user.setName(entry.getUserName());
+                user.setPublicKeyPair(previous.getPublicKeyPair());
+                user.setAgreementKey(previous.getAgreementKey());
+                user.setCipherSuite(previous.getCipherSuite());
+                user.setConnected(true);
+            }
+            previous.handOver(user, rosterDelta(user.getName(), entry.getRosterVersion()));
+            usersConnected.put(user.getName(), user);
+        }
+        previous.close();
+
+        user.sendMessage(issueTicket(user.getName()));
+        return true;
+    }
+
     /**
      * Process a LOGOUT message.
      *
@@ -231,6 +583,7 @@ public class RSAServer implements Runnable, PropertyChangeListener {
      * @throws Exception
      */
     public void process(Logout msg) throws IOException, Exception {
+        tickets.revoke(msg.getSource());
         usersConnected.get(msg.getSource()).close();
         bradcast(new Logout(Destination.SERVER.name(), msg.getSource()));
     }
@@ -246,15 +599,83 @@ public class RSAServer implements Runnable, PropertyChangeListener {
         relay(msg);
     }
 
+    /**
+     * Process a SESSION_KEY_REQUEST message.
+     *
+     * @since 1.1
+     * @param msg
+     * @throws IOException
+     */
+    public void process(SessionKeyRequest msg) throws IOException {
+        relay(msg);
+    }
+
     /**
      * Process a PUB_KEY message.
      *
+     * <p>
+     * Users get the key's fingerprint, as a user list change, and request the
+     * key when they need it.
+     * </p>
+     *
      * @since 1.0
      * @param msg
      * @throws IOException
      */
     public void process(PublicKey msg) throws IOException {
-        usersConnected.get(msg.getSource()).setPublicKeyPair(msg.getMessage());
+        Client source = usersConnected.get(msg.getSource());
+        source.setPublicKeyPair(msg.getMessage());
+        keyDirectory.put(msg.getSource(), msg.getMessage());
+        rosterChanged(msg.getSource());
+
+        TreeMap<String, User> changed = new TreeMap<>();
+        changed.put(source.getName(), source.toClientUser());
+        bradcast(new RosterDelta(Destination.BROADCAST.name(), changed, Collections.emptyList()));
+    }
+
+    /**
+     * Process a PUB_KEY_REQUEST message.
+     *
+     * <p>
+     * Requests for unknown users, or users without a public key, are ignored.
+     * Keys come from the key directory: the user registry is not locked.
+     * </p>
+     *
+     * @since 1.1
+     * @param requester Channel of the request.
+     * @param msg
+     * @throws IOException
+     */
+    public void process(Client requester, PublicKeyRequest msg) throws IOException {
+        RSAPublicKey publicKeyPair = keyDirectory.get(msg.getMessage());
+
+        if (publicKeyPair != null) {
+            requester.sendMessage(new PublicKey(msg.getMessage(), requester.getName(), publicKeyPair));
+        }
+    }
+
+    /**
+     * Process a USER_LIST_REQUEST message.
+     *
+     * @since 1.1
+     * @param requester Channel of the request.
+     * @param msg
+     * @throws IOException
+     */
+    public void process(Client requester, UserListRequest msg) throws IOException {
+        requester.sendMessage(userListPage(requester.getName(), msg.getMessage()));
+    }
+
+    /**
+     * Process an AGREEMENT_KEY message.
+     *
+     * @since 1.1
+     * @param msg
+     * @throws IOException
+     */
+    public void process(AgreementKey msg) throws IOException {
+        usersConnected.get(msg.getSource()).setAgreementKey(msg.getMessage());
+        rosterChanged(msg.getSource());
         bradcast(msg);
     }
 
@@ -291,6 +712,43 @@ public class RSAServer implements Runnable, PropertyChangeListener {
         relay(msg);
     }
 
+    /**
+     * Process an ENVELOPE message.
+     *
+     * <p>
+     * The envelope is fanned out as is: each recipient decrypts its own slot.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @throws java.io.IOException
+     */
+    public void process(Envelope msg) throws IOException {
+        relay(msg);
+    }
+
+    /**
+     * Process a BATCH message.
+     *
+     * <p>
+     * Batches with frames from, or to, other users than the batch itself are
+     * dropped: the channel owner is only verified against the batch.
+     * </p>
+     *
+     * @since 1.1
+     * @param msg
+     * @throws java.io.IOException
+     */
+    public void process(Batch msg) throws IOException {
+        for (SymmetricMessage frame : msg.getMessage()) {
+            if (!msg.getSource().equals(frame.getSource()) || !msg.getDestination().equals(frame.getDestination())) {
+                Logger.getLogger(RSAServer.class.getName()).log(Level.WARNING, "Batch with foreign frames from {0}", msg.getSource());
+                return;
+            }
+        }
+        relay(msg);
+    }
+
     /**
      * Relay a message to its destination.
      *
@@ -314,9 +772,44 @@ public class RSAServer implements Runnable, PropertyChangeListener {
      */
     public TreeMap<String, User> getClientUsersMap() {
         TreeMap<String, User> clients = new TreeMap<>();
-        usersConnected.values().stream().forEach((user) -> {
+        sessions().stream().forEach((user) -> {
             clients.put(user.getName(), user.toClientUser());
         });
         return clients;
     }
+
+    /**
+     * Creates a page of the user list, with fingerprints instead of public
+     * keys.
+     *
+     * <p>
+     * The continuation token is the name of the last user in the page: pages
+     * stay consistent while users log in and out, and only one page is built
+     * at a time.
+     * </p>
+     *
+     * @since 1.1
+     * @param destination Requester.
+     * @param after Token of the page: null for the first one.
+     * @return User list page.
+     */
+    public UserListPage userListPage(String destination, String after) {
+        TreeMap<String, User> page = new TreeMap<>();
+        String continuation = null;
+
+        synchronized (usersConnected) {
+            SortedMap<String, Client> remaining = after == null ? usersConnected : usersConnected.tailMap(after);
+            for (Client user : remaining.values()) {
+                if (user.getName().equals(after)) {
+                    continue;
+                }
+                if (page.size() == PAGE_SIZE) {
+                    continuation = page.lastKey();
+                    break;
+                }
+                page.put(user.getName(), user.toClientUser());
+            }
+        }
+        return new UserListPage(destination, page, after, continuation);
+    }
 }
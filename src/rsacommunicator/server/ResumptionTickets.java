@@ -0,0 +1,231 @@
+/*
+ * This code was written for an assignment for concept demonstration purposes:
+ *  caution required
+ *
+ * The MIT License
+ *
+ * Copyright 2014 Victor de Lima Soares.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package rsacommunicator.server;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Session resumption tickets issued by the server.
+ *
+ * <p>
+ * Tickets are random, bound to a user name and to the user list version at
+ * issue time, and usable once. They are valid while the session's channel is
+ * up, and for a fixed window after it drops.
+ * </p>
+ *
+ * @author Victor de Lima Soares
+ * @version 1.1
+ *
+ * @see rsacommunicator.messages.Ticket
+ */
+public class ResumptionTickets {
+
+    /**
+     * Default validity window, in milliseconds.
+     *
+     * @since 1.1
+     */
+    public static final long WINDOW = 2 * 60 * 1000;
+
+    /**
+     * Ticket size, in bytes.
+     *
+     * @since 1.1
+     */
+    public static final int TICKET_SIZE = 16;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Outstanding tickets.
+     *
+     * @since 1.1
+     */
+    private final Map<ByteBuffer, Entry> tickets = new HashMap<>();
+
+    /**
+     * Validity window, in milliseconds.
+     *
+     * @since 1.1
+     */
+    private final long window;
+
+    public ResumptionTickets() {
+        this(WINDOW);
+    }
+
+    /**
+     * Creates a ticket store.
+     *
+     * @since 1.1
+     * @param window Validity, in milliseconds.
+     */
+    public ResumptionTickets(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Returns the validity window.
+     *
+     * @since 1.1
+     * @return Validity, in milliseconds.
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Issues a ticket.
+     *
+     * <p>
+     * Previous tickets of the user are revoked.
+     * </p>
+     *
+     * @since 1.1
+     * @param userName
+     * @param rosterVersion User list version known by the user.
+     * @return Ticket.
+     */
+    public synchronized byte[] issue(String userName, long rosterVersion) {
+        revoke(userName);
+
+        byte[] ticket = new byte[TICKET_SIZE];
+        random.nextBytes(ticket);
+        tickets.put(ByteBuffer.wrap(ticket.clone()), new Entry(userName, rosterVersion, Long.MAX_VALUE));
+        return ticket;
+    }
+
+    /**
+     * Starts the validity window of the tickets of a user, whose channel
+     * dropped.
+     *
+     * @since 1.1
+     * @param userName
+     */
+    public synchronized void suspend(String userName) {
+        long expires = System.currentTimeMillis() + window;
+        for (Entry entry : tickets.values()) {
+            if (entry.userName.equals(userName)) {
+                entry.expires = Math.min(entry.expires, expires);
+            }
+        }
+    }
+
+    /**
+     * Redeems a ticket: it cannot be used again.
+     *
+     * @since 1.1
+     * @param ticket
+     * @param userName User presenting the ticket.
+     * @return Ticket entry, or null if the ticket is unknown, expired or issued
+     * to another user.
+     */
+    public synchronized Entry redeem(byte[] ticket, String userName) {
+        Entry entry = tickets.remove(ByteBuffer.wrap(ticket));
+        if (entry == null || entry.expires < System.currentTimeMillis() || !entry.userName.equals(userName)) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Revokes the tickets of a user.
+     *
+     * @since 1.1
+     * @param userName
+     */
+    public synchronized void revoke(String userName) {
+        tickets.values().removeIf((Entry entry) -> entry.userName.equals(userName));
+    }
+
+    /**
+     * Returns the oldest user list version of valid tickets.
+     *
+     * <p>
+     * Expired tickets are discarded.
+     * </p>
+     *
+     * @since 1.1
+     * @param current Current user list version.
+     * @return Oldest version; the current one, if there are no tickets.
+     */
+    public synchronized long oldestVersion(long current) {
+        long now = System.currentTimeMillis();
+        long oldest = current;
+        for (Iterator<Entry> entries = tickets.values().iterator(); entries.hasNext();) {
+            Entry entry = entries.next();
+            if (entry.expires < now) {
+                entries.remove();
+            } else {
+                oldest = Math.min(oldest, entry.rosterVersion);
+            }
+        }
+        return oldest;
+    }
+
+    /**
+     * Ticket entry.
+     *
+     * @since 1.1
+     */
+    public static class Entry {
+
+        private final String userName;
+        private final long rosterVersion;
+        private long expires;
+
+        private Entry(String userName, long rosterVersion, long expires) {
+            this.userName = userName;
+            this.rosterVersion = rosterVersion;
+            this.expires = expires;
+        }
+
+        /**
+         * Returns the user the ticket was issued to.
+         *
+         * @since 1.1
+         * @return User name.
+         */
+        public String getUserName() {
+            return userName;
+        }
+
+        /**
+         * Returns the user list version at issue time.
+         *
+         * @since 1.1
+         * @return Version.
+         */
+        public long getRosterVersion() {
+            return rosterVersion;
+        }
+    }
+}